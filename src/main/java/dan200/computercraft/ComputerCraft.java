@@ -29,14 +29,21 @@
     public static int computerSpaceLimit = 1000 * 1000;
     public static int floppySpaceLimit = 125 * 1000;
     public static int maximumFilesOpen = 128;
+    public static boolean coalesceFileFlushes = false;
     public static boolean disableLua51Features = false;
     public static String defaultComputerSettings = "";
     public static boolean logComputerErrors = true;
     public static boolean commandRequireCreative = true;
 
     public static int computerThreads = 1;
+    public static boolean shardedComputerThreads = false;
+    public static boolean adaptiveComputerThreads = false;
+    public static int minComputerThreads = 1;
+    public static boolean virtualThreadCoroutines = false;
     public static long maxMainGlobalTime = TimeUnit.MILLISECONDS.toNanos( 10 );
     public static long maxMainComputerTime = TimeUnit.MILLISECONDS.toNanos( 5 );
+    public static int maxConcurrentBoots = 8;
+    public static boolean warmupMethods = true;
 
     public static boolean httpEnabled = true;
     public static boolean httpWebsocketEnabled = true;
@@ -50,6 +57,10 @@
     public static int httpDownloadBandwidth = 32 * 1024 * 1024;
     public static int httpUploadBandwidth = 32 * 1024 * 1024;
 
+    public static boolean metricsExporterEnabled = false;
+    public static String metricsExporterAddress = "127.0.0.1";
+    public static int metricsExporterPort = 9225;
+
     public static boolean enableCommandBlock = false;
     public static int modemRange = 64;
     public static int modemHighAltitudeRange = 384;
@@ -24,15 +24,30 @@
 {
     private static final MethodResult empty = new MethodResult( null, null );
 
+    private static final byte KIND_OBJECTS = 0;
+    private static final byte KIND_INT = 1;
+    private static final byte KIND_LONG = 2;
+    private static final byte KIND_DOUBLE = 3;
+    private static final byte KIND_BOOLEAN = 4;
+
+    private static final MethodResult TRUE = new MethodResult( KIND_BOOLEAN, 1, 0 );
+    private static final MethodResult FALSE = new MethodResult( KIND_BOOLEAN, 0, 0 );
+
     private final Object[] result;
     private final ILuaCallback callback;
     private final int adjust;
 
+    /**
+     * How this result is stored. Primitive results are kept unboxed in {@link #integer} (for integers and booleans) or
+     * {@link #number} (for doubles), rather than in {@link #result}.
+     */
+    private final byte kind;
+    private final long integer;
+    private final double number;
+
     private MethodResult( Object[] arguments, ILuaCallback callback )
     {
-        result = arguments;
-        this.callback = callback;
-        adjust = 0;
+        this( arguments, callback, 0 );
     }
 
     private MethodResult( Object[] arguments, ILuaCallback callback, int adjust )
@@ -40,6 +55,19 @@ private MethodResult( Object[] arguments, ILuaCallback callback, int adjust )
         result = arguments;
         this.callback = callback;
         this.adjust = adjust;
+        kind = KIND_OBJECTS;
+        integer = 0;
+        number = 0;
+    }
+
+    private MethodResult( byte kind, long integer, double number )
+    {
+        result = null;
+        callback = null;
+        adjust = 0;
+        this.kind = kind;
+        this.integer = integer;
+        this.number = number;
     }
 
     /**
@@ -72,6 +100,63 @@ public static MethodResult of( @Nullable Object value )
         return new MethodResult( new Object[] { value }, null );
     }
 
+    /**
+     * Return a single boolean immediately.
+     * <p>
+     * This is equivalent to {@link #of(Object)}, but does not allocate a new result.
+     *
+     * @param value The value to return to the calling Lua function.
+     * @return A method result which returns immediately with the given value.
+     */
+    @Nonnull
+    public static MethodResult of( boolean value )
+    {
+        return value ? TRUE : FALSE;
+    }
+
+    /**
+     * Return a single integer immediately.
+     * <p>
+     * This is equivalent to {@link #of(Object)}, but avoids boxing the value.
+     *
+     * @param value The value to return to the calling Lua function.
+     * @return A method result which returns immediately with the given value.
+     */
+    @Nonnull
+    public static MethodResult of( int value )
+    {
+        return new MethodResult( KIND_INT, value, 0 );
+    }
+
+    /**
+     * Return a single integer immediately.
+     * <p>
+     * This is equivalent to {@link #of(Object)}, but avoids boxing the value. Note that Lua numbers are doubles, so
+     * very large values will lose precision when converted to Lua. {@link #getResult()} returns the exact value.
+     *
+     * @param value The value to return to the calling Lua function.
+     * @return A method result which returns immediately with the given value.
+     */
+    @Nonnull
+    public static MethodResult of( long value )
+    {
+        return new MethodResult( KIND_LONG, value, 0 );
+    }
+
+    /**
+     * Return a single number immediately.
+     * <p>
+     * This is equivalent to {@link #of(Object)}, but avoids boxing the value.
+     *
+     * @param value The value to return to the calling Lua function.
+     * @return A method result which returns immediately with the given value.
+     */
+    @Nonnull
+    public static MethodResult of( double value )
+    {
+        return new MethodResult( KIND_DOUBLE, 0, value );
+    }
+
     /**
      * Return any number of values immediately.
      *
@@ -139,10 +224,74 @@ public static MethodResult yield( @Nullable Object[] arguments, @Nonnull ILuaCal
         return new MethodResult( arguments, callback );
     }
 
+    /**
+     * Get the values this method returns (or yields with).
+     * <p>
+     * If this result was created with one of the primitive {@code of} overloads, this boxes the value into a new
+     * array. Code which handles primitives specially should check {@link #isNumber()} and {@link #isBoolean()} first.
+     *
+     * @return The values this method returns, or {@code null} if there are none.
+     */
     @Nullable
     public Object[] getResult()
     {
-        return result;
+        switch( kind )
+        {
+            case KIND_INT:
+                return new Object[] { (int) integer };
+            case KIND_LONG:
+                return new Object[] { integer };
+            case KIND_DOUBLE:
+                return new Object[] { number };
+            case KIND_BOOLEAN:
+                return new Object[] { integer != 0 };
+            default:
+                return result;
+        }
+    }
+
+    /**
+     * Whether this result is a single number, created with {@link #of(int)}, {@link #of(long)} or {@link #of(double)}.
+     *
+     * @return Whether this result is a single number.
+     * @see #getNumber()
+     */
+    public boolean isNumber()
+    {
+        return kind == KIND_INT || kind == KIND_LONG || kind == KIND_DOUBLE;
+    }
+
+    /**
+     * Get the number this result returns, without boxing it. This should only be used when {@link #isNumber()} is
+     * true.
+     *
+     * @return The number this method returns.
+     */
+    public double getNumber()
+    {
+        return kind == KIND_DOUBLE ? number : integer;
+    }
+
+    /**
+     * Whether this result is a single boolean, created with {@link #of(boolean)}.
+     *
+     * @return Whether this result is a single boolean.
+     * @see #getBoolean()
+     */
+    public boolean isBoolean()
+    {
+        return kind == KIND_BOOLEAN;
+    }
+
+    /**
+     * Get the boolean this result returns, without boxing it. This should only be used when {@link #isBoolean()} is
+     * true.
+     *
+     * @return The boolean this method returns.
+     */
+    public boolean getBoolean()
+    {
+        return integer != 0;
     }
 
     @Nullable
@@ -18,7 +18,6 @@
 import dan200.computercraft.core.filesystem.FileSystemWrapper;
 import dan200.computercraft.core.metrics.Metrics;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
@@ -419,8 +418,8 @@ public final Object[] open( String path, String mode ) throws LuaException
                 case "r":
                 {
                     // Open the file for reading, then create a wrapper around the reader
-                    FileSystemWrapper<BufferedReader> reader = fileSystem.openForRead( path, EncodedReadableHandle::openUtf8 );
-                    return new Object[] { new EncodedReadableHandle( reader.get(), reader ) };
+                    FileSystemWrapper<ReadableByteChannel> reader = fileSystem.openForRead( path, Function.identity() );
+                    return new Object[] { EncodedReadableHandle.ofUtf8( reader.get(), reader ) };
                 }
                 case "w":
                 {
@@ -437,7 +436,7 @@ public final Object[] open( String path, String mode ) throws LuaException
                 case "rb":
                 {
                     // Open the file for binary reading, then create a wrapper around the reader
-                    FileSystemWrapper<ReadableByteChannel> reader = fileSystem.openForRead( path, Function.identity() );
+                    FileSystemWrapper<ReadableByteChannel> reader = fileSystem.openForBinaryRead( path );
                     return new Object[] { BinaryReadableHandle.of( reader.get(), reader ) };
                 }
                 case "wb":
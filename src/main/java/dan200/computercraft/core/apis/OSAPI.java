@@ -5,6 +5,7 @@
  */
 package dan200.computercraft.core.apis;
 
+import com.google.common.annotations.VisibleForTesting;
 import dan200.computercraft.api.lua.IArguments;
 import dan200.computercraft.api.lua.ILuaAPI;
 import dan200.computercraft.api.lua.LuaException;
@@ -33,29 +34,37 @@ public class OSAPI implements ILuaAPI
     private final IAPIEnvironment apiEnvironment;
 
     private final Int2ObjectMap<Alarm> alarms = new Int2ObjectOpenHashMap<>();
+    private final PriorityQueue<Alarm> alarmQueue = new PriorityQueue<>();
+    private int cancelledAlarms = 0;
     private int clock;
     private double time;
     private int day;
 
     private int nextAlarmToken = 0;
 
-    private static class Alarm implements Comparable<Alarm>
+    private static final class Alarm implements Comparable<Alarm>
     {
+        final int id;
         final double time;
         final int day;
 
-        Alarm( double time, int day )
+        Alarm( int id, double time, int day )
         {
+            this.id = id;
             this.time = time;
             this.day = day;
         }
 
+        double getAbsoluteTime()
+        {
+            return day * 24.0 + time;
+        }
+
         @Override
         public int compareTo( @Nonnull Alarm o )
         {
-            double t = day * 24.0 + time;
-            double ot = day * 24.0 + time;
-            return Double.compare( t, ot );
+            int compare = Double.compare( getAbsoluteTime(), o.getAbsoluteTime() );
+            return compare != 0 ? compare : Integer.compare( id, o.id );
         }
     }
 
@@ -79,7 +88,7 @@ public void startup()
 
         synchronized( alarms )
         {
-            alarms.clear();
+            clearAlarms();
         }
     }
 
@@ -98,18 +107,21 @@ public void update()
 
             if( time > previousTime || day > previousDay )
             {
+                // Alarms are ordered by the time they fire, so we only need to look at those which are due.
                 double now = this.day * 24.0 + this.time;
-                Iterator<Int2ObjectMap.Entry<Alarm>> it = alarms.int2ObjectEntrySet().iterator();
-                while( it.hasNext() )
+                Alarm alarm;
+                while( (alarm = alarmQueue.peek()) != null && now >= alarm.getAbsoluteTime() )
                 {
-                    Int2ObjectMap.Entry<Alarm> entry = it.next();
-                    Alarm alarm = entry.getValue();
-                    double t = alarm.day * 24.0 + alarm.time;
-                    if( now >= t )
+                    alarmQueue.remove();
+                    if( alarms.get( alarm.id ) != alarm )
                     {
-                        apiEnvironment.queueEvent( "alarm", entry.getIntKey() );
-                        it.remove();
+                        // This alarm has been cancelled.
+                        cancelledAlarms--;
+                        continue;
                     }
+
+                    alarms.remove( alarm.id );
+                    apiEnvironment.queueEvent( "alarm", alarm.id );
                 }
             }
 
@@ -123,7 +135,28 @@ public void shutdown()
     {
         synchronized( alarms )
         {
-            alarms.clear();
+            clearAlarms();
+        }
+    }
+
+    private void clearAlarms()
+    {
+        alarms.clear();
+        alarmQueue.clear();
+        cancelledAlarms = 0;
+    }
+
+    /**
+     * Get the number of entries in the alarm queue, including cancelled alarms which have not yet been removed.
+     *
+     * @return The size of the alarm queue.
+     */
+    @VisibleForTesting
+    int queuedAlarms()
+    {
+        synchronized( alarms )
+        {
+            return alarmQueue.size();
         }
     }
 
@@ -223,8 +256,10 @@ public final int setAlarm( double time ) throws LuaException
         synchronized( alarms )
         {
             int day = time > this.time ? this.day : this.day + 1;
-            alarms.put( nextAlarmToken, new Alarm( time, day ) );
-            return nextAlarmToken++;
+            Alarm alarm = new Alarm( nextAlarmToken++, time, day );
+            alarms.put( alarm.id, alarm );
+            alarmQueue.add( alarm );
+            return alarm.id;
         }
     }
 
@@ -241,7 +276,14 @@ public final void cancelAlarm( int token )
     {
         synchronized( alarms )
         {
-            alarms.remove( token );
+            if( alarms.remove( token ) == null ) return;
+
+            // Remove cancelled alarms from the queue if they make up the bulk of it.
+            if( ++cancelledAlarms > alarmQueue.size() / 2 )
+            {
+                alarmQueue.removeIf( alarm -> alarms.get( alarm.id ) != alarm );
+                cancelledAlarms = 0;
+            }
         }
     }
 
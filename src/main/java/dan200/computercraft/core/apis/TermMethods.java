@@ -388,6 +388,6 @@ public static int encodeColour( int colour )
     public static void setColour( Terminal terminal, int colour, double r, double g, double b )
     {
         terminal.getPalette().setColour( colour, r, g, b );
-        terminal.setChanged();
+        terminal.setPaletteChanged();
     }
 }
@@ -7,6 +7,7 @@
 
 import dan200.computercraft.api.lua.LuaException;
 import dan200.computercraft.api.lua.LuaFunction;
+import dan200.computercraft.core.filesystem.MappedFileChannel;
 import dan200.computercraft.core.filesystem.TrackingCloseable;
 
 import java.io.ByteArrayOutputStream;
@@ -78,7 +79,13 @@ public final Object[] read( Optional<Integer> countArg ) throws LuaException
                     return seekable.position() >= seekable.size() ? null : new Object[] { "" };
                 }
 
-                if( count <= BUFFER_SIZE )
+                if( reader instanceof MappedFileChannel )
+                {
+                    // Mapped files can return a view of the file directly, rather than copying it into a new buffer.
+                    ByteBuffer buffer = ((MappedFileChannel) reader).read( count );
+                    return buffer == null ? null : new Object[] { buffer };
+                }
+                else if( count <= BUFFER_SIZE )
                 {
                     ByteBuffer buffer = ByteBuffer.allocate( count );
 
@@ -154,6 +161,12 @@ public final Object[] readAll() throws LuaException
         checkOpen();
         try
         {
+            if( reader instanceof MappedFileChannel )
+            {
+                ByteBuffer buffer = ((MappedFileChannel) reader).read( Integer.MAX_VALUE );
+                return buffer == null ? null : new Object[] { buffer };
+            }
+
             int expected = 32;
             if( seekable != null ) expected = Math.max( expected, (int) (seekable.size() - seekable.position()) );
             ByteArrayOutputStream stream = new ByteArrayOutputStream( expected );
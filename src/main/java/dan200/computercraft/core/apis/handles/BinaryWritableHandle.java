@@ -11,6 +11,7 @@
 import dan200.computercraft.api.lua.LuaValues;
 import dan200.computercraft.core.filesystem.TrackingCloseable;
 
+import java.io.Flushable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
@@ -99,6 +100,8 @@ public final void flush() throws LuaException
         checkOpen();
         try
         {
+            if( writer instanceof Flushable ) ((Flushable) writer).flush();
+
             // Technically this is not needed
             if( writer instanceof FileChannel ) ((FileChannel) writer).force( false );
         }
@@ -10,6 +10,7 @@
 import dan200.computercraft.core.filesystem.TrackingCloseable;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.channels.Channels;
@@ -30,12 +31,14 @@ public class EncodedReadableHandle extends HandleGeneric
 {
     private static final int BUFFER_SIZE = 8192;
 
-    private final BufferedReader reader;
+    private final @Nullable BufferedReader reader;
+    private final @Nullable Utf8Reader utf8;
 
     public EncodedReadableHandle( @Nonnull BufferedReader reader, @Nonnull TrackingCloseable closable )
     {
         super( closable );
         this.reader = reader;
+        utf8 = null;
     }
 
     public EncodedReadableHandle( @Nonnull BufferedReader reader )
@@ -43,6 +46,33 @@ public EncodedReadableHandle( @Nonnull BufferedReader reader )
         this( reader, new TrackingCloseable.Impl( reader ) );
     }
 
+    private EncodedReadableHandle( @Nonnull Utf8Reader utf8, @Nonnull TrackingCloseable closable )
+    {
+        super( closable );
+        reader = null;
+        this.utf8 = utf8;
+    }
+
+    /**
+     * Create a handle which reads UTF-8 text from a channel.
+     * <p>
+     * Unlike reading through {@link #openUtf8(ReadableByteChannel)}, this splits lines on the underlying bytes, and
+     * returns ASCII text without decoding it into a {@link String} first.
+     *
+     * @param channel  The channel to read from.
+     * @param closable The object to close when this handle is closed.
+     * @return The new handle.
+     */
+    public static EncodedReadableHandle ofUtf8( @Nonnull ReadableByteChannel channel, @Nonnull TrackingCloseable closable )
+    {
+        return new EncodedReadableHandle( new Utf8Reader( channel ), closable );
+    }
+
+    public static EncodedReadableHandle ofUtf8( @Nonnull ReadableByteChannel channel )
+    {
+        return ofUtf8( channel, new TrackingCloseable.Impl( channel ) );
+    }
+
     /**
      * Read a line from the file.
      *
@@ -59,6 +89,12 @@ public final Object[] readLine( Optional<Boolean> withTrailingArg ) throws LuaEx
         boolean withTrailing = withTrailingArg.orElse( false );
         try
         {
+            if( utf8 != null )
+            {
+                Object line = utf8.readLine( withTrailing );
+                return line == null ? null : new Object[] { line };
+            }
+
             String line = reader.readLine();
             if( line != null )
             {
@@ -90,6 +126,8 @@ public final Object[] readAll() throws LuaException
         checkOpen();
         try
         {
+            if( utf8 != null ) return new Object[] { utf8.readAll() };
+
             StringBuilder result = new StringBuilder();
             String line = reader.readLine();
             while( line != null )
@@ -132,6 +170,11 @@ public final Object[] read( Optional<Integer> countA ) throws LuaException
                 // it seems best to remain somewhat consistent.
                 throw new LuaException( "Cannot read a negative number of characters" );
             }
+            else if( utf8 != null )
+            {
+                Object result = utf8.read( count );
+                return result == null ? null : new Object[] { result };
+            }
             else if( count <= BUFFER_SIZE )
             {
                 // If we've got a small count, then allocate that and read it.
@@ -13,7 +13,9 @@
 
 import javax.annotation.Nonnull;
 import java.io.BufferedWriter;
+import java.io.Flushable;
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.channels.Channels;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
@@ -111,6 +113,20 @@ public static BufferedWriter open( WritableByteChannel channel, Charset charset
         CharsetEncoder encoder = charset.newEncoder()
             .onMalformedInput( CodingErrorAction.REPLACE )
             .onUnmappableCharacter( CodingErrorAction.REPLACE );
-        return new BufferedWriter( Channels.newWriter( channel, encoder, -1 ) );
+        Writer writer = Channels.newWriter( channel, encoder, -1 );
+        if( !(channel instanceof Flushable) ) return new BufferedWriter( writer );
+
+        // Channels.newWriter never flushes the channel itself, so do so ourselves. Otherwise buffered channels (such as
+        // those from FileMount) would only be written when closed.
+        Flushable flushable = (Flushable) channel;
+        return new BufferedWriter( writer )
+        {
+            @Override
+            public void flush() throws IOException
+            {
+                super.flush();
+                flushable.flush();
+            }
+        };
     }
 }
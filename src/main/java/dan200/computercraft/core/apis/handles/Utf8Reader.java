@@ -0,0 +1,366 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.apis.handles;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads UTF-8 text from a channel, for use by {@link EncodedReadableHandle}.
+ * <p>
+ * Reading through a {@link java.io.BufferedReader} decodes the file into {@code char}s, only for them to be encoded back
+ * into bytes when converted to a Lua string. Instead, we split lines on the raw bytes, and return ASCII text as-is.
+ * Other text is decoded to a {@link String}, so the results are exactly the same as reading with a
+ * {@link java.io.BufferedReader}.
+ * <p>
+ * Returned {@link ByteBuffer}s may be views of this reader's buffer, and so are only valid until the next read. This is
+ * safe for Lua methods, as their results are converted to Lua values immediately.
+ */
+final class Utf8Reader
+{
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The largest line buffer we keep around between reads.
+     */
+    private static final int MAX_RETAINED_LINE = 65536;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final ReadableByteChannel channel;
+
+    /**
+     * Bytes read from the channel. This is always in "read mode", with the unread bytes between the position and limit.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocate( BUFFER_SIZE );
+    private boolean eof;
+
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput( CodingErrorAction.REPLACE )
+        .onUnmappableCharacter( CodingErrorAction.REPLACE );
+
+    /**
+     * A buffer for text which spans several reads from the channel.
+     */
+    private byte[] text = EMPTY;
+    private int textLength;
+
+    /**
+     * Whether the last line ended with a {@code \r}, and so we should skip a following {@code \n}. This matches
+     * {@link java.io.BufferedReader}.
+     */
+    private boolean skipLF;
+
+    /**
+     * A character decoded past the end of the last call to {@link #read(int)}, such as the second half of a surrogate
+     * pair.
+     */
+    private char pending;
+    private boolean hasPending;
+
+    Utf8Reader( ReadableByteChannel channel )
+    {
+        this.channel = channel;
+        buffer.flip();
+    }
+
+    /**
+     * Read a line, as {@link java.io.BufferedReader#readLine()}.
+     *
+     * @param withTrailing Whether to include a trailing {@code \n}.
+     * @return The line, or {@code null} if at the end of the file.
+     * @throws IOException If the file could not be read.
+     */
+    @Nullable
+    Object readLine( boolean withTrailing ) throws IOException
+    {
+        skipLineFeed();
+        String prefix = takePending();
+        textLength = 0;
+
+        boolean readAnything = prefix != null;
+        while( true )
+        {
+            if( !buffer.hasRemaining() && !fill() )
+            {
+                if( !readAnything ) return null;
+                return finish( prefix, withTrailing );
+            }
+
+            readAnything = true;
+            byte[] bytes = buffer.array();
+            int start = buffer.position(), end = buffer.limit();
+
+            int newline = start;
+            boolean ascii = true;
+            for( ; newline < end; newline++ )
+            {
+                byte b = bytes[newline];
+                if( b == '\n' || b == '\r' ) break;
+                if( b < 0 ) ascii = false;
+            }
+
+            if( newline == end )
+            {
+                append( bytes, start, end - start );
+                buffer.position( end );
+                continue;
+            }
+
+            buffer.position( newline + 1 );
+            skipLF = bytes[newline] == '\r';
+
+            // The common case: the whole line is ASCII and in our buffer, so return it directly.
+            if( ascii && textLength == 0 && prefix == null && !withTrailing )
+            {
+                return ByteBuffer.wrap( bytes, start, newline - start );
+            }
+
+            append( bytes, start, newline - start );
+            return finish( prefix, withTrailing );
+        }
+    }
+
+    /**
+     * Read the rest of the file, as repeated calls to {@link #readLine(boolean)} joined with {@code \n}.
+     *
+     * @return The rest of the file. This is empty (rather than {@code null}) at the end of the file.
+     * @throws IOException If the file could not be read.
+     */
+    @Nonnull
+    Object readAll() throws IOException
+    {
+        skipLineFeed();
+        String prefix = takePending();
+
+        // We read into a separate buffer, so we don't hold on to the whole file after reading it.
+        byte[] contents = new byte[Math.max( buffer.remaining(), 32 )];
+        int length = 0;
+        do
+        {
+            int remaining = buffer.remaining();
+            if( length + remaining > contents.length )
+            {
+                contents = Arrays.copyOf( contents, Math.max( contents.length * 2, length + remaining ) );
+            }
+
+            buffer.get( contents, length, remaining );
+            length += remaining;
+        } while( fill() );
+
+        // Normalise line endings, as readLine() does, and drop a single trailing newline.
+        length = normaliseNewlines( contents, length );
+        if( length > 0 && contents[length - 1] == '\n' ) length--;
+
+        if( prefix == null && isAscii( contents, 0, length ) ) return ByteBuffer.wrap( contents, 0, length );
+
+        String result = new String( contents, 0, length, StandardCharsets.UTF_8 );
+        return prefix == null ? result : prefix + result;
+    }
+
+    /**
+     * Read a number of characters, as {@link java.io.Reader#read(char[])}.
+     *
+     * @param count The number of characters to read.
+     * @return The characters read, or {@code null} if at the end of the file.
+     * @throws IOException If the file could not be read.
+     */
+    @Nullable
+    Object read( int count ) throws IOException
+    {
+        skipLineFeed();
+        if( count == 0 ) return EMPTY;
+
+        String prefix = takePending();
+        textLength = 0;
+
+        int remaining = prefix == null ? count : count - 1;
+        while( remaining > 0 )
+        {
+            if( !buffer.hasRemaining() && !fill() ) break;
+
+            byte[] bytes = buffer.array();
+            int start = buffer.position(), end = Math.min( buffer.limit(), start + remaining );
+            int position = start;
+            while( position < end && bytes[position] >= 0 ) position++;
+
+            // The common case: all characters are ASCII and in our buffer, so return them directly.
+            if( position - start == count )
+            {
+                buffer.position( position );
+                return ByteBuffer.wrap( bytes, start, count );
+            }
+
+            append( bytes, start, position - start );
+            buffer.position( position );
+            remaining -= position - start;
+
+            if( position < end ) return decode( prefix, remaining );
+        }
+
+        if( prefix == null && textLength == 0 ) return null;
+        return finish( prefix, false );
+    }
+
+    /**
+     * Decode the remaining characters of a {@link #read(int)} call which contains non-ASCII text.
+     *
+     * @param prefix    Any characters before the ASCII text in {@link #text}.
+     * @param remaining The number of characters to read.
+     * @return The read text.
+     * @throws IOException If the file could not be read.
+     */
+    private String decode( @Nullable String prefix, int remaining ) throws IOException
+    {
+        // Allow an extra character, in case the last one is a surrogate pair.
+        CharBuffer chars = CharBuffer.allocate( remaining + 1 );
+        while( chars.position() < remaining )
+        {
+            decoder.decode( buffer, chars, eof );
+            if( chars.position() >= remaining || eof ) break;
+            fill();
+        }
+        decoder.reset();
+
+        if( chars.position() > remaining )
+        {
+            chars.position( remaining );
+            pending = chars.get();
+            hasPending = true;
+            chars.position( remaining );
+        }
+        chars.flip();
+
+        StringBuilder result = new StringBuilder( textLength + chars.remaining() + 1 );
+        if( prefix != null ) result.append( prefix );
+        for( int i = 0; i < textLength; i++ ) result.append( (char) text[i] );
+        result.append( chars );
+        return result.toString();
+    }
+
+    /**
+     * Convert the text in {@link #text} into a value to return.
+     *
+     * @param prefix       Any characters before this text.
+     * @param withTrailing Whether to add a trailing newline.
+     * @return The text to return.
+     */
+    private Object finish( @Nullable String prefix, boolean withTrailing )
+    {
+        Object result;
+        if( prefix == null && isAscii( text, 0, textLength ) )
+        {
+            byte[] bytes = Arrays.copyOf( text, withTrailing ? textLength + 1 : textLength );
+            if( withTrailing ) bytes[textLength] = '\n';
+            result = bytes;
+        }
+        else
+        {
+            String string = new String( text, 0, textLength, StandardCharsets.UTF_8 );
+            if( prefix != null ) string = prefix + string;
+            result = withTrailing ? string + "\n" : string;
+        }
+
+        if( text.length > MAX_RETAINED_LINE ) text = EMPTY;
+        return result;
+    }
+
+    private boolean fill() throws IOException
+    {
+        if( eof ) return false;
+
+        buffer.compact();
+        int read;
+        try
+        {
+            read = channel.read( buffer );
+        }
+        finally
+        {
+            buffer.flip();
+        }
+
+        if( read < 0 )
+        {
+            eof = true;
+            return false;
+        }
+
+        return true;
+    }
+
+    private void skipLineFeed() throws IOException
+    {
+        if( !skipLF ) return;
+        skipLF = false;
+
+        if( !buffer.hasRemaining() && !fill() ) return;
+        if( buffer.get( buffer.position() ) == '\n' ) buffer.position( buffer.position() + 1 );
+    }
+
+    @Nullable
+    private String takePending()
+    {
+        if( !hasPending ) return null;
+        hasPending = false;
+        return String.valueOf( pending );
+    }
+
+    private void append( byte[] bytes, int offset, int length )
+    {
+        if( textLength + length > text.length )
+        {
+            text = Arrays.copyOf( text, Math.max( Math.max( text.length * 2, 64 ), textLength + length ) );
+        }
+
+        System.arraycopy( bytes, offset, text, textLength, length );
+        textLength += length;
+    }
+
+    private static boolean isAscii( byte[] bytes, int offset, int length )
+    {
+        for( int i = offset; i < offset + length; i++ )
+        {
+            if( bytes[i] < 0 ) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Replace {@code \r\n} and {@code \r} with {@code \n}. A {@code \r} or {@code \n} byte never appears within a
+     * multi-byte UTF-8 sequence, so this is safe to do before decoding.
+     *
+     * @param bytes  The bytes to normalise.
+     * @param length The number of bytes.
+     * @return The new number of bytes.
+     */
+    private static int normaliseNewlines( byte[] bytes, int length )
+    {
+        int out = 0;
+        for( int i = 0; i < length; i++ )
+        {
+            byte b = bytes[i];
+            if( b == '\r' )
+            {
+                bytes[out++] = '\n';
+                if( i + 1 < length && bytes[i + 1] == '\n' ) i++;
+            }
+            else
+            {
+                bytes[out++] = b;
+            }
+        }
+        return out;
+    }
+}
@@ -208,6 +208,8 @@ private void sendResponse()
         ArrayByteChannel contents = new ArrayByteChannel( bytes );
         HandleGeneric reader = request.isBinary()
             ? BinaryReadableHandle.of( contents )
+            : responseCharset.equals( StandardCharsets.UTF_8 )
+            ? EncodedReadableHandle.ofUtf8( contents )
             : new EncodedReadableHandle( EncodedReadableHandle.open( contents, responseCharset ) );
         HttpResponseHandle stream = new HttpResponseHandle( reader, status.code(), status.reasonPhrase(), headers );
 
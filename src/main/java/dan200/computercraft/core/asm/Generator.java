@@ -90,6 +90,16 @@ public List<NamedMethod<T>> getMethods( @Nonnull Class<?> klass )
         }
     }
 
+    /**
+     * Generate wrappers for all {@link GenericMethod}s ahead of time.
+     *
+     * @see MethodWarmup
+     */
+    void warmGenericMethods()
+    {
+        for( GenericMethod method : GenericMethod.all() ) methodCache.getUnchecked( method.method );
+    }
+
     @Nonnull
     private List<NamedMethod<T>> build( Class<?> klass )
     {
@@ -265,6 +275,24 @@ private byte[] generate( String className, Class<?> target, Method method, boole
                 {
                     mw.visitMethodInsn( INVOKESTATIC, INTERNAL_METHOD_RESULT, "of", "()" + DESC_METHOD_RESULT, false );
                 }
+                else if( ret == boolean.class )
+                {
+                    mw.visitMethodInsn( INVOKESTATIC, INTERNAL_METHOD_RESULT, "of", "(Z)" + DESC_METHOD_RESULT, false );
+                }
+                else if( ret == int.class || ret == short.class || ret == byte.class )
+                {
+                    // Numbers are returned without boxing, so they can be converted directly to a Lua value.
+                    mw.visitMethodInsn( INVOKESTATIC, INTERNAL_METHOD_RESULT, "of", "(I)" + DESC_METHOD_RESULT, false );
+                }
+                else if( ret == long.class )
+                {
+                    mw.visitMethodInsn( INVOKESTATIC, INTERNAL_METHOD_RESULT, "of", "(J)" + DESC_METHOD_RESULT, false );
+                }
+                else if( ret == float.class || ret == double.class )
+                {
+                    if( ret == float.class ) mw.visitInsn( F2D );
+                    mw.visitMethodInsn( INVOKESTATIC, INTERNAL_METHOD_RESULT, "of", "(D)" + DESC_METHOD_RESULT, false );
+                }
                 else if( ret.isPrimitive() )
                 {
                     Class<?> boxed = Primitives.wrap( ret );
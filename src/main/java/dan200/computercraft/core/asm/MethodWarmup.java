@@ -0,0 +1,125 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.asm;
+
+import com.google.common.annotations.VisibleForTesting;
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.core.apis.*;
+import dan200.computercraft.core.apis.handles.BinaryReadableHandle;
+import dan200.computercraft.core.apis.handles.BinaryWritableHandle;
+import dan200.computercraft.core.apis.handles.EncodedReadableHandle;
+import dan200.computercraft.core.apis.handles.EncodedWritableHandle;
+import dan200.computercraft.core.apis.http.request.HttpResponseHandle;
+import dan200.computercraft.core.apis.http.websocket.WebsocketHandle;
+import dan200.computercraft.shared.util.ThreadUtils;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A registry of classes whose methods should be generated ahead of time.
+ * <p>
+ * {@link Generator} creates a wrapper class for each {@link dan200.computercraft.api.lua.LuaFunction} the first time
+ * a class's methods are requested. When a server starts, this means the first computer to use each API or peripheral
+ * pays the cost of generating its methods. Instead, we generate methods for the mod's own classes on a background
+ * thread once the server has started and computers have finished booting (so we do not compete with them for CPU time).
+ * {@link Generator} caches these wrappers, so later calls to {@link Generator#getMethods(Class)} just use the existing
+ * ones.
+ * <p>
+ * This does not reduce the number of classes generated: each method is still its own class in metaspace. It does mean
+ * we generate wrappers for APIs and peripherals which may never be used (a few hundred small classes). Servers which
+ * would rather not pay this can disable {@link ComputerCraft#warmupMethods}.
+ * <p>
+ * Classes which are not registered here (such as those from other mods) are generated when first used, as before.
+ */
+public final class MethodWarmup
+{
+    private static final Set<Class<?>> luaClasses = ConcurrentHashMap.newKeySet();
+    private static final Set<Class<?>> peripheralClasses = ConcurrentHashMap.newKeySet();
+
+    private static final AtomicBoolean started = new AtomicBoolean( false );
+
+    static
+    {
+        addLuaClasses(
+            TermAPI.class, RedstoneAPI.class, FSAPI.class, PeripheralAPI.class, OSAPI.class, HTTPAPI.class,
+            BinaryReadableHandle.class, BinaryReadableHandle.Seekable.class,
+            BinaryWritableHandle.class, BinaryWritableHandle.Seekable.class,
+            EncodedReadableHandle.class, EncodedWritableHandle.class,
+            HttpResponseHandle.class, WebsocketHandle.class
+        );
+    }
+
+    private MethodWarmup()
+    {
+    }
+
+    /**
+     * Register classes whose methods are exposed with {@link LuaMethod}s (namely APIs and Lua objects).
+     *
+     * @param classes The classes to register.
+     */
+    public static void addLuaClasses( @Nonnull Class<?>... classes )
+    {
+        luaClasses.addAll( Arrays.asList( classes ) );
+    }
+
+    /**
+     * Register peripheral classes, whose methods are exposed with {@link PeripheralMethod}s.
+     *
+     * @param classes The classes to register.
+     */
+    public static void addPeripheralClasses( @Nonnull Class<?>... classes )
+    {
+        peripheralClasses.addAll( Arrays.asList( classes ) );
+    }
+
+    /**
+     * Generate methods for all registered classes on a background thread. This does nothing if methods have already
+     * been generated.
+     * <p>
+     * This also generates methods for all registered {@link dan200.computercraft.api.lua.GenericSource}s, and so
+     * should only be called once all sources have been registered.
+     */
+    public static void start()
+    {
+        if( !ComputerCraft.warmupMethods || !started.compareAndSet( false, true ) ) return;
+
+        Thread thread = ThreadUtils.factory( "Method-Warmup" ).newThread( MethodWarmup::run );
+        thread.setPriority( Thread.MIN_PRIORITY );
+        thread.start();
+    }
+
+    @VisibleForTesting
+    public static Set<Class<?>> getLuaClasses()
+    {
+        return Collections.unmodifiableSet( luaClasses );
+    }
+
+    @VisibleForTesting
+    public static Set<Class<?>> getPeripheralClasses()
+    {
+        return Collections.unmodifiableSet( peripheralClasses );
+    }
+
+    static void run()
+    {
+        long start = System.nanoTime();
+
+        for( Class<?> klass : luaClasses ) LuaMethod.GENERATOR.getMethods( klass );
+        for( Class<?> klass : peripheralClasses ) PeripheralMethod.GENERATOR.getMethods( klass );
+        PeripheralMethod.GENERATOR.warmGenericMethods();
+
+        ComputerCraft.log.debug(
+            "Generated methods for {} classes in {}ms.",
+            luaClasses.size() + peripheralClasses.size(), (System.nanoTime() - start) / 1_000_000
+        );
+    }
+}
@@ -26,10 +26,8 @@
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.InputStream;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -45,10 +43,11 @@
  * {@link #command} which determines which state the computer should transition too. This is set by
  * {@link #queueStart()} and {@link #queueStop(boolean, boolean)}.
  * <p>
- * When a computer is on, we simply push any events onto to the {@link #eventQueue}.
+ * When a computer is on, we simply push any events onto to the {@link #eventQueue}. Some frequent events may be merged
+ * with ones already in the queue, see {@link EventQueue}.
  * <p>
  * Both queues are run from the {@link #work()} method, which tries to execute a command if one exists, or resumes the
- * machine with an event otherwise.
+ * machine with an event otherwise. If events complete quickly, several may be run in one call to {@link #work()}.
  * <p>
  * One final responsibility for the executor is calling {@link ILuaAPI#update()} every tick, via the {@link #tick()}
  * method. This should only be called when the computer is actually on ({@link #isOn}).
@@ -118,6 +117,13 @@
      */
     long vRuntimeStart;
 
+    /**
+     * When this computer was last added to the {@link ComputerThread}'s queue.
+     *
+     * @see ComputerThread
+     */
+    long queuedAt;
+
     /**
      * The command that {@link #work()} should execute on the computer thread.
      * <p>
@@ -134,7 +140,7 @@
      * <p>
      * Note, this should be empty if this computer is off - it is cleared on shutdown and when turning on again.
      */
-    private final Queue<Event> eventQueue = new ArrayDeque<>( 4 );
+    private final EventQueue eventQueue = new EventQueue( QUEUE_LIMIT );
 
     /**
      * Whether we interrupted an event and so should resume it instead of executing another task.
@@ -297,15 +303,28 @@ void queueEvent( @Nonnull String event, @Nullable Object[] args )
         // Events should be skipped if we're not on.
         if( !isOn ) return;
 
+        EventQueue.Result result;
         synchronized( queueLock )
         {
             // And if we've got some command in the pipeline, then don't queue events - they'll
             // probably be disposed of anyway.
+            if( closed || command != null ) return;
+
             // We also limit the number of events which can be queued.
-            if( closed || command != null || eventQueue.size() >= QUEUE_LIMIT ) return;
+            result = eventQueue.offer( event, args );
+            if( result == EventQueue.Result.QUEUED ) enqueue();
+        }
 
-            eventQueue.offer( new Event( event, args ) );
-            enqueue();
+        switch( result )
+        {
+            case COALESCED:
+                metrics.observe( Metrics.EVENTS_COALESCED );
+                break;
+            case DROPPED:
+                metrics.observe( Metrics.EVENTS_DROPPED );
+                break;
+            default:
+                break;
         }
     }
 
@@ -404,7 +423,7 @@ private ILuaMachine createLuaMachine()
 
         // Create the lua machine
         ILuaMachine machine = luaFactory.create( new MachineEnvironment(
-            new LuaContext( computer ), metrics, timeout, computer.getGlobalEnvironment().getHostString()
+            new LuaContext( computer ), metrics, timeout, computer.getGlobalEnvironment().getHostString(), getRomMount()
         ) );
 
         // Add the APIs. We unwrap them (yes, this is horrible) to get access to the underlying object.
@@ -565,7 +584,7 @@ void work() throws InterruptedException
         }
 
         StateCommand command;
-        Event event = null;
+        EventQueue.Event event = null;
         synchronized( queueLock )
         {
             command = this.command;
@@ -626,6 +645,35 @@ void work() throws InterruptedException
         else if( event != null )
         {
             resumeMachine( event.name, event.args );
+
+            // Run any other queued events while we still have time left in this slice. This avoids returning to the
+            // scheduler for every event, which is expensive when a computer receives many small events.
+            int events = 1;
+            while( (event = pollAdditionalEvent()) != null )
+            {
+                timeout.restartCumulative();
+                resumeMachine( event.name, event.args );
+                events++;
+            }
+
+            metrics.observe( Metrics.EVENTS_PER_SLICE, events );
+        }
+    }
+
+    /**
+     * Get another event to run within the current call to {@link #work()}.
+     *
+     * @return The next event, or {@code null} if we should return to the {@link ComputerThread}. This happens when our
+     * time slice has been used up, the last event was interrupted, or there is a command waiting to be run.
+     */
+    @Nullable
+    private EventQueue.Event pollAdditionalEvent()
+    {
+        if( interruptedEvent || !isOn || machine == null || !timeout.hasTimeRemaining() ) return null;
+
+        synchronized( queueLock )
+        {
+            return closed || command != null ? null : eventQueue.poll();
         }
     }
 
@@ -679,16 +727,4 @@ private void resumeMachine( String event, Object[] args ) throws InterruptedExce
         ABORT,
         ERROR,
     }
-
-    private static final class Event
-    {
-        final String name;
-        final Object[] args;
-
-        private Event( String name, Object[] args )
-        {
-            this.name = name;
-            this.args = args;
-        }
-    }
 }
@@ -9,12 +9,16 @@
 import com.google.errorprone.annotations.concurrent.GuardedBy;
 import dan200.computercraft.ComputerCraft;
 import dan200.computercraft.core.ComputerContext;
+import dan200.computercraft.core.metrics.Metrics;
+import dan200.computercraft.core.metrics.MetricsObserver;
 import dan200.computercraft.shared.util.ThreadUtils;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Comparator;
 import java.util.Objects;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -47,6 +51,17 @@
  * <p>
  * In reality, it's unlikely that more than a few computers are waiting to execute at once, so this will not have much
  * effect unless you have a computer hogging execution time. However, it is pretty effective in those situations.
+ * <p>
+ * By default, all workers share a single queue guarded by {@link #computerLock}. When a large number of computers are
+ * being scheduled across many threads, this lock can become heavily contended. In this case, one may use a "sharded"
+ * scheduler, which gives each {@link Worker} its own {@link RunQueue}. Computers are queued on a worker's run queue,
+ * and workers pick the computer with the smallest virtual runtime across all queues (preferring their own), stealing
+ * work from other queues when their own is empty. Idle workers are tracked in {@link #idleWorkerQueue}, so neither
+ * queueing nor polling a computer needs to acquire a global lock.
+ * <p>
+ * The number of workers may also be adjusted at runtime (see {@link Monitor#adapt()}). Workers are added when computers
+ * are left waiting in the queue for longer than our target latency, and removed when some workers have been idle for
+ * several seconds. This is only supported when using the shared queue.
  *
  * @see TimeoutState For how hard timeouts are handled.
  * @see ComputerExecutor For how computers actually do execution.
@@ -91,6 +106,29 @@
      */
     private static final long REPORT_DEBOUNCE = TimeUnit.SECONDS.toNanos( 1 );
 
+    /**
+     * How often we should consider adding or removing workers.
+     *
+     * @see Monitor#adapt()
+     */
+    private static final long ADAPT_PERIOD = TimeUnit.SECONDS.toNanos( 1 );
+
+    /**
+     * The number of consecutive {@link #ADAPT_PERIOD}s where a worker was idle before we remove one.
+     */
+    private static final int SHRINK_PERIODS = 10;
+
+    /**
+     * The order in which computers are executed: those with the smallest {@link ComputerExecutor#virtualRuntime} first.
+     */
+    private static final Comparator<ComputerExecutor> EXECUTOR_ORDER = ( a, b ) -> {
+        if( a == b ) return 0; // Should never happen, but let's be consistent here
+
+        long at = a.virtualRuntime, bt = b.virtualRuntime;
+        if( at == bt ) return Integer.compare( a.hashCode(), b.hashCode() );
+        return at < bt ? -1 : 1;
+    };
+
     /**
      * Lock used for modifications to the array of current threads.
      */
@@ -111,11 +149,30 @@
     private @Nullable Thread monitor;
 
     /**
-     * The array of current workers, and their owning threads.
+     * The array of current workers, and their owning threads. This is sized to the maximum number of workers.
      */
     @GuardedBy( "threadLock" )
     private final Worker[] workers;
 
+    /**
+     * The minimum number of workers we will shrink to. If this is equal to {@code workers.length}, then the number
+     * of workers is fixed.
+     */
+    private final int minWorkers;
+
+    /**
+     * The number of workers we currently want to be running, between {@link #minWorkers} and {@code workers.length}.
+     * Writes are guarded by {@link #threadLock}.
+     */
+    private volatile int workerLimit;
+
+    /**
+     * The number of idle workers which should shut down, after {@link #workerLimit} has been reduced.
+     *
+     * @see Worker#tryRetire()
+     */
+    private final AtomicInteger retiringWorkers = new AtomicInteger( 0 );
+
     /**
      * The number of workers in {@link #workers}.
      */
@@ -124,8 +181,17 @@
 
     private final Condition shutdown = threadLock.newCondition();
 
-    private final long latency;
-    private final long minPeriod;
+    private volatile long latency;
+    private volatile long minPeriod;
+
+    private final MetricsObserver metrics;
+
+    /**
+     * The total time computers spent waiting in {@link #computerQueue} before being run, and the number of computers
+     * which were run. These are reset by the {@link Monitor} every {@link #ADAPT_PERIOD}.
+     */
+    @GuardedBy( "computerLock" )
+    private long queueWaitTotal, queueWaitCount;
 
     private final ReentrantLock computerLock = new ReentrantLock();
     private final Condition workerWakeup = computerLock.newCondition();
@@ -136,30 +202,108 @@
     /**
      * Active queues to execute.
      */
-    private final TreeSet<ComputerExecutor> computerQueue = new TreeSet<>( ( a, b ) -> {
-        if( a == b ) return 0; // Should never happen, but let's be consistent here
+    private final TreeSet<ComputerExecutor> computerQueue = new TreeSet<>( EXECUTOR_ORDER );
 
-        long at = a.virtualRuntime, bt = b.virtualRuntime;
-        if( at == bt ) return Integer.compare( a.hashCode(), b.hashCode() );
-        return at < bt ? -1 : 1;
-    } );
+    /**
+     * The per-worker queues used by the sharded scheduler, or {@code null} if all workers share the
+     * {@link #computerQueue}.
+     */
+    private final @Nullable RunQueue[] runQueues;
+
+    /**
+     * The total number of computers in {@link #runQueues}.
+     */
+    private final AtomicInteger runQueueSize = new AtomicInteger( 0 );
+
+    /**
+     * Workers in the sharded scheduler which are waiting for work.
+     *
+     * @see Worker#idle
+     */
+    private final ConcurrentLinkedQueue<Worker> idleWorkerQueue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Used to distribute newly queued computers across the {@link #runQueues}.
+     */
+    private final AtomicInteger nextRunQueue = new AtomicInteger( 0 );
 
     /**
      * The minimum {@link ComputerExecutor#virtualRuntime} time on the tree.
      */
-    private long minimumVirtualRuntime = 0;
+    private final AtomicLong minimumVirtualRuntime = new AtomicLong( 0 );
 
     public ComputerThread( int threadCount )
     {
-        workers = new Worker[threadCount];
+        this( threadCount, false );
+    }
+
+    /**
+     * Create a new computer thread.
+     *
+     * @param threadCount The number of worker threads to run computers on.
+     * @param sharded     Whether each worker should have its own run queue, rather than sharing a single queue.
+     */
+    public ComputerThread( int threadCount, boolean sharded )
+    {
+        this( threadCount, threadCount, sharded, MetricsObserver.NONE );
+    }
+
+    /**
+     * Create a new computer thread, whose number of workers may change at runtime.
+     *
+     * @param minThreads The minimum number of worker threads to run computers on.
+     * @param maxThreads The maximum number of worker threads to run computers on.
+     * @param sharded    Whether each worker should have its own run queue, rather than sharing a single queue. The
+     *                   sharded scheduler does not support changing the number of workers, and so always uses
+     *                   {@code maxThreads}.
+     * @param metrics    The observer to report changes in the number of workers to.
+     */
+    public ComputerThread( int minThreads, int maxThreads, boolean sharded, MetricsObserver metrics )
+    {
+        if( minThreads < 1 || minThreads > maxThreads ) throw new IllegalArgumentException( "Invalid thread count" );
+
+        workers = new Worker[maxThreads];
+        minWorkers = sharded ? maxThreads : minThreads;
+        this.metrics = metrics;
+        if( sharded )
+        {
+            runQueues = new RunQueue[maxThreads];
+            for( int i = 0; i < maxThreads; i++ ) runQueues[i] = new RunQueue();
+        }
+        else
+        {
+            runQueues = null;
+        }
+
+        setWorkerLimit( minWorkers );
+    }
+
+    /**
+     * Set the number of workers we want to be running, and update the period computers may run for.
+     *
+     * @param limit The new number of workers.
+     */
+    private void setWorkerLimit( int limit )
+    {
+        workerLimit = limit;
 
         // latency and minPeriod are scaled by 1 + floor(log2(threads)). We can afford to execute tasks for
         // longer when executing on more than one thread.
-        int factor = 64 - Long.numberOfLeadingZeros( workers.length );
+        int factor = 64 - Long.numberOfLeadingZeros( limit );
         latency = DEFAULT_LATENCY * factor;
         minPeriod = DEFAULT_MIN_PERIOD * factor;
     }
 
+    /**
+     * Get the number of workers which we want to be running. This is fixed unless the number of workers is adaptive.
+     *
+     * @return The target number of workers.
+     */
+    public int getWorkerLimit()
+    {
+        return workerLimit;
+    }
+
     @GuardedBy( "threadLock" )
     private void addWorker( int index )
     {
@@ -170,13 +314,15 @@ private void addWorker( int index )
 
     /**
      * Ensure sufficient workers are running.
+     * <p>
+     * This should be called while holding the {@link #computerLock} when using the shared queue. The sharded scheduler
+     * calls this without any lock, and so may occasionally take the {@link #threadLock} when it didn't need to.
      */
-    @GuardedBy( "computerLock" )
     private void ensureRunning()
     {
         // Don't even enter the lock if we've a monitor and don't need to/can't spawn an additional worker.
         // We'll be holding the computer lock at this point, so there's no problems with idleWorkers being wrong.
-        if( monitor != null && (idleWorkers.get() > 0 || workerCount == workers.length) ) return;
+        if( monitor != null && (idleWorkers.get() > 0 || workerCount >= workerLimit) ) return;
 
         threadLock.lock();
         try
@@ -184,17 +330,7 @@ private void ensureRunning()
             ComputerCraft.log.trace( "Possibly spawning a worker or monitor." );
 
             if( monitor == null || !monitor.isAlive() ) (monitor = monitorFactory.newThread( new Monitor() )).start();
-            if( idleWorkers.get() == 0 || workerCount < workers.length )
-            {
-                for( int i = 0; i < workers.length; i++ )
-                {
-                    if( workers[i] == null )
-                    {
-                        addWorker( i );
-                        break;
-                    }
-                }
-            }
+            if( idleWorkers.get() == 0 || workerCount < workerLimit ) addWorker();
         }
         finally
         {
@@ -202,6 +338,24 @@ private void ensureRunning()
         }
     }
 
+    /**
+     * Spawn a new worker in the first free slot, if we are below our {@link #workerLimit}.
+     */
+    @GuardedBy( "threadLock" )
+    private void addWorker()
+    {
+        if( workerCount >= workerLimit ) return;
+
+        for( int i = 0; i < workers.length; i++ )
+        {
+            if( workers[i] == null )
+            {
+                addWorker( i );
+                break;
+            }
+        }
+    }
+
     private void advanceState( int newState )
     {
         while( true )
@@ -251,6 +405,22 @@ public boolean stop( long timeout, TimeUnit unit ) throws InterruptedException
             computerLock.unlock();
         }
 
+        if( runQueues != null )
+        {
+            threadLock.lock();
+            try
+            {
+                for( @Nullable Worker worker : workers )
+                {
+                    if( worker != null ) LockSupport.unpark( worker.owner );
+                }
+            }
+            finally
+            {
+                threadLock.unlock();
+            }
+        }
+
         // Wait for all workers to signal they have finished.
         long timeoutNs = unit.toNanos( timeout );
         threadLock.lock();
@@ -293,6 +463,12 @@ public boolean stop( long timeout, TimeUnit unit ) throws InterruptedException
      */
     void queue( ComputerExecutor executor )
     {
+        if( runQueues != null )
+        {
+            queueSharded( executor );
+            return;
+        }
+
         computerLock.lock();
         try
         {
@@ -305,26 +481,11 @@ void queue( ComputerExecutor executor )
             executor.onComputerQueue = true;
 
             updateRuntimes( null );
-
-            // We're not currently on the queue, so update its current execution time to
-            // ensure its at least as high as the minimum.
-            long newRuntime = minimumVirtualRuntime;
-
-            if( executor.virtualRuntime == 0 )
-            {
-                // Slow down new computers a little bit.
-                newRuntime += scaledPeriod();
-            }
-            else
-            {
-                // Give a small boost to computers which have slept a little.
-                newRuntime -= latency / 2;
-            }
-
-            executor.virtualRuntime = Math.max( newRuntime, executor.virtualRuntime );
+            resetRuntime( executor );
 
             boolean wasBusy = isBusy();
             // Add to the queue, and signal the workers.
+            executor.queuedAt = System.nanoTime();
             computerQueue.add( executor );
             workerWakeup.signal();
 
@@ -338,6 +499,89 @@ void queue( ComputerExecutor executor )
         }
     }
 
+    /**
+     * The sharded equivalent of {@link #queue(ComputerExecutor)}. This adds the computer to one of the
+     * {@link #runQueues} and wakes an idle worker, without acquiring a global lock.
+     *
+     * @param executor The computer to execute work on.
+     */
+    private void queueSharded( ComputerExecutor executor )
+    {
+        if( state.get() != RUNNING ) throw new IllegalStateException( "ComputerThread is no longer running" );
+
+        ensureRunning();
+
+        if( executor.onComputerQueue ) throw new IllegalStateException( "Cannot queue already queued executor" );
+        executor.onComputerQueue = true;
+
+        updateRuntimesSharded( null );
+        resetRuntime( executor );
+
+        boolean wasBusy = isBusy();
+
+        RunQueue[] runQueues = Objects.requireNonNull( this.runQueues );
+        runQueues[Math.floorMod( nextRunQueue.getAndIncrement(), runQueues.length )].add( executor );
+        wakeIdleWorker();
+
+        if( !wasBusy && isBusy() ) wakeMonitor();
+    }
+
+    /**
+     * Update a computer's virtual runtime when it is added to the queue, ensuring it is at least as high as the
+     * minimum.
+     *
+     * @param executor The computer which has just been queued.
+     */
+    private void resetRuntime( ComputerExecutor executor )
+    {
+        // We're not currently on the queue, so update its current execution time to
+        // ensure its at least as high as the minimum.
+        long newRuntime = minimumVirtualRuntime.get();
+
+        if( executor.virtualRuntime == 0 )
+        {
+            // Slow down new computers a little bit.
+            newRuntime += scaledPeriod();
+        }
+        else
+        {
+            // Give a small boost to computers which have slept a little.
+            newRuntime -= latency / 2;
+        }
+
+        executor.virtualRuntime = Math.max( newRuntime, executor.virtualRuntime );
+    }
+
+    /**
+     * Wake a worker waiting on {@link #idleWorkerQueue}, if there is one.
+     */
+    private void wakeIdleWorker()
+    {
+        Worker worker;
+        while( (worker = idleWorkerQueue.poll()) != null )
+        {
+            // The worker may have already stopped waiting, in which case we try the next one.
+            if( worker.idle.compareAndSet( true, false ) )
+            {
+                idleWorkers.getAndDecrement();
+                LockSupport.unpark( worker.owner );
+                return;
+            }
+        }
+    }
+
+    private void wakeMonitor()
+    {
+        computerLock.lock();
+        try
+        {
+            monitorWakeup.signal();
+        }
+        finally
+        {
+            computerLock.unlock();
+        }
+    }
 
     /**
      * Update the {@link ComputerExecutor#virtualRuntime}s of all running tasks, and then update the
@@ -375,12 +619,46 @@ private void updateRuntimes( @Nullable ComputerExecutor current )
             minRuntime = Math.min( minRuntime, current.virtualRuntime += (now - current.vRuntimeStart) / tasks );
         }
 
-        if( minRuntime > minimumVirtualRuntime && minRuntime < Long.MAX_VALUE )
+        if( minRuntime > minimumVirtualRuntime.get() && minRuntime < Long.MAX_VALUE )
         {
-            minimumVirtualRuntime = minRuntime;
+            minimumVirtualRuntime.set( minRuntime );
         }
     }
 
+    /**
+     * The sharded equivalent of {@link #updateRuntimes(ComputerExecutor)}.
+     * <p>
+     * As we do not hold a global lock, we cannot safely update the virtual runtime of computers running on other
+     * workers. Instead, we estimate their current runtime and only update that of the computer we have just executed.
+     *
+     * @param current The machine which we updating runtimes from.
+     */
+    private void updateRuntimesSharded( @Nullable ComputerExecutor current )
+    {
+        long minRuntime = Long.MAX_VALUE;
+
+        // Use the smallest runtime of any queued task as our base time.
+        for( RunQueue queue : Objects.requireNonNull( runQueues ) ) minRuntime = Math.min( minRuntime, queue.headRuntime );
+
+        long now = System.nanoTime();
+        int tasks = 1 + runQueueSize.get();
+        for( @Nullable Worker runner : workers )
+        {
+            if( runner == null ) continue;
+            ComputerExecutor executor = runner.currentExecutor.get();
+            if( executor == null ) continue;
+
+            minRuntime = Math.min( minRuntime, executor.virtualRuntime + (now - executor.vRuntimeStart) / tasks );
+        }
+
+        if( current != null )
+        {
+            minRuntime = Math.min( minRuntime, current.virtualRuntime += (now - current.vRuntimeStart) / tasks );
+        }
+
+        if( minRuntime < Long.MAX_VALUE ) minimumVirtualRuntime.accumulateAndGet( minRuntime, Math::max );
+    }
+
     /**
      * Ensure the "currently working" state of the executor is reset, the timings are updated, and then requeue the
      * executor if needed.
@@ -403,6 +681,17 @@ private void afterWork( Worker runner, ComputerExecutor executor )
             );
         }
 
+        if( runQueues != null )
+        {
+            updateRuntimesSharded( executor );
+            if( !executor.afterWork() || state.get() != RUNNING ) return;
+
+            // Requeue on this worker's queue. Any idle workers are free to steal it if we're busy.
+            runQueues[runner.index].add( executor );
+            wakeIdleWorker();
+            return;
+        }
+
         computerLock.lock();
         try
         {
@@ -412,6 +701,7 @@ private void afterWork( Worker runner, ComputerExecutor executor )
             if( !executor.afterWork() || state.get() != RUNNING ) return;
 
             // Otherwise, add to the queue, and signal any waiting workers.
+            executor.queuedAt = System.nanoTime();
             computerQueue.add( executor );
             workerWakeup.signal();
         }
@@ -435,10 +725,20 @@ long scaledPeriod()
         //  "criticial" behaviour, so not clear if it matters too much.
 
         // +1 to include the current task
-        int count = 1 + computerQueue.size();
+        int count = 1 + queueSize();
         return count < LATENCY_MAX_TASKS ? latency / count : minPeriod;
     }
 
+    /**
+     * The number of computers waiting to be executed.
+     *
+     * @return The size of the computer queue.
+     */
+    private int queueSize()
+    {
+        return runQueues == null ? computerQueue.size() : runQueueSize.get();
+    }
+
     /**
      * Determine if the thread has computers queued up.
      *
@@ -448,7 +748,7 @@ long scaledPeriod()
     public boolean hasPendingWork()
     {
         // FIXME: See comment in scaledPeriod. Again, we access this in multiple threads but not clear if it matters!
-        return !computerQueue.isEmpty();
+        return queueSize() > 0;
     }
 
     /**
@@ -457,10 +757,9 @@ public boolean hasPendingWork()
      *
      * @return If the computer threads are busy.
      */
-    @GuardedBy( "computerLock" )
     private boolean isBusy()
     {
-        return computerQueue.size() > idleWorkers.get();
+        return queueSize() > idleWorkers.get();
     }
 
     private void workerFinished( Worker worker )
@@ -483,7 +782,7 @@ private void workerFinished( Worker worker )
             {
                 ComputerCraft.log.error( "Worker {} closed, but new runner has been spawned.", worker.index );
             }
-            else if( state.get() == RUNNING || (state.get() == STOPPING && hasPendingWork()) )
+            else if( !worker.retired && (state.get() == RUNNING || (state.get() == STOPPING && hasPendingWork())) )
             {
                 addWorker( worker.index );
                 workerCount++;
@@ -507,6 +806,24 @@ else if( state.get() == RUNNING || (state.get() == STOPPING && hasPendingWork())
      */
     private final class Monitor implements Runnable
     {
+        /**
+         * When we last called {@link #adapt()}.
+         */
+        private long lastAdapt = System.nanoTime();
+
+        /**
+         * The number of consecutive periods where at least one worker was idle.
+         */
+        private int idlePeriods;
+
+        /**
+         * Statistics about the queue, sampled every time the monitor wakes up.
+         *
+         * @see #sample()
+         */
+        private long samples, queueDepthTotal;
+        private int minIdleWorkers = Integer.MAX_VALUE;
+
         @Override
         public void run()
         {
@@ -532,6 +849,7 @@ private void runImpl()
                     // sleep for a single pause duration. Otherwise we only need to wake up to set the soft/hard abort
                     // flags, which are far less granular.
                     monitorWakeup.awaitNanos( isBusy() ? scaledPeriod() : MONITOR_WAKEUP );
+                    if( minWorkers < workers.length ) sample();
                 }
                 catch( InterruptedException e )
                 {
@@ -544,7 +862,110 @@ private void runImpl()
                 }
 
                 checkRunners();
+                if( minWorkers < workers.length && System.nanoTime() - lastAdapt >= ADAPT_PERIOD ) adapt();
+            }
+        }
+
+        /**
+         * Record the current state of the queue, to be used by {@link #adapt()}. This should be called while holding
+         * the {@link #computerLock}.
+         */
+        private void sample()
+        {
+            samples++;
+            queueDepthTotal += computerQueue.size();
+            minIdleWorkers = Math.min( minIdleWorkers, idleWorkers.get() );
+        }
+
+        /**
+         * Grow or shrink the number of workers, depending on how busy we have been.
+         * <p>
+         * If computers have been waiting in the queue for longer than our target latency, and there has been a backlog
+         * of work for the whole period, then we add a new worker. If at least one worker has been idle for
+         * {@link #SHRINK_PERIODS} consecutive periods, then we remove one.
+         */
+        private void adapt()
+        {
+            lastAdapt = System.nanoTime();
+
+            long averageWait, averageDepth;
+            int minIdle;
+            computerLock.lock();
+            try
+            {
+                averageWait = queueWaitCount == 0 ? 0 : queueWaitTotal / queueWaitCount;
+                averageDepth = samples == 0 ? 0 : queueDepthTotal / samples;
+                minIdle = samples == 0 ? 0 : minIdleWorkers;
+
+                queueWaitTotal = queueWaitCount = 0;
+                queueDepthTotal = samples = 0;
+                minIdleWorkers = Integer.MAX_VALUE;
+            }
+            finally
+            {
+                computerLock.unlock();
+            }
+
+            if( state.get() != RUNNING ) return;
+
+            if( averageDepth >= 1 && averageWait > latency )
+            {
+                idlePeriods = 0;
+                resize( 1 );
+            }
+            else if( minIdle > 0 && retiringWorkers.get() == 0 )
+            {
+                if( ++idlePeriods >= SHRINK_PERIODS )
+                {
+                    idlePeriods = 0;
+                    resize( -1 );
+                }
+            }
+            else
+            {
+                idlePeriods = 0;
+            }
+        }
+
+        private void resize( int change )
+        {
+            threadLock.lock();
+            try
+            {
+                int limit = workerLimit + change;
+                if( limit < minWorkers || limit > workers.length ) return;
+
+                ComputerCraft.log.debug( "Changing number of computer workers from {} to {}.", workerLimit, limit );
+                setWorkerLimit( limit );
+                if( change > 0 )
+                {
+                    addWorker();
+                }
+                else if( workerCount > limit )
+                {
+                    retiringWorkers.getAndIncrement();
+                }
+            }
+            finally
+            {
+                threadLock.unlock();
+            }
+
+            if( change < 0 )
+            {
+                // Wake any idle workers, so one of them can shut down.
+                computerLock.lock();
+                try
+                {
+                    workerWakeup.signalAll();
+                }
+                finally
+                {
+                    computerLock.unlock();
+                }
             }
+
+            metrics.observe( change > 0 ? Metrics.COMPUTER_THREADS_ADDED : Metrics.COMPUTER_THREADS_REMOVED );
         }
 
         private void checkRunners()
@@ -627,6 +1048,18 @@ private final class Worker implements Runnable
          */
         AtomicLong lastReport = new AtomicLong( Long.MIN_VALUE );
 
+        /**
+         * Whether this worker is waiting on the {@link #idleWorkerQueue}. Only used by the sharded scheduler.
+         */
+        final AtomicBoolean idle = new AtomicBoolean( false );
+
+        /**
+         * Whether this worker has shut down because we have too many workers. If so, it will not be replaced.
+         *
+         * @see #tryRetire()
+         */
+        volatile boolean retired;
+
         Worker( int index )
         {
             this.index = index;
@@ -652,24 +1085,8 @@ private void runImpl()
             while( running.get() )
             {
                 // Wait for an active queue to execute
-                ComputerExecutor executor;
-                computerLock.lock();
-                try
-                {
-                    idleWorkers.getAndIncrement();
-                    while( (executor = computerQueue.pollFirst()) == null )
-                    {
-                        if( state.get() >= STOPPING ) return;
-
-                        // We should never interrupt() the worker, so this should be fine.
-                        workerWakeup.awaitUninterruptibly();
-                    }
-                }
-                finally
-                {
-                    idleWorkers.getAndDecrement();
-                    computerLock.unlock();
-                }
+                ComputerExecutor executor = runQueues == null ? takeShared() : takeSharded();
+                if( executor == null ) return;
 
                 // If we're trying to executing some task on this computer while someone else is doing work, something
                 // is seriously wrong.
@@ -715,6 +1132,125 @@ private void runImpl()
             }
         }
 
+        @Nullable
+        private ComputerExecutor takeShared()
+        {
+            ComputerExecutor executor;
+            computerLock.lock();
+            try
+            {
+                idleWorkers.getAndIncrement();
+                while( (executor = computerQueue.pollFirst()) == null )
+                {
+                    if( state.get() >= STOPPING || tryRetire() ) return null;
+
+                    // We should never interrupt() the worker, so this should be fine.
+                    workerWakeup.awaitUninterruptibly();
+                }
+
+                queueWaitTotal += System.nanoTime() - executor.queuedAt;
+                queueWaitCount++;
+            }
+            finally
+            {
+                idleWorkers.getAndDecrement();
+                computerLock.unlock();
+            }
+
+            return executor;
+        }
+
+        /**
+         * Shut this worker down if we have more workers than we need.
+         *
+         * @return Whether this worker should stop.
+         */
+        private boolean tryRetire()
+        {
+            while( true )
+            {
+                int retiring = retiringWorkers.get();
+                if( retiring <= 0 ) return false;
+                if( retiringWorkers.compareAndSet( retiring, retiring - 1 ) )
+                {
+                    ComputerCraft.log.trace( "Retiring worker {}.", index );
+                    return retired = true;
+                }
+            }
+        }
+
+        @Nullable
+        private ComputerExecutor takeSharded()
+        {
+            while( true )
+            {
+                ComputerExecutor executor = pollSharded();
+                if( executor != null ) return executor;
+                if( state.get() >= STOPPING ) return null;
+
+                // Mark ourselves as idle, and then check the queues again. Anything queued after this point will see
+                // us on the idle queue and so wake us up.
+                idle.set( true );
+                idleWorkers.getAndIncrement();
+                idleWorkerQueue.add( this );
+
+                executor = pollSharded();
+                if( executor == null && state.get() < STOPPING ) LockSupport.park( this );
+
+                // If nobody else has woken us, remove ourselves from the idle queue.
+                if( idle.compareAndSet( true, false ) )
+                {
+                    idleWorkers.getAndDecrement();
+                    idleWorkerQueue.remove( this );
+                }
+                else if( executor != null )
+                {
+                    // Someone queued work and woke us, but we've already found something else to do. Pass the wakeup
+                    // on to another worker instead.
+                    wakeIdleWorker();
+                }
+
+                if( executor != null ) return executor;
+            }
+        }
+
+        /**
+         * Find the computer with the smallest virtual runtime across all run queues. We prefer our own queue unless
+         * another is a whole period ahead of it, which avoids every idle worker piling onto the same queue.
+         *
+         * @return The computer to run, or {@code null} if all queues are empty.
+         */
+        @Nullable
+        private ComputerExecutor pollSharded()
+        {
+            RunQueue[] runQueues = Objects.requireNonNull( ComputerThread.this.runQueues );
+            RunQueue own = runQueues[index];
+
+            RunQueue best = own;
+            long bestRuntime = own.headRuntime == Long.MAX_VALUE ? Long.MAX_VALUE : own.headRuntime - minPeriod;
+            for( RunQueue queue : runQueues )
+            {
+                long runtime = queue.headRuntime;
+                if( runtime < bestRuntime )
+                {
+                    best = queue;
+                    bestRuntime = runtime;
+                }
+            }
+
+            ComputerExecutor executor = best.poll();
+            if( executor != null ) return executor;
+
+            // Our view of the queues may be out of date, so check each one in turn, starting with our own.
+            for( int i = 0; i < runQueues.length; i++ )
+            {
+                executor = runQueues[(index + i) % runQueues.length].poll();
+                if( executor != null ) return executor;
+            }
+
+            return null;
+        }
+
         private void reportTimeout( ComputerExecutor executor, long time )
         {
             if( !ComputerCraft.logComputerErrors ) return;
@@ -750,4 +1286,55 @@ private void reportTimeout( ComputerExecutor executor, long time )
             ComputerCraft.log.warn( builder.toString() );
         }
     }
+
+    /**
+     * A single worker's queue of computers, used by the sharded scheduler.
+     */
+    private final class RunQueue
+    {
+        private final ReentrantLock lock = new ReentrantLock();
+
+        @GuardedBy( "lock" )
+        private final TreeSet<ComputerExecutor> queue = new TreeSet<>( EXECUTOR_ORDER );
+
+        /**
+         * The virtual runtime of the first computer on this queue, or {@link Long#MAX_VALUE} if empty. This allows
+         * workers to find the best queue to take from without acquiring any locks.
+         */
+        volatile long headRuntime = Long.MAX_VALUE;
+
+        void add( ComputerExecutor executor )
+        {
+            lock.lock();
+            try
+            {
+                queue.add( executor );
+                runQueueSize.getAndIncrement();
+                headRuntime = queue.first().virtualRuntime;
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        @Nullable
+        ComputerExecutor poll()
+        {
+            if( headRuntime == Long.MAX_VALUE ) return null;
+
+            lock.lock();
+            try
+            {
+                ComputerExecutor executor = queue.pollFirst();
+                if( executor != null ) runQueueSize.getAndDecrement();
+                headRuntime = queue.isEmpty() ? Long.MAX_VALUE : queue.first().virtualRuntime;
+                return executor;
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
 }
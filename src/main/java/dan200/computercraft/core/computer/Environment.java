@@ -13,12 +13,9 @@
 import dan200.computercraft.core.metrics.Metric;
 import dan200.computercraft.core.metrics.MetricsObserver;
 import dan200.computercraft.core.terminal.Terminal;
-import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 
 import javax.annotation.Nonnull;
 import java.util.Arrays;
-import java.util.Iterator;
 
 /**
  * Represents the "environment" that a {@link Computer} exists in.
@@ -38,6 +35,9 @@
  *
  * <h1>Peripheral</h1>
  * We also keep track of peripherals. These are read on both threads, and only written on the main thread.
+ *
+ * <h1>Timers</h1>
+ * Timers are stored in a {@link TimerQueue}, which is read and written on both threads, and so is guarded by itself.
  */
 public final class Environment implements IAPIEnvironment
 {
@@ -59,8 +59,7 @@ public final class Environment implements IAPIEnvironment
     private final IPeripheral[] peripherals = new IPeripheral[ComputerSide.COUNT];
     private IPeripheralChangeListener peripheralListener = null;
 
-    private final Int2ObjectMap<Timer> timers = new Int2ObjectOpenHashMap<>();
-    private int nextTimerToken = 0;
+    private final TimerQueue timers = new TimerQueue();
 
     Environment( Computer computer, ComputerEnvironment environment )
     {
@@ -242,20 +241,7 @@ void tick()
 
         synchronized( timers )
         {
-            // Countdown all of our active timers
-            Iterator<Int2ObjectMap.Entry<Timer>> it = timers.int2ObjectEntrySet().iterator();
-            while( it.hasNext() )
-            {
-                Int2ObjectMap.Entry<Timer> entry = it.next();
-                Timer timer = entry.getValue();
-                timer.ticksLeft--;
-                if( timer.ticksLeft <= 0 )
-                {
-                    // Queue the "timer" event
-                    queueEvent( TIMER_EVENT, entry.getIntKey() );
-                    it.remove();
-                }
-            }
+            timers.tick( id -> queueEvent( TIMER_EVENT, id ) );
         }
     }
 
@@ -356,8 +342,7 @@ public int startTimer( long ticks )
     {
         synchronized( timers )
         {
-            timers.put( nextTimerToken, new Timer( ticks ) );
-            return nextTimerToken++;
+            return timers.start( ticks );
         }
     }
 
@@ -366,7 +351,7 @@ public void cancelTimer( int id )
     {
         synchronized( timers )
         {
-            timers.remove( id );
+            timers.cancel( id );
         }
     }
 
@@ -381,14 +366,4 @@ public void observe( @Nonnull Metric.Counter counter )
     {
         metrics.observe( counter );
     }
-
-    private static class Timer
-    {
-        long ticksLeft;
-
-        Timer( long ticksLeft )
-        {
-            this.ticksLeft = ticksLeft;
-        }
-    }
 }
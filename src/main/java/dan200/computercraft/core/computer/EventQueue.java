@@ -0,0 +1,147 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.computer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A bounded queue of events waiting to be delivered to a computer.
+ * <p>
+ * Some events only tell the computer that some state has changed (for instance, {@code redstone} or
+ * {@code term_resize}), and so a computer gains nothing from receiving several of them in a row. Other events (such as
+ * {@code mouse_drag}) are sent very frequently, and only the latest one matters. We {@linkplain Coalesce coalesce}
+ * these events as they are queued, so they take up less room in the queue and the computer has less work to do.
+ * <p>
+ * This class is not thread-safe, and should be guarded by {@link ComputerExecutor}'s queue lock.
+ */
+final class EventQueue
+{
+    private static final Map<String, Coalesce> policies = new HashMap<>();
+
+    static
+    {
+        policies.put( "redstone", Coalesce.DISTINCT );
+        policies.put( "term_resize", Coalesce.DISTINCT );
+        policies.put( "monitor_resize", Coalesce.DISTINCT );
+        policies.put( "turtle_inventory", Coalesce.DISTINCT );
+        policies.put( "mouse_drag", Coalesce.LATEST );
+    }
+
+    private final ArrayDeque<Event> queue = new ArrayDeque<>( 4 );
+    private final int limit;
+
+    EventQueue( int limit )
+    {
+        this.limit = limit;
+    }
+
+    /**
+     * Add an event to the queue.
+     *
+     * @param name The event's name.
+     * @param args The event's arguments.
+     * @return Whether the event was queued as normal, merged with an existing event, or dropped.
+     */
+    Result offer( @Nonnull String name, @Nullable Object[] args )
+    {
+        switch( policies.getOrDefault( name, Coalesce.NONE ) )
+        {
+            case NONE:
+                break;
+
+            case DISTINCT:
+                for( Event event : queue )
+                {
+                    if( event.name.equals( name ) && Arrays.equals( event.args, args ) ) return Result.COALESCED;
+                }
+                break;
+
+            case LATEST:
+            {
+                Event last = queue.peekLast();
+                if( last != null && last.name.equals( name ) )
+                {
+                    queue.pollLast();
+                    queue.offerLast( new Event( name, args ) );
+                    return Result.COALESCED;
+                }
+                break;
+            }
+        }
+
+        if( queue.size() >= limit ) return Result.DROPPED;
+
+        queue.offerLast( new Event( name, args ) );
+        return Result.QUEUED;
+    }
+
+    @Nullable
+    Event poll()
+    {
+        return queue.pollFirst();
+    }
+
+    boolean isEmpty()
+    {
+        return queue.isEmpty();
+    }
+
+    int size()
+    {
+        return queue.size();
+    }
+
+    void clear()
+    {
+        queue.clear();
+    }
+
+    /**
+     * How an event may be merged with events which are already queued.
+     */
+    private enum Coalesce
+    {
+        /**
+         * Always queue this event.
+         */
+        NONE,
+
+        /**
+         * Drop this event if an identical one (with the same name and arguments) is already waiting in the queue.
+         */
+        DISTINCT,
+
+        /**
+         * If the last event in the queue has the same name, replace it with this one. We only look at the last event
+         * so that this event is never moved before or after any others.
+         */
+        LATEST,
+    }
+
+    enum Result
+    {
+        QUEUED,
+        COALESCED,
+        DROPPED,
+    }
+
+    static final class Event
+    {
+        final String name;
+        final Object[] args;
+
+        Event( String name, Object[] args )
+        {
+            this.name = name;
+            this.args = args;
+        }
+    }
+}
@@ -102,6 +102,18 @@ public synchronized void refresh()
         if( !softAbort ) softAbort = now - cumulativeStart - TIMEOUT >= 0; // now - cumulativeStart >= TIMEOUT
     }
 
+    /**
+     * Whether there is time remaining in the current execution round, and so whether another event may be run without
+     * returning to the {@link ComputerThread}.
+     *
+     * @return Whether we may run another event.
+     * @see ComputerExecutor#work()
+     */
+    synchronized boolean hasTimeRemaining()
+    {
+        return !paused && !softAbort && !hardAbort && currentDeadline - System.nanoTime() > 0;
+    }
+
     /**
      * Whether we should pause execution of this machine.
      * <p>
@@ -155,6 +167,16 @@ void startTimer()
         cumulativeStart = now - cumulativeElapsed;
     }
 
+    /**
+     * Reset the cumulative timer before starting another event in the same execution round. Each event may run for
+     * {@link #TIMEOUT} before being aborted, but the round still ends at the original deadline.
+     */
+    synchronized void restartCumulative()
+    {
+        cumulativeElapsed = 0;
+        cumulativeStart = System.nanoTime();
+    }
+
     /**
      * Pauses the cumulative time, to be resumed by {@link #startTimer()}.
      *
@@ -0,0 +1,131 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.computer;
+
+import com.google.common.annotations.VisibleForTesting;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+import javax.annotation.Nonnull;
+import java.util.PriorityQueue;
+import java.util.function.IntConsumer;
+
+/**
+ * The timers started by a computer, used by {@link Environment}.
+ * <p>
+ * Timers are stored in a priority queue, ordered by the tick they should fire on. This means each tick only needs to
+ * look at the timers which are due, rather than every active timer. Cancelled timers are removed from {@link #timers}
+ * immediately, but are only removed from the queue once they are due (or when the queue is compacted).
+ * <p>
+ * This class is not thread safe, and should be guarded by a lock by the caller.
+ */
+final class TimerQueue
+{
+    private final Int2ObjectMap<Timer> timers = new Int2ObjectOpenHashMap<>();
+    private final PriorityQueue<Timer> queue = new PriorityQueue<>();
+    private int cancelled = 0;
+    private int nextToken = 0;
+    private long currentTick = 0;
+
+    /**
+     * Start a new timer.
+     *
+     * @param ticks The number of ticks until the timer fires. Timers always wait at least one tick.
+     * @return The ID of this timer.
+     */
+    int start( long ticks )
+    {
+        // Timers always wait at least one tick, even if started with a delay of 0. We also need to be careful to
+        // avoid overflow with very long timers.
+        long deadline = ticks >= Long.MAX_VALUE - currentTick ? Long.MAX_VALUE : currentTick + Math.max( ticks, 1 );
+        Timer timer = new Timer( nextToken++, deadline );
+        timers.put( timer.id, timer );
+        queue.add( timer );
+        return timer.id;
+    }
+
+    /**
+     * Cancel a timer. This does nothing if the timer has already fired or been cancelled.
+     *
+     * @param id The ID of the timer to cancel.
+     */
+    void cancel( int id )
+    {
+        if( timers.remove( id ) == null ) return;
+
+        // Remove cancelled timers from the queue if they make up the bulk of it, so programs which repeatedly start
+        // and cancel long-running timers don't leak memory.
+        if( ++cancelled > queue.size() / 2 )
+        {
+            queue.removeIf( timer -> timers.get( timer.id ) != timer );
+            cancelled = 0;
+        }
+    }
+
+    /**
+     * Advance to the next tick, firing any timers which are now due.
+     *
+     * @param fire Called with the ID of each timer which fires, in the order they fire.
+     */
+    void tick( IntConsumer fire )
+    {
+        long tick = ++currentTick;
+
+        Timer timer;
+        while( (timer = queue.peek()) != null && timer.deadline <= tick )
+        {
+            queue.remove();
+            if( timers.get( timer.id ) != timer )
+            {
+                // This timer has been cancelled.
+                cancelled--;
+                continue;
+            }
+
+            timers.remove( timer.id );
+            fire.accept( timer.id );
+        }
+    }
+
+    /**
+     * Remove all timers.
+     */
+    void clear()
+    {
+        timers.clear();
+        queue.clear();
+        cancelled = 0;
+    }
+
+    /**
+     * Get the number of entries in the queue, including cancelled timers which have not yet been removed.
+     *
+     * @return The size of the queue.
+     */
+    @VisibleForTesting
+    int queueSize()
+    {
+        return queue.size();
+    }
+
+    private static final class Timer implements Comparable<Timer>
+    {
+        final int id;
+        final long deadline;
+
+        Timer( int id, long deadline )
+        {
+            this.id = id;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int compareTo( @Nonnull Timer o )
+        {
+            return deadline == o.deadline ? Integer.compare( id, o.id ) : Long.compare( deadline, o.deadline );
+        }
+    }
+}
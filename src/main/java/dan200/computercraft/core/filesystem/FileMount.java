@@ -5,36 +5,91 @@
  */
 package dan200.computercraft.core.filesystem;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
 import dan200.computercraft.ComputerCraft;
 import dan200.computercraft.api.filesystem.FileOperationException;
 import dan200.computercraft.api.filesystem.IWritableMount;
+import dan200.computercraft.shared.util.ThreadUtils;
 
 import javax.annotation.Nonnull;
-import java.io.File;
-import java.io.IOException;
+import javax.annotation.Nullable;
+import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.channels.*;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.OptionalLong;
 import java.util.Set;
-
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A writable mount backed by a directory on disk, with a limited capacity.
+ * <p>
+ * Computing how much space a mount uses requires walking the whole directory, which is expensive when many computers
+ * start at once. Instead, we persist the used space to a {@code .usage} file next to the mount's directory, and keep it
+ * up-to-date as the mount is modified. A new mount trusts this file, and then measures the directory on a low-priority
+ * background thread, correcting the used space if the directory was changed outside the game. If there is no usage
+ * file, the mount is treated as empty until it has been measured.
+ * <p>
+ * The usage file is removed as soon as the mount is changed, and written back shortly afterwards. This means that if
+ * the server stops before the file can be saved, we will not trust an old value next time.
+ * <p>
+ * Writes to files are buffered, and only written to disk when the buffer fills up, or the file is flushed or closed.
+ * Space is still allocated as soon as bytes are written, so running out of space fails immediately. If
+ * {@link ComputerCraft#coalesceFileFlushes} is enabled, flushes are also deferred and written to disk together once a
+ * tick. Flushed data is then not visible to other handles until it has been written, and any error writing it is
+ * thrown from the next operation on the file.
+ */
 public class FileMount implements IWritableMount
 {
     private static final int MINIMUM_FILE_SIZE = 500;
+    private static final int WRITE_BUFFER_SIZE = 8192;
+
+    private static final int USAGE_VERSION = 1;
+    private static final long USAGE_SAVE_DELAY = 5;
+    private static final ScheduledExecutorService usageExecutor = Executors.newSingleThreadScheduledExecutor(
+        ThreadUtils.builder( "FileMount" ).setPriority( Thread.MIN_PRIORITY ).build()
+    );
+
+    /**
+     * How long to wait before writing flushed files when {@link ComputerCraft#coalesceFileFlushes} is enabled. This is
+     * one server tick.
+     */
+    private static final long FLUSH_DELAY = 50;
+    private static final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(
+        ThreadUtils.factory( "FileFlush" )
+    );
+    private static final Set<WritableCountingChannel> pendingFlushes = ConcurrentHashMap.newKeySet();
+    private static final AtomicBoolean flushScheduled = new AtomicBoolean( false );
+
     private static final Set<OpenOption> READ_OPTIONS = Collections.singleton( StandardOpenOption.READ );
     private static final Set<OpenOption> WRITE_OPTIONS = Sets.newHashSet( StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING );
     private static final Set<OpenOption> APPEND_OPTIONS = Sets.newHashSet( StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.APPEND );
 
-    private class WritableCountingChannel implements WritableByteChannel
+    private class WritableCountingChannel implements WritableByteChannel, Flushable
     {
 
         private final WritableByteChannel inner;
         long ignoredBytesLeft;
 
+        /**
+         * Bytes which have been counted, but not yet written to {@link #inner}. This is allocated on the first small
+         * write.
+         */
+        private @Nullable ByteBuffer buffer;
+
+        /**
+         * An error from writing this channel after a deferred flush. This is thrown from the next operation on the
+         * channel, so the program which flushed the file still sees it.
+         */
+        private @Nullable IOException flushError;
+
         WritableCountingChannel( WritableByteChannel inner, long bytesToIgnore )
         {
             this.inner = inner;
@@ -42,10 +97,107 @@ private class WritableCountingChannel implements WritableByteChannel
         }
 
         @Override
-        public int write( @Nonnull ByteBuffer b ) throws IOException
+        public synchronized int write( @Nonnull ByteBuffer b ) throws IOException
+        {
+            if( !inner.isOpen() ) throw new ClosedChannelException();
+            checkFlushError();
+
+            int length = b.remaining();
+            count( length );
+
+            if( length >= WRITE_BUFFER_SIZE )
+            {
+                // Large writes gain nothing from being buffered, so write them directly.
+                writeBuffer();
+                while( b.hasRemaining() ) inner.write( b );
+                return length;
+            }
+
+            if( buffer == null ) buffer = ByteBuffer.allocate( WRITE_BUFFER_SIZE );
+            if( length > buffer.remaining() ) writeBuffer();
+            buffer.put( b );
+            return length;
+        }
+
+        /**
+         * Write any buffered bytes to the underlying channel.
+         *
+         * @throws IOException If the bytes could not be written.
+         */
+        synchronized void writeBuffer() throws IOException
+        {
+            ByteBuffer buffer = this.buffer;
+            if( buffer == null || buffer.position() == 0 ) return;
+
+            buffer.flip();
+            try
+            {
+                while( buffer.hasRemaining() ) inner.write( buffer );
+            }
+            finally
+            {
+                buffer.compact();
+            }
+        }
+
+        synchronized int buffered()
+        {
+            return buffer == null ? 0 : buffer.position();
+        }
+
+        synchronized void failFlush( IOException error )
+        {
+            if( flushError == null ) flushError = error;
+        }
+
+        private void checkFlushError() throws IOException
         {
-            count( b.remaining() );
-            return inner.write( b );
+            IOException error = flushError;
+            if( error == null ) return;
+
+            flushError = null;
+            throw error;
+        }
+
+        @Override
+        public synchronized void flush() throws IOException
+        {
+            checkFlushError();
+            if( !ComputerCraft.coalesceFileFlushes )
+            {
+                writeBuffer();
+            }
+            else if( buffered() > 0 )
+            {
+                pendingFlushes.add( this );
+                if( flushScheduled.compareAndSet( false, true ) )
+                {
+                    flushExecutor.schedule( FileMount::writePendingFlushes, FLUSH_DELAY, TimeUnit.MILLISECONDS );
+                }
+            }
+        }
+
+        /**
+         * Copy the remainder of a file into this channel, letting the operating system copy the data where possible.
+         *
+         * @param source The file to copy from.
+         * @throws IOException If the mount runs out of space, or the file could not be copied.
+         */
+        synchronized void transferFrom( FileChannel source ) throws IOException
+        {
+            writeBuffer();
+
+            long position = source.position(), end = source.size();
+
+            // Reserve the space up-front, as we never see the individual writes.
+            count( Math.max( end - position, 0 ) );
+            while( position < end )
+            {
+                long transferred = source.transferTo( position, end - position, inner );
+                if( transferred <= 0 ) break;
+                position += transferred;
+            }
+            source.position( position );
         }
 
         void count( long n ) throws IOException
@@ -56,9 +208,7 @@ void count( long n ) throws IOException
                 long newBytes = -ignoredBytesLeft;
                 ignoredBytesLeft = 0;
 
-                long bytesLeft = capacity - usedSpace;
-                if( newBytes > bytesLeft ) throw new IOException( "Out of space" );
-                usedSpace += newBytes;
+                allocate( newBytes );
             }
         }
 
@@ -69,9 +219,19 @@ public boolean isOpen()
         }
 
         @Override
-        public void close() throws IOException
+        public synchronized void close() throws IOException
         {
-            inner.close();
+            pendingFlushes.remove( this );
+            try
+            {
+                if( inner.isOpen() ) writeBuffer();
+                checkFlushError();
+            }
+            finally
+            {
+                buffer = null;
+                inner.close();
+            }
         }
     }
 
@@ -86,7 +246,7 @@ private class SeekableCountingChannel extends WritableCountingChannel implements
         }
 
         @Override
-        public SeekableByteChannel position( long newPosition ) throws IOException
+        public synchronized SeekableByteChannel position( long newPosition ) throws IOException
         {
             if( !isOpen() ) throw new ClosedChannelException();
             if( newPosition < 0 )
@@ -94,6 +254,7 @@ public SeekableByteChannel position( long newPosition ) throws IOException
                 throw new IllegalArgumentException( "Cannot seek before the beginning of the stream" );
             }
 
+            writeBuffer();
             long delta = newPosition - inner.position();
             if( delta < 0 )
             {
@@ -121,27 +282,61 @@ public int read( ByteBuffer dst ) throws ClosedChannelException
         }
 
         @Override
-        public long position() throws IOException
+        public synchronized long position() throws IOException
         {
-            return inner.position();
+            return inner.position() + buffered();
         }
 
         @Override
-        public long size() throws IOException
+        public synchronized long size() throws IOException
         {
+            writeBuffer();
             return inner.size();
         }
     }
 
     private final File rootPath;
+    private final File usagePath;
     private final long capacity;
+
+    private final Object measureLock = new Object();
     private long usedSpace;
+    private boolean usageChanged;
 
     public FileMount( File rootPath, long capacity )
     {
         this.rootPath = rootPath;
+        usagePath = new File( rootPath.getParentFile(), rootPath.getName() + ".usage" );
         this.capacity = capacity + MINIMUM_FILE_SIZE;
-        usedSpace = created() ? measureUsedSpace( this.rootPath ) : MINIMUM_FILE_SIZE;
+
+        if( !created() )
+        {
+            usedSpace = MINIMUM_FILE_SIZE;
+            return;
+        }
+
+        long recorded = readUsage();
+        usedSpace = recorded >= 0 ? recorded : MINIMUM_FILE_SIZE;
+        usageExecutor.execute( this::measure );
+    }
+
+    /**
+     * Copy one file to another, using {@link FileChannel#transferTo(long, long, WritableByteChannel)} rather than
+     * reading the file into memory. This is only possible when reading from a file on disk and writing to a
+     * {@link FileMount}.
+     *
+     * @param source      The channel to copy from.
+     * @param destination The channel to copy to.
+     * @return Whether the file was copied. If {@code false}, nothing has been copied and the caller should copy the
+     * file itself.
+     * @throws IOException If the file could not be copied.
+     */
+    static boolean transfer( ReadableByteChannel source, WritableByteChannel destination ) throws IOException
+    {
+        if( !(source instanceof FileChannel) || !(destination instanceof WritableCountingChannel) ) return false;
+
+        ((WritableCountingChannel) destination).transferFrom( (FileChannel) source );
+        return true;
     }
 
     // IMount implementation
@@ -176,7 +371,9 @@ public void list( @Nonnull String path, @Nonnull List<String> contents ) throws
         File file = getRealPath( path );
         if( !file.exists() || !file.isDirectory() ) throw new FileOperationException( path, "Not a directory" );
 
+        // The directory may be deleted while we're listing it.
         String[] paths = file.list();
+        if( paths == null ) throw new FileOperationException( path, "Not a directory" );
         for( String subPath : paths )
         {
             if( new File( file, subPath ).exists() ) contents.add( subPath );
@@ -253,7 +450,7 @@ public void makeDirectory( @Nonnull String path ) throws IOException
 
         if( file.mkdirs() )
         {
-            usedSpace += dirsToCreate * MINIMUM_FILE_SIZE;
+            addUsedSpace( dirsToCreate * MINIMUM_FILE_SIZE );
         }
         else
         {
@@ -290,7 +487,7 @@ private void deleteRecursively( File file ) throws IOException
         boolean success = file.delete();
         if( success )
         {
-            usedSpace -= Math.max( MINIMUM_FILE_SIZE, fileSize );
+            addUsedSpace( -Math.max( MINIMUM_FILE_SIZE, fileSize ) );
         }
         else
         {
@@ -308,13 +505,16 @@ public WritableByteChannel openForWrite( @Nonnull String path ) throws IOExcepti
 
         if( file.exists() )
         {
-            usedSpace -= Math.max( file.length(), MINIMUM_FILE_SIZE );
+            addUsedSpace( MINIMUM_FILE_SIZE - Math.max( file.length(), MINIMUM_FILE_SIZE ) );
         }
         else if( getRemainingSpace() < MINIMUM_FILE_SIZE )
         {
             throw new FileOperationException( path, "Out of space" );
         }
-        usedSpace += MINIMUM_FILE_SIZE;
+        else
+        {
+            addUsedSpace( MINIMUM_FILE_SIZE );
+        }
 
         return new SeekableCountingChannel( Files.newByteChannel( file.toPath(), WRITE_OPTIONS ), MINIMUM_FILE_SIZE );
     }
@@ -340,7 +540,7 @@ public WritableByteChannel openForAppend( @Nonnull String path ) throws IOExcept
     }
 
     @Override
-    public long getRemainingSpace()
+    public synchronized long getRemainingSpace()
     {
         return Math.max( capacity - usedSpace, 0 );
     }
@@ -352,7 +552,147 @@ public OptionalLong getCapacity()
         return OptionalLong.of( capacity - MINIMUM_FILE_SIZE );
     }
 
-    private File getRealPath( String path )
+    private synchronized void allocate( long bytes ) throws IOException
+    {
+        if( bytes > capacity - usedSpace ) throw new IOException( "Out of space" );
+        addUsedSpace( bytes );
+    }
+
+    private synchronized void addUsedSpace( long delta )
+    {
+        usedSpace += delta;
+        if( usageChanged ) return;
+
+        // Remove the usage file now, so we rescan the mount if the server stops before it is saved again.
+        usageChanged = true;
+        try
+        {
+            Files.deleteIfExists( usagePath.toPath() );
+        }
+        catch( IOException e )
+        {
+            ComputerCraft.log.error( "Cannot delete usage file {}", usagePath, e );
+        }
+
+        usageExecutor.schedule( this::saveUsage, USAGE_SAVE_DELAY, TimeUnit.SECONDS );
+    }
+
+    /**
+     * Write all channels which have been flushed since this was last called.
+     *
+     * @see WritableCountingChannel#flush()
+     */
+    static void writePendingFlushes()
+    {
+        // Clear the flag first, so channels flushed while we're writing schedule another run.
+        flushScheduled.set( false );
+
+        for( Iterator<WritableCountingChannel> iterator = pendingFlushes.iterator(); iterator.hasNext(); )
+        {
+            WritableCountingChannel channel = iterator.next();
+            iterator.remove();
+
+            try
+            {
+                if( channel.isOpen() ) channel.writeBuffer();
+            }
+            catch( IOException e )
+            {
+                channel.failFlush( e );
+            }
+        }
+    }
+
+    /**
+     * Measure the space used by this mount, correcting the recorded usage if the directory has been changed outside
+     * the game.
+     * <p>
+     * This is run on the background thread when the mount is created.
+     */
+    void measure()
+    {
+        synchronized( measureLock )
+        {
+            long before;
+            synchronized( this )
+            {
+                before = usedSpace;
+            }
+
+            long size = measureUsedSpace( rootPath );
+            if( size < 0 ) return;
+
+            synchronized( this )
+            {
+                // Keep any changes made while we were measuring. These may also have been seen by the measurement, but
+                // any error is small, and is corrected the next time the mount is measured.
+                usedSpace = size + (usedSpace - before);
+                if( !usageChanged && size != before ) writeUsage( usedSpace );
+            }
+        }
+    }
+
+    /**
+     * Wait for any mounts currently being measured in the background.
+     */
+    @VisibleForTesting
+    static void awaitMeasurements()
+    {
+        Futures.getUnchecked( usageExecutor.submit( () -> { } ) );
+    }
+
+    /**
+     * Save the used space to disk, if it has changed.
+     */
+    synchronized void saveUsage()
+    {
+        if( !usageChanged ) return;
+        usageChanged = false;
+        writeUsage( usedSpace );
+    }
+
+    /**
+     * Read the recorded space used by this mount.
+     *
+     * @return The recorded space, or {@code -1} if there is no usage file.
+     */
+    private long readUsage()
+    {
+        if( !usagePath.isFile() ) return -1;
+
+        try( DataInputStream input = new DataInputStream( new BufferedInputStream( new FileInputStream( usagePath ) ) ) )
+        {
+            if( input.readInt() != USAGE_VERSION ) return -1;
+            long size = input.readLong();
+            return size >= 0 ? size : -1;
+        }
+        catch( IOException e )
+        {
+            ComputerCraft.log.warn( "Cannot read usage file {}", usagePath, e );
+            return -1;
+        }
+    }
+
+    private void writeUsage( long size )
+    {
+        File tempPath = new File( usagePath.getParentFile(), usagePath.getName() + ".tmp" );
+        try
+        {
+            try( DataOutputStream output = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tempPath ) ) ) )
+            {
+                output.writeInt( USAGE_VERSION );
+                output.writeLong( size );
+            }
+
+            Files.move( tempPath.toPath(), usagePath.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        }
+        catch( IOException e )
+        {
+            ComputerCraft.log.error( "Cannot save usage file {}", usagePath, e );
+        }
+    }
+
+    File getRealPath( String path )
     {
         return new File( rootPath, path );
     }
@@ -400,9 +740,15 @@ public FileVisitResult visitFileFailed( Path file, IOException exc )
         }
     }
 
+    /**
+     * Measure the space used by a directory.
+     *
+     * @param file The directory to measure.
+     * @return The space used by this directory, or {@code -1} if it could not be measured.
+     */
     private static long measureUsedSpace( File file )
     {
-        if( !file.exists() ) return 0;
+        if( !file.exists() ) return -1;
 
         try
         {
@@ -413,7 +759,7 @@ private static long measureUsedSpace( File file )
         catch( IOException e )
         {
             ComputerCraft.log.error( "Error computing file size for {}", file, e );
-            return 0;
+            return -1;
         }
     }
 }
@@ -27,6 +27,14 @@
 import java.util.function.Function;
 import java.util.regex.Pattern;
 
+/**
+ * A computer's file system, made up of several mounts.
+ * <p>
+ * Operations which modify the file system (writing, copying, deleting and mounting) are synchronized, so they never
+ * overlap. Read-only operations do not take this lock, and so may run while a long write or copy is in progress. Mounts
+ * are already shared between computers (and so safe to use from multiple threads), and the table of mounts is never
+ * modified in place, so it is safe to read without locking.
+ */
 public class FileSystem
 {
     /**
@@ -38,7 +46,11 @@
     private static final int MAX_COPY_DEPTH = 128;
 
     private final FileSystemWrapperMount wrapper = new FileSystemWrapperMount( this );
-    private final Map<String, MountWrapper> mounts = new HashMap<>();
+    /**
+     * The current mounts, keyed by their location. This map is never modified once published - mounting and unmounting
+     * replace it with an updated copy instead.
+     */
+    private volatile Map<String, MountWrapper> mounts = Collections.emptyMap();
 
     private final HashMap<WeakReference<FileSystemWrapper<?>>, ChannelWrapper<?>> openFiles = new HashMap<>();
     private final ReferenceQueue<FileSystemWrapper<?>> openFileQueue = new ReferenceQueue<>();
@@ -88,15 +100,17 @@ public synchronized void mountWritable( String label, String location, IWritable
 
     private synchronized void mount( MountWrapper wrapper )
     {
-        String location = wrapper.getLocation();
-        mounts.remove( location );
-        mounts.put( location, wrapper );
+        Map<String, MountWrapper> mounts = new HashMap<>( this.mounts );
+        mounts.put( wrapper.getLocation(), wrapper );
+        this.mounts = mounts;
     }
 
     public synchronized void unmount( String path )
     {
+        Map<String, MountWrapper> mounts = new HashMap<>( this.mounts );
         MountWrapper mount = mounts.remove( sanitizePath( path ) );
         if( mount == null ) return;
+        this.mounts = mounts;
 
         cleanup();
 
@@ -167,17 +181,17 @@ public static String getName( String path )
         return lastSlash >= 0 ? path.substring( lastSlash + 1 ) : path;
     }
 
-    public synchronized long getSize( String path ) throws FileSystemException
+    public long getSize( String path ) throws FileSystemException
     {
         return getMount( sanitizePath( path ) ).getSize( sanitizePath( path ) );
     }
 
-    public synchronized BasicFileAttributes getAttributes( String path ) throws FileSystemException
+    public BasicFileAttributes getAttributes( String path ) throws FileSystemException
     {
         return getMount( sanitizePath( path ) ).getAttributes( sanitizePath( path ) );
     }
 
-    public synchronized String[] list( String path ) throws FileSystemException
+    public String[] list( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
@@ -202,24 +216,41 @@ public synchronized String[] list( String path ) throws FileSystemException
         return array;
     }
 
-    private void findIn( String dir, List<String> matches, Pattern wildPattern ) throws FileSystemException
+    private void findIn( String dir, Pattern[] patterns, int depth, List<String> matches ) throws FileSystemException
     {
-        String[] list = list( dir );
+        MountWrapper mount = getMount( dir );
+
+        // Gets a list of the files in this directory, using the mount's index where possible.
+        List<String> list = new ArrayList<>();
+        if( !mount.listIndexed( dir, list ) ) return;
+        for( MountWrapper otherMount : mounts.values() )
+        {
+            if( getDirectory( otherMount.getLocation() ).equals( dir ) ) list.add( getName( otherMount.getLocation() ) );
+        }
+        Collections.sort( list );
+
+        // As wildcards cannot match a "/", each segment of the pattern matches exactly one level of the directory tree.
+        // This means we only need to descend into directories which match the current segment.
+        Pattern pattern = patterns[depth];
+        boolean last = depth == patterns.length - 1;
         for( String entry : list )
         {
+            if( !pattern.matcher( entry ).matches() ) continue;
+
             String entryPath = dir.isEmpty() ? entry : dir + "/" + entry;
-            if( wildPattern.matcher( entryPath ).matches() )
+            if( last )
             {
                 matches.add( entryPath );
             }
-            if( isDir( entryPath ) )
+            else
             {
-                findIn( entryPath, matches, wildPattern );
+                // Files are skipped when we try to list them.
+                findIn( entryPath, patterns, depth + 1, matches );
             }
         }
     }
 
-    public synchronized String[] find( String wildPath ) throws FileSystemException
+    public String[] find( String wildPath ) throws FileSystemException
     {
         // Match all the files on the system
         wildPath = sanitizePath( wildPath, true );
@@ -238,10 +269,16 @@ public synchronized String[] find( String wildPath ) throws FileSystemException
         // If this isn't a directory then just abort
         if( !isDir( startDir ) ) return new String[0];
 
-        // Scan as normal, starting from this directory
-        Pattern wildPattern = Pattern.compile( "^\\Q" + wildPath.replaceAll( "\\*", "\\\\E[^\\\\/]*\\\\Q" ) + "\\E$" );
+        // Split the rest of the path into its individual segments, and scan each level of the tree in turn.
+        String[] segments = wildPath.substring( prevDir + 1 ).split( "/" );
+        Pattern[] patterns = new Pattern[segments.length];
+        for( int i = 0; i < segments.length; i++ )
+        {
+            patterns[i] = Pattern.compile( "^\\Q" + segments[i].replaceAll( "\\*", "\\\\E[^\\\\/]*\\\\Q" ) + "\\E$" );
+        }
+
         List<String> matches = new ArrayList<>();
-        findIn( startDir, matches, wildPattern );
+        findIn( startDir, patterns, 0, matches );
 
         // Return matches
         String[] array = new String[matches.size()];
@@ -249,28 +286,28 @@ public synchronized String[] find( String wildPath ) throws FileSystemException
         return array;
     }
 
-    public synchronized boolean exists( String path ) throws FileSystemException
+    public boolean exists( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
         return mount.exists( path );
     }
 
-    public synchronized boolean isDir( String path ) throws FileSystemException
+    public boolean isDir( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
         return mount.isDirectory( path );
     }
 
-    public synchronized boolean isReadOnly( String path ) throws FileSystemException
+    public boolean isReadOnly( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
         return mount.isReadOnly( path );
     }
 
-    public synchronized String getMountLabel( String path ) throws FileSystemException
+    public String getMountLabel( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
@@ -367,8 +404,8 @@ private synchronized void copyRecursive( String sourcePath, MountWrapper sourceM
             try( ReadableByteChannel source = sourceMount.openForRead( sourcePath );
                  WritableByteChannel destination = destinationMount.openForWrite( destinationPath ) )
             {
-                // Copy bytes as fast as we can
-                ByteStreams.copy( source, destination );
+                // Copy bytes as fast as we can, letting the OS do it if both files are on disk.
+                if( !FileMount.transfer( source, destination ) ) ByteStreams.copy( source, destination );
             }
             catch( AccessDeniedException e )
             {
@@ -393,10 +430,19 @@ private void cleanup()
         }
     }
 
-    private synchronized <T extends Closeable> FileSystemWrapper<T> openFile( @Nonnull MountWrapper mount, @Nonnull Channel channel, @Nonnull T file ) throws FileSystemException
+    private <T extends Closeable> FileSystemWrapper<T> openFile( @Nonnull MountWrapper mount, @Nonnull Channel channel, @Nonnull T file ) throws FileSystemException
     {
         synchronized( openFiles )
         {
+            // Files may be opened for reading while a mount is being removed. unmount() closes files after removing the
+            // mount, so by checking under the same lock, we ensure no files are left open on an unmounted mount.
+            if( mounts.get( mount.getLocation() ) != mount )
+            {
+                IoUtil.closeQuietly( file );
+                IoUtil.closeQuietly( channel );
+                throw new FileSystemException( "/" + mount.getLocation() + ": Invalid Path" );
+            }
+
             if( ComputerCraft.maximumFilesOpen > 0 &&
                 openFiles.size() >= ComputerCraft.maximumFilesOpen )
             {
@@ -420,7 +466,7 @@ void removeFile( FileSystemWrapper<?> handle )
         }
     }
 
-    public synchronized <T extends Closeable> FileSystemWrapper<T> openForRead( String path, Function<ReadableByteChannel, T> open ) throws FileSystemException
+    public <T extends Closeable> FileSystemWrapper<T> openForRead( String path, Function<ReadableByteChannel, T> open ) throws FileSystemException
     {
         cleanup();
 
@@ -430,6 +476,29 @@ public synchronized <T extends Closeable> FileSystemWrapper<T> openForRead( Stri
         return channel != null ? openFile( mount, channel, open.apply( channel ) ) : null;
     }
 
+    /**
+     * Open a file for reading as binary.
+     * <p>
+     * Unlike {@link #openForRead(String, Function)}, large files on read-only mounts are memory-mapped (see
+     * {@link MappedFileChannel}), so reading them does not need to copy the file into memory first.
+     *
+     * @param path The file to open.
+     * @return The opened file.
+     * @throws FileSystemException If the file could not be opened.
+     */
+    public FileSystemWrapper<ReadableByteChannel> openForBinaryRead( String path ) throws FileSystemException
+    {
+        cleanup();
+
+        path = sanitizePath( path );
+        MountWrapper mount = getMount( path );
+        ReadableByteChannel channel = mount.openForRead( path );
+        if( channel == null ) return null;
+
+        ReadableByteChannel mapped = MappedFileChannel.of( channel, mount.isReadOnly( path ), MappedRegionCache.SHARED );
+        return openFile( mount, mapped, mapped );
+    }
+
     public synchronized <T extends Closeable> FileSystemWrapper<T> openForWrite( String path, boolean append, Function<WritableByteChannel, T> open ) throws FileSystemException
     {
         cleanup();
@@ -440,7 +509,7 @@ public synchronized <T extends Closeable> FileSystemWrapper<T> openForWrite( Str
         return channel != null ? openFile( mount, channel, open.apply( channel ) ) : null;
     }
 
-    public synchronized long getFreeSpace( String path ) throws FileSystemException
+    public long getFreeSpace( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
@@ -448,14 +517,14 @@ public synchronized long getFreeSpace( String path ) throws FileSystemException
     }
 
     @Nonnull
-    public synchronized OptionalLong getCapacity( String path ) throws FileSystemException
+    public OptionalLong getCapacity( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
         return mount.getCapacity();
     }
 
-    private synchronized MountWrapper getMount( String path ) throws FileSystemException
+    private MountWrapper getMount( String path ) throws FileSystemException
     {
         // Return the deepest mount that contains a given path
         Iterator<MountWrapper> it = mounts.values().iterator();
@@ -0,0 +1,254 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.filesystem;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+
+/**
+ * A read-only channel which reads a file by memory-mapping it.
+ * <p>
+ * The file is mapped in fixed-size regions, which are shared with the {@link MappedRegionCache}. Reads within a region
+ * can then be returned as a slice of the mapped buffer ({@link #read(int)}), rather than copying the file into a new
+ * buffer first.
+ * <p>
+ * We only map files on read-only mounts, which computers cannot modify. Files on writable mounts (such as a computer's
+ * own drive, or a floppy disk shared by several computers) are read normally:
+ * <ul>
+ *     <li>
+ *         Java provides no way to unmap a file: a region is only unmapped once it has been garbage collected, which
+ *         may be long after the file was closed. On Windows, a file cannot be deleted or truncated while any part of it
+ *         is mapped.
+ *     </li>
+ *     <li>
+ *         Reading a mapped page past the end of a truncated file crashes the JVM with a {@link InternalError}. The
+ *         returned slices are read long after {@link #read(int)} returns, so checking the file's size first cannot
+ *         prevent this.
+ *     </li>
+ * </ul>
+ * We still check the file's size before each read, and drop any regions if it has shrunk, in case a read-only mount's
+ * files are replaced outside the game.
+ *
+ * @see FileSystem#openForBinaryRead(String)
+ */
+public final class MappedFileChannel implements SeekableByteChannel
+{
+    /**
+     * The size of each mapped region.
+     */
+    static final int REGION_SIZE = 1 << 20;
+
+    /**
+     * The minimum size of a file for it to be mapped. Smaller files are cheap enough to read normally.
+     */
+    static final long MAP_THRESHOLD = 256 * 1024;
+
+    private final FileChannel channel;
+    private final MappedRegionCache cache;
+
+    private long position;
+    private long size;
+
+    /**
+     * The last region we read from. This saves looking up the region in the cache when reading sequentially.
+     */
+    private long regionIndex = -1;
+    private @Nullable ByteBuffer region;
+
+    MappedFileChannel( FileChannel channel, MappedRegionCache cache ) throws IOException
+    {
+        this.channel = channel;
+        this.cache = cache;
+        position = channel.position();
+        size = channel.size();
+    }
+
+    /**
+     * Wrap a channel with a {@link MappedFileChannel}, if it is a file on a read-only mount large enough to be worth
+     * mapping.
+     *
+     * @param channel  The channel to wrap.
+     * @param readOnly Whether this file is on a read-only mount.
+     * @param cache    The cache of mapped regions.
+     * @return The wrapped channel, or the original one if it should not be mapped.
+     */
+    static ReadableByteChannel of( ReadableByteChannel channel, boolean readOnly, MappedRegionCache cache )
+    {
+        if( !readOnly || !(channel instanceof FileChannel) ) return channel;
+
+        try
+        {
+            FileChannel file = (FileChannel) channel;
+            return file.size() >= MAP_THRESHOLD ? new MappedFileChannel( file, cache ) : channel;
+        }
+        catch( IOException e )
+        {
+            return channel;
+        }
+    }
+
+    /**
+     * Read up to {@code count} bytes from the file.
+     * <p>
+     * If these bytes are all within one region, this returns a read-only slice of the mapped file, without copying any
+     * data.
+     *
+     * @param count The maximum number of bytes to read.
+     * @return The bytes read, or {@code null} if we are at the end of the file.
+     * @throws IOException If the file could not be read.
+     */
+    @Nullable
+    public ByteBuffer read( int count ) throws IOException
+    {
+        if( !channel.isOpen() ) throw new ClosedChannelException();
+
+        long size = refreshSize();
+        if( position >= size ) return null;
+
+        int length = (int) Math.min( count, size - position );
+        ByteBuffer region = region( position / REGION_SIZE );
+        int offset = (int) (position % REGION_SIZE);
+        if( offset + length > region.limit() )
+        {
+            // This read spans several regions, so we've no choice but to copy.
+            ByteBuffer buffer = ByteBuffer.allocate( length );
+            read( buffer );
+            buffer.flip();
+            return buffer;
+        }
+
+        ByteBuffer slice = region.duplicate();
+        slice.limit( offset + length );
+        slice.position( offset );
+        position += length;
+        return slice;
+    }
+
+    @Override
+    public int read( ByteBuffer destination ) throws IOException
+    {
+        if( !channel.isOpen() ) throw new ClosedChannelException();
+
+        long size = refreshSize();
+        if( position >= size ) return -1;
+
+        int total = 0;
+        while( destination.hasRemaining() && position < size )
+        {
+            ByteBuffer region = region( position / REGION_SIZE );
+            int offset = (int) (position % REGION_SIZE);
+            int length = (int) Math.min( destination.remaining(), region.limit() - offset );
+            if( length <= 0 ) break;
+
+            if( length == 1 )
+            {
+                // Avoid creating a slice for single-byte reads (such as readLine).
+                destination.put( region.get( offset ) );
+            }
+            else
+            {
+                ByteBuffer slice = region.duplicate();
+                slice.limit( offset + length );
+                slice.position( offset );
+                destination.put( slice );
+            }
+
+            position += length;
+            total += length;
+        }
+
+        return total;
+    }
+
+    @Override
+    public int write( ByteBuffer source ) throws IOException
+    {
+        if( !channel.isOpen() ) throw new ClosedChannelException();
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws IOException
+    {
+        if( !channel.isOpen() ) throw new ClosedChannelException();
+        return position;
+    }
+
+    @Override
+    public SeekableByteChannel position( long newPosition ) throws IOException
+    {
+        if( !channel.isOpen() ) throw new ClosedChannelException();
+        if( newPosition < 0 ) throw new IllegalArgumentException( "Cannot seek before the beginning of the stream" );
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException
+    {
+        return channel.size();
+    }
+
+    @Override
+    public SeekableByteChannel truncate( long size ) throws IOException
+    {
+        if( !channel.isOpen() ) throw new ClosedChannelException();
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        cache.remove( this );
+        region = null;
+        regionIndex = -1;
+        channel.close();
+    }
+
+    private long refreshSize() throws IOException
+    {
+        long size = channel.size();
+        if( size < this.size )
+        {
+            // The file has been truncated, and so our regions may extend past the end of the file.
+            cache.remove( this );
+            region = null;
+            regionIndex = -1;
+        }
+        return this.size = size;
+    }
+
+    @Nonnull
+    private ByteBuffer region( long index ) throws IOException
+    {
+        long start = index * REGION_SIZE;
+        int length = (int) Math.min( REGION_SIZE, size - start );
+
+        ByteBuffer region = this.region;
+        if( region != null && index == regionIndex && region.limit() >= length ) return region;
+
+        // If the file has grown since we mapped this region, map it again.
+        region = cache.get( this, index );
+        if( region == null || region.limit() < length )
+        {
+            region = channel.map( FileChannel.MapMode.READ_ONLY, start, length );
+            cache.put( this, index, region );
+        }
+
+        this.region = region;
+        regionIndex = index;
+        return region;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.filesystem;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least-recently-used cache of the regions mapped by {@link MappedFileChannel}s.
+ * <p>
+ * This bounds how much of computers' files are mapped at once. Java provides no way to unmap a file, so evicted
+ * regions are only released once they have been garbage collected.
+ */
+final class MappedRegionCache
+{
+    /**
+     * The cache shared by every {@link FileSystem}, limiting the size of mapped files across all computers to 64MiB.
+     */
+    static final MappedRegionCache SHARED = new MappedRegionCache( 64L * MappedFileChannel.REGION_SIZE );
+
+    private final long capacity;
+    private final LinkedHashMap<Key, ByteBuffer> regions = new LinkedHashMap<>( 16, 0.75f, true );
+    private long size;
+
+    MappedRegionCache( long capacity )
+    {
+        this.capacity = capacity;
+    }
+
+    @Nullable
+    synchronized ByteBuffer get( MappedFileChannel channel, long index )
+    {
+        return regions.get( new Key( channel, index ) );
+    }
+
+    synchronized void put( MappedFileChannel channel, long index, ByteBuffer region )
+    {
+        ByteBuffer previous = regions.put( new Key( channel, index ), region );
+        if( previous != null ) size -= previous.capacity();
+        size += region.capacity();
+
+        // Evict the least recently used regions, always keeping the one we've just added.
+        Iterator<ByteBuffer> iterator = regions.values().iterator();
+        while( size > capacity && regions.size() > 1 )
+        {
+            size -= iterator.next().capacity();
+            iterator.remove();
+        }
+    }
+
+    synchronized void remove( MappedFileChannel channel )
+    {
+        Iterator<Map.Entry<Key, ByteBuffer>> iterator = regions.entrySet().iterator();
+        while( iterator.hasNext() )
+        {
+            Map.Entry<Key, ByteBuffer> entry = iterator.next();
+            if( entry.getKey().channel != channel ) continue;
+
+            size -= entry.getValue().capacity();
+            iterator.remove();
+        }
+    }
+
+    synchronized long size()
+    {
+        return size;
+    }
+
+    private static final class Key
+    {
+        final MappedFileChannel channel;
+        final long index;
+
+        Key( MappedFileChannel channel, long index )
+        {
+            this.channel = channel;
+            this.index = index;
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if( this == o ) return true;
+            if( !(o instanceof Key) ) return false;
+
+            Key other = (Key) o;
+            return channel == other.channel && index == other.index;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * System.identityHashCode( channel ) + Long.hashCode( index );
+        }
+    }
+}
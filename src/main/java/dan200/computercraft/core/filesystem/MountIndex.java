@@ -0,0 +1,132 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.filesystem;
+
+import com.google.common.collect.MapMaker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of directory listings within a {@link FileMount}, used to speed up {@link FileSystem#find(String)}.
+ * <p>
+ * Each listing is stamped with its directory's modification time, and is checked against the directory on disk before
+ * it is used. Creating, deleting or renaming an entry changes the directory's modification time, so listings always
+ * reflect the directory's current contents, whether the mount was changed by a computer or outside the game. Checking a
+ * listing only needs a single {@code stat}, rather than listing the directory and checking each of its children.
+ * <p>
+ * Indexes are shared between every {@link FileMount} with the same root directory. Listings are only built for the
+ * directories {@link FileSystem#find(String)} actually visits, and directories are listed without holding any lock.
+ */
+final class MountIndex
+{
+    /**
+     * The coarsest modification time resolution we expect (FAT uses 2 second timestamps). A directory modified within
+     * this window of us listing it may change again without its modification time changing, so we don't cache it.
+     */
+    private static final long TIMESTAMP_RESOLUTION = 2000;
+
+    private static final Map<String, MountIndex> indexes = new MapMaker().weakValues().makeMap();
+
+    private final Map<String, Listing> listings = new ConcurrentHashMap<>();
+
+    private MountIndex()
+    {
+    }
+
+    /**
+     * Get the index for a mount.
+     *
+     * @param mount The mount to get the index for.
+     * @return The mount's index. This should be held onto for as long as the mount is in use.
+     */
+    static MountIndex of( FileMount mount )
+    {
+        File root = mount.getRealPath( "" );
+        String key;
+        try
+        {
+            key = root.getCanonicalPath();
+        }
+        catch( IOException e )
+        {
+            key = root.getAbsolutePath();
+        }
+
+        return indexes.computeIfAbsent( key, x -> new MountIndex() );
+    }
+
+    /**
+     * List the contents of a directory.
+     *
+     * @param mount    The mount this is an index of.
+     * @param path     The path to the directory, relative to the mount's root.
+     * @param contents The list to add the directory's children to.
+     * @return Whether this is a directory.
+     * @throws IOException If the directory could not be listed.
+     */
+    boolean list( FileMount mount, String path, List<String> contents ) throws IOException
+    {
+        File file = mount.getRealPath( path );
+        BasicFileAttributes attributes;
+        try
+        {
+            attributes = Files.readAttributes( file.toPath(), BasicFileAttributes.class );
+        }
+        catch( IOException e )
+        {
+            // The directory does not exist. The mount's root is treated as an empty directory until it is created.
+            listings.remove( path );
+            return path.isEmpty();
+        }
+
+        if( !attributes.isDirectory() )
+        {
+            listings.remove( path );
+            return false;
+        }
+
+        long modified = attributes.lastModifiedTime().toMillis();
+        Listing listing = listings.get( path );
+        if( listing == null || listing.modified != modified )
+        {
+            long now = System.currentTimeMillis();
+            List<String> children = new ArrayList<>();
+            mount.list( path, children );
+            listing = new Listing( modified, children.toArray( new String[0] ) );
+
+            if( now - modified > TIMESTAMP_RESOLUTION )
+            {
+                listings.put( path, listing );
+            }
+            else
+            {
+                listings.remove( path );
+            }
+        }
+
+        for( String child : listing.children ) contents.add( child );
+        return true;
+    }
+
+    private static final class Listing
+    {
+        final long modified;
+        final String[] children;
+
+        Listing( long modified, String[] children )
+        {
+            this.modified = modified;
+            this.children = children;
+        }
+    }
+}
@@ -26,6 +26,7 @@
 
     private final IMount mount;
     private final IWritableMount writableMount;
+    private final @Nullable MountIndex index;
 
     MountWrapper( String label, String location, IMount mount )
     {
@@ -33,6 +34,7 @@
         this.location = location;
         this.mount = mount;
         writableMount = null;
+        index = null;
     }
 
     MountWrapper( String label, String location, IWritableMount mount )
@@ -41,6 +43,7 @@
         this.location = location;
         this.mount = mount;
         writableMount = mount;
+        index = mount instanceof FileMount ? MountIndex.of( (FileMount) mount ) : null;
     }
 
     public String getLabel()
@@ -121,6 +124,32 @@ public void list( String path, List<String> contents ) throws FileSystemExceptio
         }
     }
 
+    /**
+     * List the contents of a directory, using this mount's {@link MountIndex} if available.
+     *
+     * @param path     The path to list.
+     * @param contents The list to add the directory's children to.
+     * @return Whether this path is a directory.
+     * @throws FileSystemException If the directory could not be listed.
+     * @see FileSystem#find(String)
+     */
+    boolean listIndexed( String path, List<String> contents ) throws FileSystemException
+    {
+        path = toLocal( path );
+        try
+        {
+            if( index != null ) return index.list( (FileMount) mount, path, contents );
+
+            if( !mount.exists( path ) || !mount.isDirectory( path ) ) return false;
+            mount.list( path, contents );
+            return true;
+        }
+        catch( IOException e )
+        {
+            throw localExceptionOf( path, e );
+        }
+    }
+
     public long getSize( String path ) throws FileSystemException
     {
         path = toLocal( path );
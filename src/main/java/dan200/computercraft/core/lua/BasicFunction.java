@@ -67,7 +67,7 @@ public Varargs invoke( LuaState luaState, Varargs args ) throws LuaError
         {
             throw new IllegalStateException( "Cannot have a yielding non-yielding function" );
         }
-        return machine.toValues( results.getResult() );
+        return machine.toValues( results );
     }
 
     public static LuaError wrap( LuaException exception )
@@ -5,11 +5,13 @@
  */
 package dan200.computercraft.core.lua;
 
+import com.google.common.io.ByteStreams;
 import dan200.computercraft.ComputerCraft;
 import dan200.computercraft.api.lua.IDynamicLuaObject;
 import dan200.computercraft.api.lua.ILuaAPI;
 import dan200.computercraft.api.lua.ILuaContext;
 import dan200.computercraft.api.lua.ILuaFunction;
+import dan200.computercraft.api.lua.MethodResult;
 import dan200.computercraft.core.asm.LuaMethod;
 import dan200.computercraft.core.asm.ObjectSource;
 import dan200.computercraft.core.computer.TimeoutState;
@@ -28,10 +30,13 @@
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -49,6 +54,15 @@ public class CobaltLuaMachine implements ILuaMachine
         ThreadUtils.factory( "Coroutine" )
     );
 
+    /**
+     * The factory for coroutines run on virtual threads, or {@code null} if this JVM does not support them.
+     *
+     * @see ComputerCraft#virtualThreadCoroutines
+     */
+    private static final @Nullable ThreadFactory VIRTUAL_COROUTINES = ThreadUtils.virtualFactory( "Coroutine" );
+
+    private static boolean warnedVirtualCoroutines = false;
+
     private static final LuaMethod FUNCTION_METHOD = ( target, context, args ) -> ((ILuaFunction) target).call( args );
 
     private final TimeoutState timeout;
@@ -67,14 +81,21 @@ public CobaltLuaMachine( MachineEnvironment environment )
         context = environment.context;
         debug = new TimeoutDebugHandler();
 
+        // Allow the ROM's files to be shared with other computers.
+        if( environment.rom != null ) PrototypeCache.INSTANCE.trustMount( environment.rom );
+
         // Create an environment to run in
         MetricsObserver metrics = environment.metrics;
+        Executor coroutines = getCoroutineExecutor();
+        boolean virtual = coroutines != COROUTINES;
         LuaState state = this.state = LuaState.builder()
             .resourceManipulator( new VoidResourceManipulator() )
+            .compiler( PrototypeCache.INSTANCE )
             .debug( debug )
             .coroutineExecutor( command -> {
                 metrics.observe( Metrics.COROUTINES_CREATED );
-                COROUTINES.execute( () -> {
+                if( virtual ) metrics.observe( Metrics.COROUTINES_VIRTUAL );
+                coroutines.execute( () -> {
                     try
                     {
                         command.run();
@@ -116,6 +137,28 @@ public CobaltLuaMachine( MachineEnvironment environment )
         }
     }
 
+    /**
+     * Get the executor to run coroutines on. By default, each coroutine runs on its own OS thread. When
+     * {@link ComputerCraft#virtualThreadCoroutines} is enabled, we use virtual threads instead (if supported), meaning
+     * coroutines which are suspended do not hold on to a whole OS thread and stack.
+     *
+     * @return The executor to run coroutines on.
+     */
+    private static Executor getCoroutineExecutor()
+    {
+        if( !ComputerCraft.virtualThreadCoroutines ) return COROUTINES;
+
+        ThreadFactory factory = VIRTUAL_COROUTINES;
+        if( factory != null ) return command -> factory.newThread( command ).start();
+
+        if( !warnedVirtualCoroutines )
+        {
+            warnedVirtualCoroutines = true;
+            ComputerCraft.log.warn( "Virtual threads are not supported on this version of Java. Coroutines will use normal threads instead." );
+        }
+        return COROUTINES;
+    }
+
     @Override
     public void addAPI( @Nonnull ILuaAPI api )
     {
@@ -139,7 +182,11 @@ public MachineResult loadBios( @Nonnull InputStream bios )
 
         try
         {
-            LuaFunction value = LoadState.load( state, bios, "@bios.lua", globals );
+            // Every computer runs the same bios, so allow it to be shared with other computers.
+            byte[] contents = ByteStreams.toByteArray( bios );
+            PrototypeCache.INSTANCE.trust( contents );
+
+            LuaFunction value = LoadState.load( state, new ByteArrayInputStream( contents ), "@bios.lua", globals );
             mainRoutine = new LuaThread( state, value, globals );
             return MachineResult.OK;
         }
@@ -268,8 +315,14 @@ private LuaTable wrapLuaObject( Object object )
         return table;
     }
 
-    @Nonnull
-    private LuaValue toValue( @Nullable Object object, @Nullable Map<Object, LuaValue> values )
+    /**
+     * Convert a value which cannot contain references to other values (such as a number or string).
+     *
+     * @param object The value to convert.
+     * @return The converted value, or {@code null} if this value may contain other values.
+     */
+    @Nullable
+    private static LuaValue toSimpleValue( @Nullable Object object )
     {
         if( object == null ) return Constants.NIL;
         if( object instanceof Number ) return valueOf( ((Number) object).doubleValue() );
@@ -287,11 +340,26 @@ private LuaValue toValue( @Nullable Object object, @Nullable Map<Object, LuaValu
             b.get( bytes );
             return valueOf( bytes );
         }
+        return null;
+    }
+
+    @Nonnull
+    private LuaValue toValue( @Nullable Object object, @Nullable Map<Object, LuaValue> values )
+    {
+        LuaValue simple = toSimpleValue( object );
+        if( simple != null ) return simple;
 
         if( values == null ) values = new IdentityHashMap<>( 1 );
         LuaValue result = values.get( object );
         if( result != null ) return result;
 
+        if( object instanceof FrozenValue )
+        {
+            LuaValue thawed = ((FrozenValue) object).toValue();
+            values.put( object, thawed );
+            return thawed;
+        }
+
         if( object instanceof ILuaFunction )
         {
             return new ResultInterpreterFunction( this, FUNCTION_METHOD, object, context, object.toString() );
@@ -357,16 +425,37 @@ Varargs toValues( Object[] objects )
         if( objects == null || objects.length == 0 ) return Constants.NONE;
         if( objects.length == 1 ) return toValue( objects[0], null );
 
-        Map<Object, LuaValue> result = new IdentityHashMap<>( 0 );
+        // Most results are just numbers and strings, so only create the map of converted values once we need it.
+        Map<Object, LuaValue> result = null;
         LuaValue[] values = new LuaValue[objects.length];
         for( int i = 0; i < values.length; i++ )
         {
             Object object = objects[i];
-            values[i] = toValue( object, result );
+            LuaValue value = toSimpleValue( object );
+            if( value == null )
+            {
+                if( result == null ) result = new IdentityHashMap<>( 1 );
+                value = toValue( object, result );
+            }
+            values[i] = value;
         }
         return varargsOf( values );
     }
 
+    /**
+     * Convert the values returned by a method. Unlike {@link #toValues(Object[])}, this converts numeric and boolean
+     * results directly, without boxing them first.
+     *
+     * @param result The method's result.
+     * @return The converted values.
+     */
+    Varargs toValues( MethodResult result )
+    {
+        if( result.isNumber() ) return valueOf( result.getNumber() );
+        if( result.isBoolean() ) return valueOf( result.getBoolean() );
+        return toValues( result.getResult() );
+    }
+
     static Object toObject( LuaValue value, Map<LuaValue, Object> objects )
     {
         switch( value.type() )
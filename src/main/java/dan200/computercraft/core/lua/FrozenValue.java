@@ -0,0 +1,168 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.lua;
+
+import org.squiddev.cobalt.Constants;
+import org.squiddev.cobalt.LuaTable;
+import org.squiddev.cobalt.LuaValue;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static org.squiddev.cobalt.ValueFactory.valueOf;
+
+/**
+ * An immutable copy of a Java value, which may be cheaply converted to a Lua value many times over.
+ * <p>
+ * When the same value is queued as an event on many computers (such as a modem message being received by every computer
+ * listening on a channel), each computer must be given its own copy of any tables. However, strings, numbers and
+ * booleans are immutable, and so can be shared. This converts those values to Lua once, and records the shape of any
+ * tables, so converting to Lua only needs to allocate the tables themselves.
+ * <p>
+ * Values are converted in the same manner as {@link CobaltLuaMachine}. Only plain data (tables, strings, numbers and
+ * booleans) may be frozen, as other values (such as functions) must be bound to a specific computer.
+ *
+ * @see #of(Object)
+ */
+public final class FrozenValue
+{
+    private static final Object UNSUPPORTED = new Object();
+
+    /**
+     * The frozen value, either a {@link LuaValue} or a {@link Table}.
+     */
+    private final Object value;
+
+    /**
+     * Whether any table is referenced more than once (including from itself). If not, we can skip tracking which tables
+     * have already been converted.
+     */
+    private final boolean sharedTables;
+
+    private FrozenValue( Object value, boolean sharedTables )
+    {
+        this.value = value;
+        this.sharedTables = sharedTables;
+    }
+
+    /**
+     * Freeze a value, if possible.
+     *
+     * @param object The value to freeze. This should generally come from {@link CobaltLuaMachine#toObject}.
+     * @return The frozen value, or the original object if it contains values which cannot be frozen.
+     */
+    @Nullable
+    public static Object of( @Nullable Object object )
+    {
+        Freezer freezer = new Freezer();
+        Object value = freezer.freeze( object );
+        return value == UNSUPPORTED ? object : new FrozenValue( value, freezer.sharedTables );
+    }
+
+    /**
+     * Convert this value to a fresh Lua value. Tables are not shared between calls, and so may be freely modified.
+     *
+     * @return The converted value.
+     */
+    LuaValue toValue()
+    {
+        return thaw( value, sharedTables ? new IdentityHashMap<>( 1 ) : null );
+    }
+
+    private static LuaValue thaw( Object value, @Nullable Map<Table, LuaTable> tables )
+    {
+        if( !(value instanceof Table) ) return (LuaValue) value;
+
+        Table frozen = (Table) value;
+        if( tables != null )
+        {
+            LuaTable existing = tables.get( frozen );
+            if( existing != null ) return existing;
+        }
+
+        LuaTable table = new LuaTable( frozen.arraySize, frozen.keys.length - frozen.arraySize );
+        if( tables != null ) tables.put( frozen, table );
+
+        for( int i = 0; i < frozen.keys.length; i++ )
+        {
+            table.rawset( thaw( frozen.keys[i], tables ), thaw( frozen.values[i], tables ) );
+        }
+        return table;
+    }
+
+    /**
+     * A frozen table. Keys and values are either {@link LuaValue}s or other {@link Table}s.
+     */
+    private static final class Table
+    {
+        Object[] keys;
+        Object[] values;
+        int arraySize;
+    }
+
+    private static final class Freezer
+    {
+        private final Map<Object, Table> tables = new IdentityHashMap<>( 1 );
+        boolean sharedTables;
+
+        Object freeze( @Nullable Object object )
+        {
+            if( object == null ) return Constants.NIL;
+            if( object instanceof Number ) return valueOf( ((Number) object).doubleValue() );
+            if( object instanceof Boolean ) return valueOf( (Boolean) object );
+            if( object instanceof String ) return valueOf( object.toString() );
+            if( object instanceof byte[] )
+            {
+                byte[] b = (byte[]) object;
+                return valueOf( Arrays.copyOf( b, b.length ) );
+            }
+
+            if( !(object instanceof Map) ) return UNSUPPORTED;
+
+            Table table = tables.get( object );
+            if( table != null )
+            {
+                sharedTables = true;
+                return table;
+            }
+
+            table = new Table();
+            tables.put( object, table );
+
+            Map<?, ?> map = (Map<?, ?>) object;
+            Object[] keys = new Object[map.size()];
+            Object[] values = new Object[map.size()];
+            int size = 0, arraySize = 0;
+            for( Map.Entry<?, ?> pair : map.entrySet() )
+            {
+                Object key = freeze( pair.getKey() );
+                Object value = freeze( pair.getValue() );
+                if( key == UNSUPPORTED || value == UNSUPPORTED ) return UNSUPPORTED;
+                if( key == Constants.NIL || value == Constants.NIL ) continue;
+
+                keys[size] = key;
+                values[size] = value;
+                size++;
+
+                if( isArrayKey( pair.getKey(), map.size() ) ) arraySize++;
+            }
+
+            table.keys = size == keys.length ? keys : Arrays.copyOf( keys, size );
+            table.values = size == values.length ? values : Arrays.copyOf( values, size );
+            table.arraySize = arraySize;
+            return table;
+        }
+
+        private static boolean isArrayKey( Object key, int size )
+        {
+            if( !(key instanceof Number) ) return false;
+            double value = ((Number) key).doubleValue();
+            return value >= 1 && value <= size && value == Math.floor( value );
+        }
+    }
+}
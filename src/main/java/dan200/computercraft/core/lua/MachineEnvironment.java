@@ -5,12 +5,15 @@
  */
 package dan200.computercraft.core.lua;
 
+import dan200.computercraft.api.filesystem.IMount;
 import dan200.computercraft.api.lua.ILuaContext;
 import dan200.computercraft.core.computer.GlobalEnvironment;
 import dan200.computercraft.core.computer.TimeoutState;
 import dan200.computercraft.core.metrics.Metrics;
 import dan200.computercraft.core.metrics.MetricsObserver;
 
+import javax.annotation.Nullable;
+
 /**
  * Arguments used to construct a {@link ILuaMachine}.
  *
@@ -39,11 +42,24 @@
      */
     public final String hostString;
 
-    public MachineEnvironment( ILuaContext context, MetricsObserver metrics, TimeoutState timeout, String hostString )
+    /**
+     * The computer's ROM mount, or {@code null} if not available. Files from this mount may be shared between
+     * computers, and so this must not be writable by the computer.
+     */
+    @Nullable
+    public final IMount rom;
+
+    public MachineEnvironment( ILuaContext context, MetricsObserver metrics, TimeoutState timeout, String hostString, @Nullable IMount rom )
     {
         this.context = context;
         this.metrics = metrics;
         this.timeout = timeout;
         this.hostString = hostString;
+        this.rom = rom;
+    }
+
+    public MachineEnvironment( ILuaContext context, MetricsObserver metrics, TimeoutState timeout, String hostString )
+    {
+        this( context, metrics, timeout, hostString, null );
     }
 }
@@ -0,0 +1,246 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.lua;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.MapMaker;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.api.filesystem.IMount;
+import org.squiddev.cobalt.LuaString;
+import org.squiddev.cobalt.LuaTable;
+import org.squiddev.cobalt.Prototype;
+import org.squiddev.cobalt.compiler.CompileException;
+import org.squiddev.cobalt.compiler.LoadState;
+import org.squiddev.cobalt.compiler.LuaC;
+import org.squiddev.cobalt.function.LuaClosure;
+import org.squiddev.cobalt.function.LuaInterpretedFunction;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A compiler which shares compiled prototypes of the bios and ROM between every computer.
+ * <p>
+ * Every computer loads the same bios, APIs and programs (such as {@code shell} and {@code textutils}) when it starts.
+ * Rather than compiling these for each computer, we cache the compiled {@link Prototype}s, keyed by the chunk's name and
+ * a hash of its contents. Each computer then gets its own function, bound to its own globals.
+ * <p>
+ * The cache is shared by the whole server, so we cannot trust a chunk's name to tell us where it came from - any
+ * program can call {@code load(src, "@rom/x")}. Instead, we only cache chunks whose contents match the bios or a file
+ * in the ROM (see {@link #trust(byte[])} and {@link #trustMount(IMount)}). The cache is also bounded by the total size
+ * of its sources, so the same file loaded under many names cannot grow it without limit.
+ * <p>
+ * Prototypes are never modified after compilation, so are safe to share between {@link org.squiddev.cobalt.LuaState}s.
+ * Other code (such as user programs) is compiled as normal.
+ */
+final class PrototypeCache implements LoadState.LuaCompiler
+{
+    static final PrototypeCache INSTANCE = new PrototypeCache();
+
+    /**
+     * The maximum total size of the cached sources. The ROM is currently around 500KiB.
+     */
+    private static final int MAX_WEIGHT = 4 << 20;
+
+    private final Cache<Key, Prototype> cache = CacheBuilder.newBuilder()
+        .maximumWeight( MAX_WEIGHT )
+        .<Key, Prototype>weigher( ( k, v ) -> k.size )
+        .build();
+
+    /**
+     * Hashes of chunks which may be cached.
+     */
+    private final Set<HashCode> trusted = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Mounts whose files we have already trusted. The ROM mount is shared between computers, so this means we only
+     * read it once.
+     */
+    private final Set<IMount> trustedMounts = Collections.newSetFromMap( new MapMaker().weakKeys().makeMap() );
+
+    PrototypeCache()
+    {
+    }
+
+    @Override
+    public LuaClosure load( InputStream stream, LuaString filename, LuaString mode, LuaTable env ) throws IOException, CompileException
+    {
+        if( trusted.isEmpty() || (mode != null && mode.toString().indexOf( 't' ) < 0) )
+        {
+            return LuaC.INSTANCE.load( stream, filename, mode, env );
+        }
+
+        byte[] contents = ByteStreams.toByteArray( stream );
+        HashCode hash;
+        if( (contents.length > 0 && contents[0] == LoadState.LUA_SIGNATURE[0])
+            || !trusted.contains( hash = Hashing.sha256().hashBytes( contents ) ) )
+        {
+            // Don't cache binary chunks, or anything which isn't part of the bios or ROM.
+            return LuaC.INSTANCE.load( new ByteArrayInputStream( contents ), filename, mode, env );
+        }
+
+        String name = filename.toString();
+        Prototype prototype;
+        try
+        {
+            Key key = new Key( name, hash, contents.length );
+            prototype = cache.get( key, () -> LuaC.compile( new ByteArrayInputStream( contents ), name ) );
+        }
+        catch( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if( cause instanceof CompileException ) throw (CompileException) cause;
+            if( cause instanceof IOException ) throw (IOException) cause;
+            throw new IllegalStateException( "Error compiling " + name, cause );
+        }
+
+        return new LuaInterpretedFunction( prototype, env );
+    }
+
+    /**
+     * Allow a chunk with the given contents to be cached.
+     *
+     * @param contents The chunk's contents.
+     */
+    void trust( byte[] contents )
+    {
+        trusted.add( Hashing.sha256().hashBytes( contents ) );
+    }
+
+    /**
+     * Allow every Lua file in a mount to be cached. This should only be used on mounts which cannot be modified by
+     * computers, such as the ROM. Each mount is only read once, so files changed after this point (for instance, after
+     * a data pack reload) will not be cached.
+     *
+     * @param mount The mount to trust.
+     */
+    void trustMount( IMount mount )
+    {
+        if( !trustedMounts.add( mount ) ) return;
+
+        try
+        {
+            trustDirectory( mount, "" );
+        }
+        catch( IOException e )
+        {
+            ComputerCraft.log.error( "Error reading ROM files to cache", e );
+        }
+    }
+
+    private void trustDirectory( IMount mount, String path ) throws IOException
+    {
+        List<String> children = new ArrayList<>();
+        mount.list( path, children );
+        for( String child : children )
+        {
+            String childPath = path.isEmpty() ? child : path + "/" + child;
+            if( mount.isDirectory( childPath ) )
+            {
+                trustDirectory( mount, childPath );
+            }
+            else if( childPath.endsWith( ".lua" ) )
+            {
+                byte[] contents;
+                try( ReadableByteChannel channel = mount.openForRead( childPath ) )
+                {
+                    contents = ByteStreams.toByteArray( Channels.newInputStream( channel ) );
+                }
+
+                trust( contents );
+                trust( readAsText( contents ) );
+            }
+        }
+    }
+
+    /**
+     * Convert a file's contents to the string returned by {@code fs.open(path, "r").readAll()}, which is what
+     * {@code loadfile} actually passes to {@code load}.
+     *
+     * @param contents The file's contents.
+     * @return The contents as read by a text-mode handle.
+     */
+    private static byte[] readAsText( byte[] contents )
+    {
+        // Normalise line endings and drop a single trailing newline, as readAll() does.
+        byte[] text = new byte[contents.length];
+        int length = 0;
+        boolean ascii = true;
+        for( int i = 0; i < contents.length; i++ )
+        {
+            byte b = contents[i];
+            if( b == '\r' )
+            {
+                text[length++] = '\n';
+                if( i + 1 < contents.length && contents[i + 1] == '\n' ) i++;
+            }
+            else
+            {
+                if( b < 0 ) ascii = false;
+                text[length++] = b;
+            }
+        }
+        if( length > 0 && text[length - 1] == '\n' ) length--;
+
+        if( ascii ) return text.length == length ? text : Arrays.copyOf( text, length );
+
+        // Non-ASCII text is decoded and then converted to a Lua string, which replaces characters outside of Latin-1.
+        String decoded = new String( text, 0, length, StandardCharsets.UTF_8 );
+        byte[] result = new byte[decoded.length()];
+        for( int i = 0; i < result.length; i++ )
+        {
+            char c = decoded.charAt( i );
+            result[i] = c < 256 ? (byte) c : (byte) '?';
+        }
+        return result;
+    }
+
+    private static final class Key
+    {
+        final String name;
+        final HashCode hash;
+        final int size;
+
+        Key( String name, HashCode hash, int size )
+        {
+            this.name = name;
+            this.hash = hash;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if( this == o ) return true;
+            if( !(o instanceof Key) ) return false;
+
+            Key other = (Key) o;
+            return name.equals( other.name ) && hash.equals( other.hash );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash( name, hash );
+        }
+    }
+}
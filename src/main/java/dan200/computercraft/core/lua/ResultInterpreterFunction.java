@@ -78,7 +78,7 @@ protected Varargs invoke( LuaState state, DebugFrame debugFrame, Varargs args )
         }
 
         ILuaCallback callback = results.getCallback();
-        Varargs ret = machine.toValues( results.getResult() );
+        Varargs ret = machine.toValues( results );
 
         if( callback == null ) return ret;
 
@@ -108,7 +108,7 @@ protected Varargs resumeThis( LuaState state, Container container, Varargs args
             throw new LuaError( "Java Exception Thrown: " + t, 0 );
         }
 
-        Varargs ret = machine.toValues( results.getResult() );
+        Varargs ret = machine.toValues( results );
 
         ILuaCallback callback = results.getCallback();
         if( callback == null ) return ret;
@@ -0,0 +1,183 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size, log-linear histogram of non-negative values, used to estimate percentiles of {@link Metric.Event}s.
+ * <p>
+ * Values are sorted into buckets, in a similar manner to HDR histograms. Each power of two is split into
+ * {@link #SUB_BUCKETS} equally sized buckets, so every bucket covers at most 1/{@link #SUB_BUCKETS} of its lower bound.
+ * Values of 2<sup>{@link #MAX_BITS}</sup> or more (about 18 minutes when measuring nanoseconds) are counted in the last
+ * bucket. Powers of two always fall on a bucket boundary, so the number of values below a power of two is exact (see
+ * {@link Snapshot#countBelow(int)}).
+ * <p>
+ * This class is thread-safe, and may be observed from multiple threads at once.
+ */
+public final class Histogram
+{
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /**
+     * The number of buckets each power of two is split into.
+     */
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The number of bits needed to store the maximum value.
+     */
+    public static final int MAX_BITS = 40;
+
+    private static final int BUCKETS = bucket( (1L << MAX_BITS) - 1 ) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray( BUCKETS );
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Add a value to this histogram.
+     *
+     * @param value The value to add.
+     */
+    public void observe( long value )
+    {
+        counts.incrementAndGet( bucket( value ) );
+        sum.add( value );
+    }
+
+    /**
+     * Add all values from a snapshot to this histogram, for instance to merge several histograms together.
+     *
+     * @param snapshot The snapshot to add.
+     */
+    public void add( Snapshot snapshot )
+    {
+        for( int i = 0; i < BUCKETS; i++ )
+        {
+            long count = snapshot.counts[i];
+            if( count != 0 ) counts.addAndGet( i, count );
+        }
+        sum.add( snapshot.sum );
+    }
+
+    /**
+     * Take a snapshot of this histogram. As this does not block observers, values observed while the snapshot is being
+     * taken may or may not be included.
+     *
+     * @return The current state of this histogram.
+     */
+    public Snapshot snapshot()
+    {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for( int i = 0; i < counts.length; i++ ) total += counts[i] = this.counts.get( i );
+        return new Snapshot( counts, total, sum.sum() );
+    }
+
+    static int bucket( long value )
+    {
+        if( value < SUB_BUCKETS ) return value < 0 ? 0 : (int) value;
+        if( value >= 1L << MAX_BITS ) return BUCKETS - 1;
+
+        // The position of the highest bit, and then the next SUB_BUCKET_BITS bits after it.
+        int shift = 63 - Long.numberOfLeadingZeros( value ) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * Get the largest value which would be placed in a bucket.
+     *
+     * @param bucket The bucket's index.
+     * @return The bucket's upper bound (inclusive).
+     */
+    static long upperBound( int bucket )
+    {
+        if( bucket < SUB_BUCKETS ) return bucket;
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = bucket - (long) shift * SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * An immutable copy of a {@link Histogram}.
+     */
+    public static final class Snapshot
+    {
+        private final long[] counts;
+        private final long total;
+        private final long sum;
+
+        private Snapshot( long[] counts, long total, long sum )
+        {
+            this.counts = counts;
+            this.total = total;
+            this.sum = sum;
+        }
+
+        /**
+         * The total number of values observed.
+         *
+         * @return The number of values in this histogram.
+         */
+        public long count()
+        {
+            return total;
+        }
+
+        /**
+         * The sum of all values observed.
+         *
+         * @return The sum of the values in this histogram.
+         */
+        public long sum()
+        {
+            return sum;
+        }
+
+        /**
+         * Count the number of observed values below a power of two. As powers of two always start a new bucket, this
+         * is exact, unlike {@link #percentile(double)}.
+         *
+         * @param bits The power of two, between 0 (inclusive) and {@link #MAX_BITS} (exclusive).
+         * @return The number of values less than 2<sup>bits</sup>.
+         */
+        public long countBelow( int bits )
+        {
+            if( bits < 0 || bits >= MAX_BITS ) throw new IllegalArgumentException( "bits out of range" );
+
+            long count = 0;
+            int end = bucket( 1L << bits );
+            for( int i = 0; i < end; i++ ) count += counts[i];
+            return count;
+        }
+
+        /**
+         * Estimate a percentile of the observed values.
+         * <p>
+         * This returns the upper bound of the bucket containing the given percentile, and so may over-estimate values
+         * by up to 1/{@link #SUB_BUCKETS}.
+         *
+         * @param percentile The percentile to find, between 0 and 100.
+         * @return The estimated value, or 0 if no values have been observed.
+         */
+        public long percentile( double percentile )
+        {
+            if( total == 0 ) return 0;
+
+            long rank = Math.max( 1, (long) Math.ceil( total * (percentile / 100) ) );
+            long seen = 0;
+            for( int i = 0; i < counts.length; i++ )
+            {
+                seen += counts[i];
+                if( seen >= rank ) return upperBound( i );
+            }
+
+            return upperBound( counts.length - 1 );
+        }
+    }
+}
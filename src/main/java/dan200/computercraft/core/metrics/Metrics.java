@@ -17,6 +17,15 @@ private Metrics()
     public static final Metric.Event COMPUTER_TASKS = new Metric.Event( "computer_tasks", "ms", Metric::formatTime );
     public static final Metric.Event SERVER_TASKS = new Metric.Event( "server_tasks", "ms", Metric::formatTime );
 
+    public static final Metric.Counter COMPUTER_THREADS_ADDED = new Metric.Counter( "computer_threads_added" );
+    public static final Metric.Counter COMPUTER_THREADS_REMOVED = new Metric.Counter( "computer_threads_removed" );
+
+    public static final Metric.Event EVENTS_PER_SLICE = new Metric.Event( "events_per_slice", "", Metric::formatDefault );
+    public static final Metric.Counter EVENTS_COALESCED = new Metric.Counter( "events_coalesced" );
+    public static final Metric.Counter EVENTS_DROPPED = new Metric.Counter( "events_dropped" );
+
+    public static final Metric.Event BOOT_WAIT = new Metric.Event( "boot_wait", "ms", Metric::formatTime );
+
     public static final Metric.Counter PERIPHERAL_OPS = new Metric.Counter( "peripheral" );
     public static final Metric.Counter FS_OPS = new Metric.Counter( "fs" );
 
@@ -29,6 +38,7 @@ private Metrics()
 
     public static final Metric.Counter COROUTINES_CREATED = new Metric.Counter( "coroutines_created" );
     public static final Metric.Counter COROUTINES_DISPOSED = new Metric.Counter( "coroutines_dead" );
+    public static final Metric.Counter COROUTINES_VIRTUAL = new Metric.Counter( "coroutines_virtual" );
 
     public static final Metric.Counter TURTLE_OPS = new Metric.Counter( "turtle_ops" );
 
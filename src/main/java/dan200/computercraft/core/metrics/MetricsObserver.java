@@ -19,6 +19,22 @@
  */
 public interface MetricsObserver
 {
+    /**
+     * An observer which ignores all metrics.
+     */
+    MetricsObserver NONE = new MetricsObserver()
+    {
+        @Override
+        public void observe( Metric.Counter counter )
+        {
+        }
+
+        @Override
+        public void observe( Metric.Event event, long value )
+        {
+        }
+    };
+
     /**
      * Increment a counter by 1.
      *
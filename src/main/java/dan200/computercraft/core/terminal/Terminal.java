@@ -13,11 +13,15 @@
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.nio.ByteBuffer;
+import java.util.BitSet;
 
 public class Terminal
 {
     private static final String BASE_16 = "0123456789abcdef";
 
+    private static final int CHANGED_CURSOR = 1;
+    private static final int CHANGED_PALETTE = 2;
+
     private int width;
     private int height;
     private final boolean colour;
@@ -36,6 +40,14 @@
 
     private final @Nullable Runnable onChanged;
 
+    /**
+     * The set of rows which have changed since the last call to {@link #writeChanges(PacketBuffer)}.
+     */
+    private final BitSet changedRows = new BitSet();
+    private boolean cursorChanged = false;
+    private boolean paletteChanged = false;
+    private boolean sizeChanged = false;
+
     public Terminal( int width, int height, boolean colour )
     {
         this( width, height, colour, null );
@@ -68,6 +80,7 @@ public synchronized void reset()
         cursorY = 0;
         cursorBlink = false;
         clear();
+        cursorChanged = paletteChanged = true;
         setChanged();
         palette.resetColours();
     }
@@ -130,6 +143,7 @@ else if( this.width == oldWidth )
                 backgroundColour[i].write( oldBackgroundColour[i] );
             }
         }
+        sizeChanged = true;
         setChanged();
     }
 
@@ -139,6 +153,7 @@ public void setCursorPos( int x, int y )
         {
             cursorX = x;
             cursorY = y;
+            cursorChanged = true;
             setChanged();
         }
     }
@@ -148,6 +163,7 @@ public void setCursorBlink( boolean blink )
         if( cursorBlink != blink )
         {
             cursorBlink = blink;
+            cursorChanged = true;
             setChanged();
         }
     }
@@ -157,6 +173,7 @@ public void setTextColour( int colour )
         if( cursorColour != colour )
         {
             cursorColour = colour;
+            cursorChanged = true;
             setChanged();
         }
     }
@@ -166,6 +183,7 @@ public void setBackgroundColour( int colour )
         if( cursorBackgroundColour != colour )
         {
             cursorBackgroundColour = colour;
+            cursorChanged = true;
             setChanged();
         }
     }
@@ -210,6 +228,7 @@ public synchronized void blit( ByteBuffer text, ByteBuffer textColour, ByteBuffe
             this.text[y].write( text, x );
             this.textColour[y].write( textColour, x );
             this.backgroundColour[y].write( backgroundColour, x );
+            changedRows.set( y );
             setChanged();
         }
     }
@@ -223,6 +242,7 @@ public synchronized void write( String text )
             this.text[y].write( text, x );
             textColour[y].fill( BASE_16.charAt( cursorColour ), x, x + text.length() );
             backgroundColour[y].fill( BASE_16.charAt( cursorBackgroundColour ), x, x + text.length() );
+            changedRows.set( y );
             setChanged();
         }
     }
@@ -253,6 +273,7 @@ public synchronized void scroll( int yDiff )
             text = newText;
             textColour = newTextColour;
             backgroundColour = newBackgroundColour;
+            changedRows.set( 0, height );
             setChanged();
         }
     }
@@ -265,6 +286,7 @@ public synchronized void clear()
             textColour[y].fill( BASE_16.charAt( cursorColour ) );
             backgroundColour[y].fill( BASE_16.charAt( cursorBackgroundColour ) );
         }
+        changedRows.set( 0, height );
         setChanged();
     }
 
@@ -276,6 +298,7 @@ public synchronized void clearLine()
             text[y].fill( ' ' );
             textColour[y].fill( BASE_16.charAt( cursorColour ) );
             backgroundColour[y].fill( BASE_16.charAt( cursorBackgroundColour ) );
+            changedRows.set( y );
             setChanged();
         }
     }
@@ -294,6 +317,7 @@ public synchronized void setLine( int y, String text, String textColour, String
         this.text[y].write( text );
         this.textColour[y].write( textColour );
         this.backgroundColour[y].write( backgroundColour );
+        changedRows.set( y );
         setChanged();
     }
 
@@ -320,6 +344,27 @@ public final void setChanged()
         if( onChanged != null ) onChanged.run();
     }
 
+    /**
+     * Mark this terminal's palette as having changed. This should be called after modifying {@link #getPalette()}.
+     */
+    public final void setPaletteChanged()
+    {
+        synchronized( this )
+        {
+            paletteChanged = true;
+        }
+        setChanged();
+    }
+
+    /**
+     * Forget which parts of the terminal have changed, as if {@link #writeChanges(PacketBuffer)} had been called.
+     */
+    public synchronized void clearChanges()
+    {
+        changedRows.clear();
+        cursorChanged = paletteChanged = sizeChanged = false;
+    }
+
     public synchronized void write( PacketBuffer buffer )
     {
         buffer.writeInt( cursorX );
@@ -327,23 +372,66 @@ public synchronized void write( PacketBuffer buffer )
         buffer.writeBoolean( cursorBlink );
         buffer.writeByte( cursorBackgroundColour << 4 | cursorColour );
 
-        for( int y = 0; y < height; y++ )
+        for( int y = 0; y < height; y++ ) writeRow( buffer, y );
+
+        palette.write( buffer );
+    }
+
+    /**
+     * Write the parts of this terminal which have changed since the last call to this method, and then forget about
+     * those changes.
+     * <p>
+     * Only modified rows are written, along with the cursor and palette if they have changed. This may then be
+     * applied with {@link #readChanges(PacketBuffer)} to a terminal which was up-to-date as of the previous call.
+     *
+     * @param buffer The buffer to write to.
+     * @return Whether the changes could be written. If the terminal has been resized, nothing is written and a full
+     * snapshot (using {@link #write(PacketBuffer)}) should be sent instead.
+     */
+    public synchronized boolean writeChanges( PacketBuffer buffer )
+    {
+        if( sizeChanged )
         {
-            TextBuffer text = this.text[y];
-            TextBuffer textColour = this.textColour[y];
-            TextBuffer backColour = backgroundColour[y];
+            clearChanges();
+            return false;
+        }
 
-            for( int x = 0; x < width; x++ ) buffer.writeByte( text.charAt( x ) & 0xFF );
-            for( int x = 0; x < width; x++ )
-            {
-                buffer.writeByte( getColour(
-                    backColour.charAt( x ), Colour.BLACK ) << 4 |
-                    getColour( textColour.charAt( x ), Colour.WHITE )
-                );
-            }
+        buffer.writeByte( (cursorChanged ? CHANGED_CURSOR : 0) | (paletteChanged ? CHANGED_PALETTE : 0) );
+        if( cursorChanged )
+        {
+            buffer.writeInt( cursorX );
+            buffer.writeInt( cursorY );
+            buffer.writeBoolean( cursorBlink );
+            buffer.writeByte( cursorBackgroundColour << 4 | cursorColour );
         }
 
-        palette.write( buffer );
+        buffer.writeVarInt( changedRows.cardinality() );
+        for( int y = changedRows.nextSetBit( 0 ); y >= 0; y = changedRows.nextSetBit( y + 1 ) )
+        {
+            buffer.writeVarInt( y );
+            writeRow( buffer, y );
+        }
+
+        if( paletteChanged ) palette.write( buffer );
+
+        clearChanges();
+        return true;
+    }
+
+    private void writeRow( PacketBuffer buffer, int y )
+    {
+        TextBuffer text = this.text[y];
+        TextBuffer textColour = this.textColour[y];
+        TextBuffer backColour = backgroundColour[y];
+
+        for( int x = 0; x < width; x++ ) buffer.writeByte( text.charAt( x ) & 0xFF );
+        for( int x = 0; x < width; x++ )
+        {
+            buffer.writeByte( getColour(
+                backColour.charAt( x ), Colour.BLACK ) << 4 |
+                getColour( textColour.charAt( x ), Colour.WHITE )
+            );
+        }
     }
 
     public synchronized void read( PacketBuffer buffer )
@@ -356,25 +444,72 @@ public synchronized void read( PacketBuffer buffer )
         cursorBackgroundColour = (cursorColour >> 4) & 0xF;
         this.cursorColour = cursorColour & 0xF;
 
-        for( int y = 0; y < height; y++ )
+        for( int y = 0; y < height; y++ ) readRow( buffer, y );
+
+        palette.read( buffer );
+        markAllChanged();
+        setChanged();
+    }
+
+    /**
+     * Apply a set of changes written by {@link #writeChanges(PacketBuffer)}.
+     *
+     * @param buffer The buffer to read from.
+     */
+    public synchronized void readChanges( PacketBuffer buffer )
+    {
+        int flags = buffer.readByte();
+        if( (flags & CHANGED_CURSOR) != 0 )
         {
-            TextBuffer text = this.text[y];
-            TextBuffer textColour = this.textColour[y];
-            TextBuffer backColour = backgroundColour[y];
+            cursorX = buffer.readInt();
+            cursorY = buffer.readInt();
+            cursorBlink = buffer.readBoolean();
+
+            byte cursorColour = buffer.readByte();
+            cursorBackgroundColour = (cursorColour >> 4) & 0xF;
+            this.cursorColour = cursorColour & 0xF;
+            cursorChanged = true;
+        }
 
-            for( int x = 0; x < width; x++ ) text.setChar( x, (char) (buffer.readByte() & 0xFF) );
-            for( int x = 0; x < width; x++ )
-            {
-                byte colour = buffer.readByte();
-                backColour.setChar( x, BASE_16.charAt( (colour >> 4) & 0xF ) );
-                textColour.setChar( x, BASE_16.charAt( colour & 0xF ) );
-            }
+        int rows = buffer.readVarInt();
+        for( int i = 0; i < rows; i++ )
+        {
+            int y = buffer.readVarInt();
+            if( y < 0 || y >= height ) throw new IndexOutOfBoundsException( "Row " + y + " is out of bounds" );
+            readRow( buffer, y );
+            changedRows.set( y );
+        }
+
+        if( (flags & CHANGED_PALETTE) != 0 )
+        {
+            palette.read( buffer );
+            paletteChanged = true;
         }
 
-        palette.read( buffer );
         setChanged();
     }
 
+    private void readRow( PacketBuffer buffer, int y )
+    {
+        TextBuffer text = this.text[y];
+        TextBuffer textColour = this.textColour[y];
+        TextBuffer backColour = backgroundColour[y];
+
+        for( int x = 0; x < width; x++ ) text.setChar( x, (char) (buffer.readByte() & 0xFF) );
+        for( int x = 0; x < width; x++ )
+        {
+            byte colour = buffer.readByte();
+            backColour.setChar( x, BASE_16.charAt( (colour >> 4) & 0xF ) );
+            textColour.setChar( x, BASE_16.charAt( colour & 0xF ) );
+        }
+    }
+
+    private void markAllChanged()
+    {
+        changedRows.set( 0, height );
+        cursorChanged = paletteChanged = true;
+    }
+
     public synchronized CompoundNBT writeToNBT( CompoundNBT nbt )
     {
         nbt.putInt( "term_cursorX", cursorX );
@@ -421,6 +556,7 @@ public synchronized void readFromNBT( CompoundNBT nbt )
         }
 
         palette.readFromNBT( nbt );
+        markAllChanged();
         setChanged();
     }
 
@@ -11,6 +11,7 @@
 import dan200.computercraft.shared.command.CommandComputerCraft;
 import dan200.computercraft.shared.computer.core.ServerContext;
 import dan200.computercraft.shared.computer.metrics.ComputerMBean;
+import dan200.computercraft.shared.computer.metrics.OpenMetricsExporter;
 import dan200.computercraft.shared.peripheral.modem.wireless.WirelessNetwork;
 import net.minecraft.entity.EntityType;
 import net.minecraft.loot.ConstantRange;
@@ -20,7 +21,9 @@
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.dedicated.DedicatedServer;
 import net.minecraft.util.ResourceLocation;
+import net.minecraft.world.World;
 import net.minecraftforge.event.*;
+import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.event.server.FMLServerStartingEvent;
@@ -54,6 +57,15 @@ public static void onServerTick( TickEvent.ServerTickEvent event )
         }
     }
 
+    @SubscribeEvent
+    public static void onWorldUnload( WorldEvent.Unload event )
+    {
+        if( !event.getWorld().isClientSide() && event.getWorld() instanceof World )
+        {
+            WirelessNetwork.onWorldUnload( (World) event.getWorld() );
+        }
+    }
+
     @SubscribeEvent
     public static void onRegisterCommand( RegisterCommandsEvent event )
     {
@@ -72,6 +84,7 @@ public static void onServerStarting( FMLServerStartingEvent event )
         resetState();
         ServerContext.create( server );
         ComputerMBean.start( server );
+        OpenMetricsExporter.start( server );
     }
 
     @SubscribeEvent
@@ -82,6 +95,7 @@ public static void onServerStopped( FMLServerStoppedEvent event )
 
     private static void resetState()
     {
+        OpenMetricsExporter.stop();
         ServerContext.close();
         WirelessNetwork.resetNetworks();
         NetworkUtils.reset();
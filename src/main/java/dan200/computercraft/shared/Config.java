@@ -15,6 +15,7 @@
 import dan200.computercraft.core.apis.http.NetworkUtils;
 import dan200.computercraft.core.apis.http.options.Action;
 import dan200.computercraft.core.apis.http.options.AddressRuleConfig;
+import dan200.computercraft.shared.peripheral.modem.wireless.WirelessNetwork;
 import dan200.computercraft.shared.peripheral.monitor.MonitorRenderer;
 import net.minecraftforge.common.ForgeConfigSpec;
 import net.minecraftforge.common.ForgeConfigSpec.ConfigValue;
@@ -40,14 +41,21 @@
     private static final ConfigValue<Integer> computerSpaceLimit;
     private static final ConfigValue<Integer> floppySpaceLimit;
     private static final ConfigValue<Integer> maximumFilesOpen;
+    private static final ConfigValue<Boolean> coalesceFileFlushes;
     private static final ConfigValue<Boolean> disableLua51Features;
     private static final ConfigValue<String> defaultComputerSettings;
     private static final ConfigValue<Boolean> logComputerErrors;
     private static final ConfigValue<Boolean> commandRequireCreative;
 
     private static final ConfigValue<Integer> computerThreads;
+    private static final ConfigValue<Boolean> shardedComputerThreads;
+    private static final ConfigValue<Boolean> adaptiveComputerThreads;
+    private static final ConfigValue<Integer> minComputerThreads;
+    private static final ConfigValue<Boolean> virtualThreadCoroutines;
     private static final ConfigValue<Integer> maxMainGlobalTime;
     private static final ConfigValue<Integer> maxMainComputerTime;
+    private static final ConfigValue<Integer> maxConcurrentBoots;
+    private static final ConfigValue<Boolean> warmupMethods;
 
     private static final ConfigValue<Boolean> httpEnabled;
     private static final ConfigValue<Boolean> httpWebsocketEnabled;
@@ -59,6 +67,10 @@
     private static final ConfigValue<Integer> httpDownloadBandwidth;
     private static final ConfigValue<Integer> httpUploadBandwidth;
 
+    private static final ConfigValue<Boolean> metricsExporterEnabled;
+    private static final ConfigValue<String> metricsExporterAddress;
+    private static final ConfigValue<Integer> metricsExporterPort;
+
     private static final ConfigValue<Boolean> commandBlockEnabled;
     private static final ConfigValue<Integer> modemRange;
     private static final ConfigValue<Integer> modemHighAltitudeRange;
@@ -112,6 +124,10 @@ private Config() {}
                 .translation( TRANSLATION_PREFIX + "maximum_open_files" )
                 .defineInRange( "maximum_open_files", ComputerCraft.maximumFilesOpen, 0, Integer.MAX_VALUE );
 
+            coalesceFileFlushes = builder
+                .comment( "Write files which have been flushed to disk together once a tick, rather than\nimmediately. This reduces disk writes on servers with many computers logging to\nfiles, but flush no longer guarantees that data has been written: it may take up\nto a tick to reach the disk, and other open handles will not see it until then." )
+                .define( "coalesce_file_flushes", ComputerCraft.coalesceFileFlushes );
+
             disableLua51Features = builder
                 .comment( "Set this to true to disable Lua 5.1 functions that will be removed in a future\nupdate. Useful for ensuring forward compatibility of your programs now." )
                 .define( "disable_lua51_features", ComputerCraft.disableLua51Features );
@@ -137,6 +153,25 @@ private Config() {}
                 .worldRestart()
                 .defineInRange( "computer_threads", ComputerCraft.computerThreads, 1, Integer.MAX_VALUE );
 
+            shardedComputerThreads = builder
+                .comment( "Give each computer thread its own queue of computers to run, rather than sharing a\nsingle queue. Idle threads will take work from other threads' queues. This may\nreduce overhead on servers with many computer threads and many active computers." )
+                .worldRestart()
+                .define( "sharded_computer_threads", ComputerCraft.shardedComputerThreads );
+
+            adaptiveComputerThreads = builder
+                .comment( "Adjust the number of computer threads while the server is running, adding threads when\ncomputers are waiting to run and removing them when they are idle. The number of\nthreads will be between \"min_computer_threads\" and \"computer_threads\". This has no\neffect when \"sharded_computer_threads\" is enabled." )
+                .worldRestart()
+                .define( "adaptive_computer_threads", ComputerCraft.adaptiveComputerThreads );
+
+            minComputerThreads = builder
+                .comment( "The minimum number of computer threads to run when \"adaptive_computer_threads\" is\nenabled." )
+                .worldRestart()
+                .defineInRange( "min_computer_threads", ComputerCraft.minComputerThreads, 1, Integer.MAX_VALUE );
+
+            virtualThreadCoroutines = builder
+                .comment( "Run Lua coroutines on virtual threads rather than OS threads. This greatly reduces the\ncost of programs which create many coroutines. This requires Java 21 or later, and\nhas no effect on older versions." )
+                .define( "virtual_thread_coroutines", ComputerCraft.virtualThreadCoroutines );
+
             maxMainGlobalTime = builder
                 .comment( "The maximum time that can be spent executing tasks in a single tick, in\nmilliseconds.\nNote, we will quite possibly go over this limit, as there's no way to tell how\nlong a will take - this aims to be the upper bound of the average time." )
                 .defineInRange( "max_main_global_time", (int) TimeUnit.NANOSECONDS.toMillis( ComputerCraft.maxMainGlobalTime ), 1, Integer.MAX_VALUE );
@@ -145,6 +180,14 @@ private Config() {}
                 .comment( "The ideal maximum time a computer can execute for in a tick, in milliseconds.\nNote, we will quite possibly go over this limit, as there's no way to tell how\nlong a will take - this aims to be the upper bound of the average time." )
                 .defineInRange( "max_main_computer_time", (int) TimeUnit.NANOSECONDS.toMillis( ComputerCraft.maxMainComputerTime ), 1, Integer.MAX_VALUE );
 
+            maxConcurrentBoots = builder
+                .comment( "The maximum number of computers which may be starting up at once. When a world is\nloaded, any further computers will wait to be turned on, with those closest to a\nplayer starting first. Set to 0 to start all computers at once." )
+                .defineInRange( "max_concurrent_boots", ComputerCraft.maxConcurrentBoots, 0, Integer.MAX_VALUE );
+
+            warmupMethods = builder
+                .comment( "Prepare the methods of ComputerCraft's APIs and peripherals in the background once\ncomputers have started, rather than when each is first used. This uses a little more\nmemory, as methods are prepared for APIs and peripherals which may never be used." )
+                .define( "warmup_methods", ComputerCraft.warmupMethods );
+
             builder.pop();
         }
 
@@ -192,6 +235,28 @@ private Config() {}
             builder.pop();
         }
 
+        { // Metrics
+            builder.comment( "Export metrics about computers to external monitoring tools." );
+            builder.push( "metrics" );
+
+            metricsExporterEnabled = builder
+                .comment( "Enable an HTTP endpoint which exports metrics about all computers in the OpenMetrics\n(Prometheus) format. These can then be found at http://<address>:<port>/metrics." )
+                .worldRestart()
+                .define( "enabled", ComputerCraft.metricsExporterEnabled );
+
+            metricsExporterAddress = builder
+                .comment( "The address to listen on. By default, this is only accessible from the local machine." )
+                .worldRestart()
+                .define( "address", ComputerCraft.metricsExporterAddress );
+
+            metricsExporterPort = builder
+                .comment( "The port to listen on." )
+                .worldRestart()
+                .defineInRange( "port", ComputerCraft.metricsExporterPort, 1, 65535 );
+
+            builder.pop();
+        }
+
         { // Peripherals
             builder.comment( "Various options relating to peripherals." );
             builder.push( "peripheral" );
@@ -308,6 +373,7 @@ public static void sync()
         ComputerCraft.computerSpaceLimit = computerSpaceLimit.get();
         ComputerCraft.floppySpaceLimit = floppySpaceLimit.get();
         ComputerCraft.maximumFilesOpen = maximumFilesOpen.get();
+        ComputerCraft.coalesceFileFlushes = coalesceFileFlushes.get();
         ComputerCraft.disableLua51Features = disableLua51Features.get();
         ComputerCraft.defaultComputerSettings = defaultComputerSettings.get();
         ComputerCraft.computerThreads = computerThreads.get();
@@ -316,8 +382,14 @@ public static void sync()
 
         // Execution
         ComputerCraft.computerThreads = computerThreads.get();
+        ComputerCraft.shardedComputerThreads = shardedComputerThreads.get();
+        ComputerCraft.adaptiveComputerThreads = adaptiveComputerThreads.get();
+        ComputerCraft.minComputerThreads = minComputerThreads.get();
+        ComputerCraft.virtualThreadCoroutines = virtualThreadCoroutines.get();
         ComputerCraft.maxMainGlobalTime = TimeUnit.MILLISECONDS.toNanos( maxMainGlobalTime.get() );
         ComputerCraft.maxMainComputerTime = TimeUnit.MILLISECONDS.toNanos( maxMainComputerTime.get() );
+        ComputerCraft.maxConcurrentBoots = maxConcurrentBoots.get();
+        ComputerCraft.warmupMethods = warmupMethods.get();
 
         // HTTP
         ComputerCraft.httpEnabled = httpEnabled.get();
@@ -331,6 +403,11 @@ public static void sync()
         ComputerCraft.httpUploadBandwidth = httpUploadBandwidth.get();
         NetworkUtils.reloadConfig();
 
+        // Metrics
+        ComputerCraft.metricsExporterEnabled = metricsExporterEnabled.get();
+        ComputerCraft.metricsExporterAddress = metricsExporterAddress.get();
+        ComputerCraft.metricsExporterPort = metricsExporterPort.get();
+
         // Peripheral
         ComputerCraft.enableCommandBlock = commandBlockEnabled.get();
         ComputerCraft.maxNotesPerTick = maxNotesPerTick.get();
@@ -338,6 +415,7 @@ public static void sync()
         ComputerCraft.modemHighAltitudeRange = modemHighAltitudeRange.get();
         ComputerCraft.modemRangeDuringStorm = modemRangeDuringStorm.get();
         ComputerCraft.modemHighAltitudeRangeDuringStorm = modemHighAltitudeRangeDuringStorm.get();
+        WirelessNetwork.reloadConfig();
         ComputerCraft.monitorBandwidth = monitorBandwidth.get();
 
         // Turtles
@@ -354,6 +354,8 @@ public static void init( FMLCommonSetupEvent event )
         ComputerCraftAPI.registerGenericSource( new InventoryMethods() );
         ComputerCraftAPI.registerGenericSource( new FluidMethods() );
         ComputerCraftAPI.registerGenericSource( new EnergyMethods() );
+
+        WarmupClasses.register();
     }
 
     private static void registerProviders()
@@ -0,0 +1,46 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.shared;
+
+import dan200.computercraft.core.asm.MethodWarmup;
+import dan200.computercraft.shared.computer.apis.CommandAPI;
+import dan200.computercraft.shared.computer.blocks.ComputerPeripheral;
+import dan200.computercraft.shared.computer.upload.TransferredFile;
+import dan200.computercraft.shared.computer.upload.TransferredFiles;
+import dan200.computercraft.shared.peripheral.commandblock.CommandBlockPeripheral;
+import dan200.computercraft.shared.peripheral.diskdrive.DiskDrivePeripheral;
+import dan200.computercraft.shared.peripheral.modem.wired.WiredModemPeripheral;
+import dan200.computercraft.shared.peripheral.modem.wireless.WirelessModemPeripheral;
+import dan200.computercraft.shared.peripheral.monitor.MonitorPeripheral;
+import dan200.computercraft.shared.peripheral.printer.PrinterPeripheral;
+import dan200.computercraft.shared.peripheral.speaker.SpeakerPeripheral;
+import dan200.computercraft.shared.pocket.apis.PocketAPI;
+import dan200.computercraft.shared.turtle.apis.TurtleAPI;
+import dan200.computercraft.shared.turtle.upgrades.CraftingTablePeripheral;
+
+/**
+ * Registers the mod's own APIs, Lua objects and peripherals with {@link MethodWarmup}. Core classes are registered by
+ * {@link MethodWarmup} itself.
+ * <p>
+ * This list is checked against the classes which actually declare {@link dan200.computercraft.api.lua.LuaFunction}s by
+ * {@code WarmupClassesTest}, so new APIs and peripherals should be added here.
+ */
+final class WarmupClasses
+{
+    private WarmupClasses()
+    {
+    }
+
+    static void register()
+    {
+        MethodWarmup.addLuaClasses( CommandAPI.class, PocketAPI.class, TurtleAPI.class, TransferredFiles.class, TransferredFile.class );
+        MethodWarmup.addPeripheralClasses(
+            ComputerPeripheral.class, CommandBlockPeripheral.class, DiskDrivePeripheral.class, WirelessModemPeripheral.class,
+            WiredModemPeripheral.class, MonitorPeripheral.class, PrinterPeripheral.class, SpeakerPeripheral.class,
+            CraftingTablePeripheral.class
+        );
+    }
+}
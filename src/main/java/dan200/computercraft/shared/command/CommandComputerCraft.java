@@ -372,12 +372,15 @@ private static BasicComputerMetricsObserver getMetricsInstance( CommandSource so
     private static final List<AggregatedMetric> DEFAULT_FIELDS = Arrays.asList(
         new AggregatedMetric( Metrics.COMPUTER_TASKS, Aggregate.COUNT ),
         new AggregatedMetric( Metrics.COMPUTER_TASKS, Aggregate.NONE ),
-        new AggregatedMetric( Metrics.COMPUTER_TASKS, Aggregate.AVG )
+        new AggregatedMetric( Metrics.COMPUTER_TASKS, Aggregate.AVG ),
+        new AggregatedMetric( Metrics.COMPUTER_TASKS, Aggregate.P50 ),
+        new AggregatedMetric( Metrics.COMPUTER_TASKS, Aggregate.P90 ),
+        new AggregatedMetric( Metrics.COMPUTER_TASKS, Aggregate.P99 )
     );
 
     private static int displayTimings( CommandSource source, AggregatedMetric sortField, List<AggregatedMetric> fields ) throws CommandSyntaxException
     {
-        return displayTimings( source, getMetricsInstance( source ).getTimings(), sortField, fields );
+        return displayTimings( source, getMetricsInstance( source ).getSnapshot(), sortField, fields );
     }
 
     private static int displayTimings( CommandSource source, List<ComputerMetrics> timings, AggregatedMetric sortField, List<AggregatedMetric> fields ) throws CommandSyntaxException
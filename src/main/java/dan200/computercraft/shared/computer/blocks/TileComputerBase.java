@@ -188,7 +188,7 @@ public void tick()
         // If the computer isn't on and should be, then turn it on
         if( startOn || (fresh && on) )
         {
-            computer.turnOn();
+            computer.queueTurnOn();
             startOn = false;
         }
 
@@ -197,7 +197,7 @@ public void tick()
         fresh = false;
         computerID = computer.getID();
         label = computer.getLabel();
-        on = computer.isOn();
+        on = computer.isOn() || computer.isTurnOnQueued();
 
         // Update the block state if needed. We don't fire a block update intentionally,
         // as this only really is needed on the client side.
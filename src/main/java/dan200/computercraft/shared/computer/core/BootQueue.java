@@ -0,0 +1,288 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.shared.computer.core;
+
+import com.google.common.annotations.VisibleForTesting;
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.core.metrics.Metrics;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.entity.player.ServerPlayerEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.server.ServerWorld;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Limits how many computers may be booting at once.
+ * <p>
+ * When a world is loaded, every computer which was on will try to start in the same tick. Rather than starting them
+ * all at once (and flooding the computer thread with bios boots and startup scripts), computers are queued, and only
+ * {@link ComputerCraft#maxConcurrentBoots} are allowed to boot at a time. Computers closest to a player are started
+ * first, so the ones people are actually looking at come up quickly.
+ * <p>
+ * A computer is considered to be booting from the point it is admitted until it has turned on (or
+ * {@link #BOOT_TIMEOUT} ticks have passed, in case it failed to start).
+ * <p>
+ * {@link #update()} is called on the server thread, but computers may be turned on or off (and so removed from the
+ * queue) from the computer thread, so all access is guarded by {@link #lock}.
+ *
+ * @param <T> The type of computer to boot. This is always {@link ServerComputer}, apart from in tests.
+ * @see ServerComputer#queueTurnOn()
+ */
+final class BootQueue<T>
+{
+    /**
+     * The maximum number of ticks a computer is considered to be booting for.
+     */
+    static final int BOOT_TIMEOUT = 5 * 20;
+
+    static final Computers<ServerComputer> SERVER_COMPUTERS = new Computers<ServerComputer>()
+    {
+        @Override
+        public boolean isOn( ServerComputer computer )
+        {
+            return computer.isOn();
+        }
+
+        @Override
+        public double distanceToPlayer( ServerComputer computer )
+        {
+            ServerWorld world = computer.getWorld();
+            BlockPos pos = computer.getPosition();
+            if( world == null || pos == null ) return Double.POSITIVE_INFINITY;
+
+            double distance = Double.POSITIVE_INFINITY;
+            for( ServerPlayerEntity player : world.players() )
+            {
+                distance = Math.min( distance, player.distanceToSqr( pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5 ) );
+            }
+            return distance;
+        }
+
+        @Override
+        public void turnOn( ServerComputer computer, long waited )
+        {
+            computer.getMetrics().observe( Metrics.BOOT_WAIT, waited );
+            if( !computer.isOn() ) computer.getComputer().turnOn();
+        }
+    };
+
+    private final Computers<T> computers;
+
+    private final Object lock = new Object();
+
+    /**
+     * Computers waiting to boot, and the time ({@link System#nanoTime()}) they were queued at. This is kept in
+     * insertion order, so computers the same distance from a player are started in the order they were queued.
+     */
+    private final Map<T, Long> pending = new LinkedHashMap<>();
+
+    /**
+     * Computers which are currently booting, and the number of ticks since they were admitted.
+     */
+    private final Object2IntMap<T> booting = new Object2IntOpenHashMap<>();
+
+    /**
+     * A copy of {@code pending.size()}, which may be read without holding the lock.
+     */
+    private volatile int size;
+
+    BootQueue( Computers<T> computers )
+    {
+        this.computers = computers;
+    }
+
+    void add( T computer )
+    {
+        synchronized( lock )
+        {
+            if( !booting.containsKey( computer ) ) pending.putIfAbsent( computer, System.nanoTime() );
+            size = pending.size();
+        }
+    }
+
+    void remove( T computer )
+    {
+        synchronized( lock )
+        {
+            pending.remove( computer );
+            booting.removeInt( computer );
+            size = pending.size();
+        }
+    }
+
+    void cancel( T computer )
+    {
+        synchronized( lock )
+        {
+            pending.remove( computer );
+            size = pending.size();
+        }
+    }
+
+    boolean contains( T computer )
+    {
+        synchronized( lock )
+        {
+            return pending.containsKey( computer );
+        }
+    }
+
+    /**
+     * Get the number of computers waiting to boot.
+     *
+     * @return The length of this queue.
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Determine whether there are no computers waiting to boot or currently booting.
+     *
+     * @return Whether this queue is idle.
+     */
+    boolean isIdle()
+    {
+        synchronized( lock )
+        {
+            return pending.isEmpty() && booting.isEmpty();
+        }
+    }
+
+    /**
+     * Get the number of computers which have been started, but have not finished booting.
+     *
+     * @return The number of booting computers.
+     */
+    @VisibleForTesting
+    int booting()
+    {
+        synchronized( lock )
+        {
+            return booting.size();
+        }
+    }
+
+    void clear()
+    {
+        synchronized( lock )
+        {
+            pending.clear();
+            booting.clear();
+            size = 0;
+        }
+    }
+
+    /**
+     * Start as many queued computers as we can. This should be called once a tick, before computers are ticked.
+     */
+    void update()
+    {
+        synchronized( lock )
+        {
+            retireBooted();
+            admit();
+            size = pending.size();
+        }
+    }
+
+    private void retireBooted()
+    {
+        ObjectIterator<Object2IntMap.Entry<T>> iterator = booting.object2IntEntrySet().iterator();
+        while( iterator.hasNext() )
+        {
+            Object2IntMap.Entry<T> entry = iterator.next();
+            int ticks = entry.getIntValue() + 1;
+            if( computers.isOn( entry.getKey() ) || ticks > BOOT_TIMEOUT )
+            {
+                iterator.remove();
+            }
+            else
+            {
+                entry.setValue( ticks );
+            }
+        }
+    }
+
+    private void admit()
+    {
+        if( pending.isEmpty() ) return;
+
+        int limit = ComputerCraft.maxConcurrentBoots;
+        int slots = limit <= 0 ? pending.size() : limit - booting.size();
+        if( slots <= 0 ) return;
+
+        long now = System.nanoTime();
+        if( slots >= pending.size() )
+        {
+            for( Map.Entry<T, Long> entry : pending.entrySet() ) start( entry.getKey(), now - entry.getValue() );
+            pending.clear();
+            return;
+        }
+
+        List<Candidate<T>> candidates = new ArrayList<>( pending.size() );
+        for( T computer : pending.keySet() ) candidates.add( new Candidate<>( computer, computers.distanceToPlayer( computer ) ) );
+        candidates.sort( Comparator.comparingDouble( x -> x.distance ) );
+
+        for( int i = 0; i < slots; i++ )
+        {
+            T computer = candidates.get( i ).computer;
+            start( computer, now - pending.remove( computer ) );
+        }
+    }
+
+    private void start( T computer, long waited )
+    {
+        if( !computers.isOn( computer ) ) booting.put( computer, 0 );
+        computers.turnOn( computer, waited );
+    }
+
+    /**
+     * The operations the boot queue needs to perform on a computer.
+     *
+     * @param <T> The type of computer.
+     */
+    interface Computers<T>
+    {
+        boolean isOn( T computer );
+
+        /**
+         * Get the (squared) distance between this computer and the nearest player.
+         *
+         * @param computer The computer.
+         * @return The squared distance, or {@link Double#POSITIVE_INFINITY} if there are no players nearby.
+         */
+        double distanceToPlayer( T computer );
+
+        /**
+         * Turn on a computer which has been admitted from the queue.
+         *
+         * @param computer The computer to turn on. This may already be on.
+         * @param waited   The time (in nanoseconds) this computer spent in the queue.
+         */
+        void turnOn( T computer, long waited );
+    }
+
+    private static final class Candidate<T>
+    {
+        final T computer;
+        final double distance;
+
+        Candidate( T computer, double distance )
+        {
+            this.computer = computer;
+            this.distance = distance;
+        }
+    }
+}
@@ -18,17 +18,15 @@
 import dan200.computercraft.core.terminal.Terminal;
 import dan200.computercraft.shared.computer.menu.ComputerMenu;
 import dan200.computercraft.shared.network.NetworkHandler;
-import dan200.computercraft.shared.network.NetworkMessage;
 import dan200.computercraft.shared.network.client.ComputerTerminalClientMessage;
 import dan200.computercraft.shared.network.client.TerminalState;
 import net.minecraft.entity.player.ServerPlayerEntity;
-import net.minecraft.inventory.container.Container;
-import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.server.ServerWorld;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.function.Function;
 
 public class ServerComputer implements InputHandler, ComputerEnvironment
 {
@@ -96,6 +94,11 @@ public Computer getComputer()
         return computer;
     }
 
+    protected Terminal getTerminal()
+    {
+        return terminal;
+    }
+
     protected void markTerminalChanged()
     {
         terminalChanged.set( true );
@@ -114,7 +117,50 @@ public void tickServer()
 
     protected void onTerminalChanged()
     {
-        sendToAllInteracting( c -> new ComputerTerminalClientMessage( c, getTerminalState() ) );
+        // Players with the menu open already have a copy of the terminal (sent when the menu was opened), so we only
+        // need to send what has changed. If nobody is watching, we just forget the changes.
+        List<ServerPlayerEntity> viewers = getViewers();
+        if( viewers.isEmpty() )
+        {
+            terminal.clearChanges();
+        }
+        else
+        {
+            sendTerminalChanges( viewers, TerminalState.ofChanges( terminal ) );
+        }
+    }
+
+    /**
+     * Get all players who have this computer's menu open.
+     *
+     * @return The players viewing this computer.
+     */
+    protected final List<ServerPlayerEntity> getViewers()
+    {
+        List<ServerPlayerEntity> viewers = new ArrayList<>( 0 );
+        for( ServerPlayerEntity player : world.getServer().getPlayerList().getPlayers() )
+        {
+            if( player.containerMenu instanceof ComputerMenu && ((ComputerMenu) player.containerMenu).getComputer() == this )
+            {
+                viewers.add( player );
+            }
+        }
+        return viewers;
+    }
+
+    /**
+     * Send changes to the terminal to players viewing this computer.
+     *
+     * @param viewers The players viewing this computer, as returned by {@link #getViewers()}.
+     * @param changes The changes to the terminal.
+     * @see TerminalState#ofChanges(Terminal)
+     */
+    protected final void sendTerminalChanges( List<ServerPlayerEntity> viewers, TerminalState changes )
+    {
+        for( ServerPlayerEntity player : viewers )
+        {
+            NetworkHandler.sendToPlayer( player, new ComputerTerminalClientMessage( player.containerMenu, changes ) );
+        }
     }
 
     public TerminalState getTerminalState()
@@ -154,19 +200,6 @@ public void close()
         ServerContext.get( world.getServer() ).registry().remove( instanceID );
     }
 
-    private void sendToAllInteracting( Function<Container, NetworkMessage> createPacket )
-    {
-        MinecraftServer server = world.getServer();
-
-        for( ServerPlayerEntity player : server.getPlayerList().getPlayers() )
-        {
-            if( player.containerMenu instanceof ComputerMenu && ((ComputerMenu) player.containerMenu).getComputer() == this )
-            {
-                NetworkHandler.sendToPlayer( player, createPacket.apply( player.containerMenu ) );
-            }
-        }
-    }
-
     protected void onRemoved()
     {
     }
@@ -201,13 +234,37 @@ public ComputerState getState()
     public void turnOn()
     {
         // Turn on
+        ServerContext.get( world.getServer() ).registry().cancelBoot( this );
         computer.turnOn();
     }
 
+    /**
+     * Turn this computer on once there is capacity to do so. This should be used instead of {@link #turnOn()} when
+     * many computers may start at once, such as when they are loaded with the world.
+     *
+     * @see ServerComputerRegistry#getBootQueueDepth()
+     */
+    public void queueTurnOn()
+    {
+        if( !isOn() ) ServerContext.get( world.getServer() ).registry().queueBoot( this );
+    }
+
+    /**
+     * Determine whether this computer is waiting to be turned on.
+     *
+     * @return Whether this computer is waiting to be turned on.
+     * @see #queueTurnOn()
+     */
+    public boolean isTurnOnQueued()
+    {
+        return ServerContext.get( world.getServer() ).registry().isBootQueued( this );
+    }
+
     @Override
     public void shutdown()
     {
         // Shutdown
+        ServerContext.get( world.getServer() ).registry().cancelBoot( this );
         computer.shutdown();
     }
 
@@ -5,6 +5,8 @@
  */
 package dan200.computercraft.shared.computer.core;
 
+import dan200.computercraft.core.asm.MethodWarmup;
+import dan200.computercraft.shared.computer.metrics.GlobalMetrics;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 
@@ -17,9 +19,22 @@
 {
     private static final Random RANDOM = new Random();
 
+    /**
+     * The number of ticks the boot queue must be idle for before we start {@link MethodWarmup}.
+     */
+    private static final int WARMUP_DELAY = 5 * 20;
+
     private final int sessionId = RANDOM.nextInt();
     private final Int2ObjectMap<ServerComputer> computers = new Int2ObjectOpenHashMap<>();
+    private final BootQueue<ServerComputer> bootQueue = new BootQueue<>( BootQueue.SERVER_COMPUTERS );
+    private final GlobalMetrics metrics;
     private int nextInstanceId;
+    private int idleTicks;
+
+    ServerComputerRegistry( GlobalMetrics metrics )
+    {
+        this.metrics = metrics;
+    }
 
     public int getSessionID()
     {
@@ -45,6 +60,19 @@ public ServerComputer get( int sessionId, int instanceId )
 
     void update()
     {
+        bootQueue.update();
+
+        // Generate methods once computers have finished starting, so we don't compete with them. All generic sources
+        // are registered by now, so this is safe to do.
+        if( !bootQueue.isIdle() )
+        {
+            idleTicks = 0;
+        }
+        else if( idleTicks < WARMUP_DELAY && ++idleTicks == WARMUP_DELAY )
+        {
+            MethodWarmup.start();
+        }
+
         Iterator<ServerComputer> it = getComputers().iterator();
         while( it.hasNext() )
         {
@@ -53,6 +81,8 @@ void update()
             {
                 computer.unload();
                 computer.onRemoved();
+                bootQueue.remove( computer );
+                metrics.computerRemoved( computer );
                 it.remove();
             }
             else
@@ -76,6 +106,8 @@ void remove( int instanceID )
         {
             computer.unload();
             computer.onRemoved();
+            bootQueue.remove( computer );
+            metrics.computerRemoved( computer );
         }
 
         computers.remove( instanceID );
@@ -83,8 +115,39 @@ void remove( int instanceID )
 
     void close()
     {
-        for( ServerComputer computer : getComputers() ) computer.unload();
+        for( ServerComputer computer : getComputers() )
+        {
+            computer.unload();
+            metrics.computerRemoved( computer );
+        }
         computers.clear();
+        bootQueue.clear();
+    }
+
+    void queueBoot( ServerComputer computer )
+    {
+        bootQueue.add( computer );
+    }
+
+    void cancelBoot( ServerComputer computer )
+    {
+        bootQueue.cancel( computer );
+    }
+
+    boolean isBootQueued( ServerComputer computer )
+    {
+        return bootQueue.contains( computer );
+    }
+
+    /**
+     * Get the number of computers waiting to be started.
+     *
+     * @return The number of queued computers.
+     * @see ServerComputer#queueTurnOn()
+     */
+    public int getBootQueueDepth()
+    {
+        return bootQueue.size();
     }
 
     public Collection<ServerComputer> getComputers()
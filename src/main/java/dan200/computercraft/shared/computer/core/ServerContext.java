@@ -10,8 +10,10 @@
 import dan200.computercraft.api.ComputerCraftAPI;
 import dan200.computercraft.api.filesystem.IMount;
 import dan200.computercraft.core.ComputerContext;
+import dan200.computercraft.core.computer.ComputerThread;
 import dan200.computercraft.core.computer.GlobalEnvironment;
 import dan200.computercraft.core.computer.mainthread.MainThread;
+import dan200.computercraft.core.lua.CobaltLuaMachine;
 import dan200.computercraft.shared.CommonHooks;
 import dan200.computercraft.shared.computer.metrics.GlobalMetrics;
 import dan200.computercraft.shared.util.IDAssigner;
@@ -45,8 +47,8 @@
 
     private final MinecraftServer server;
 
-    private final ServerComputerRegistry registry = new ServerComputerRegistry();
     private final GlobalMetrics metrics = new GlobalMetrics();
+    private final ServerComputerRegistry registry = new ServerComputerRegistry( metrics );
     private final ComputerContext context;
     private final MainThread mainThread;
     private final IDAssigner idAssigner;
@@ -57,7 +59,13 @@ private ServerContext( MinecraftServer server )
         this.server = server;
         storageDir = server.getWorldPath( FOLDER );
         mainThread = new MainThread();
-        context = new ComputerContext( new Environment( server ), ComputerCraft.computerThreads, mainThread );
+        context = new ComputerContext(
+            new Environment( server ), new ComputerThread(
+                ComputerCraft.adaptiveComputerThreads ? Math.min( ComputerCraft.minComputerThreads, ComputerCraft.computerThreads ) : ComputerCraft.computerThreads,
+                ComputerCraft.computerThreads, ComputerCraft.shardedComputerThreads, metrics.serverObserver()
+            ),
+            mainThread, CobaltLuaMachine::new
+        );
         idAssigner = new IDAssigner( storageDir.resolve( "ids.json" ) );
     }
 
@@ -123,7 +131,7 @@ public static ServerContext get( MinecraftServer server )
      *
      * @return The current {@link ComputerContext}.
      */
-    ComputerContext computerContext()
+    public ComputerContext computerContext()
     {
         return context;
     }
@@ -7,8 +7,10 @@
 
 import com.google.common.base.CaseFormat;
 import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.core.metrics.Histogram;
 import dan200.computercraft.core.metrics.Metric;
 import dan200.computercraft.core.metrics.Metrics;
+import dan200.computercraft.core.metrics.MetricsObserver;
 import dan200.computercraft.shared.computer.core.ServerComputer;
 import dan200.computercraft.shared.computer.core.ServerContext;
 import dan200.computercraft.shared.computer.metrics.basic.Aggregate;
@@ -23,8 +25,10 @@
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.LongSupplier;
 
 /**
@@ -37,6 +41,7 @@ public final class ComputerMBean implements DynamicMBean, ComputerMetricsObserve
     private final Map<String, LongSupplier> attributes = new HashMap<>();
     private final Int2ObjectMap<Counter> values = new Int2ObjectOpenHashMap<>();
     private final MBeanInfo info;
+    private final MetricsObserver observer = new Observer();
 
     private ComputerMBean()
     {
@@ -120,20 +125,22 @@ public MBeanInfo getMBeanInfo()
     private void observe( Metric field, long change )
     {
         Counter counter = values.get( field.id() );
-        counter.value.addAndGet( change );
-        counter.count.incrementAndGet();
+        counter.value.add( change );
+        counter.count.increment();
+        if( counter.histogram != null ) counter.histogram.observe( change );
     }
 
     @Override
-    public void observe( ServerComputer computer, Metric.Counter counter )
+    public MetricsObserver forComputer( ServerComputer computer )
     {
-        observe( counter, 1 );
+        // We only track totals across all computers, so can share a single observer.
+        return observer;
     }
 
     @Override
-    public void observe( ServerComputer computer, Metric.Event event, long value )
+    public MetricsObserver forServer()
     {
-        observe( event, value );
+        return observer;
     }
 
     private MBeanAttributeInfo addAttribute( String name, String description, LongSupplier value )
@@ -144,7 +151,7 @@ private MBeanAttributeInfo addAttribute( String name, String description, LongSu
 
     private void add( String name, Metric field, List<MBeanAttributeInfo> attributes )
     {
-        Counter counter = new Counter();
+        Counter counter = new Counter( field instanceof Metric.Event );
         values.put( field.id(), counter );
 
         String prettyName = new AggregatedMetric( field, Aggregate.NONE ).displayName().getString();
@@ -153,12 +160,47 @@ private void add( String name, Metric field, List<MBeanAttributeInfo> attributes
         {
             String countName = new AggregatedMetric( field, Aggregate.COUNT ).displayName().getString();
             attributes.add( addAttribute( name + "Count", countName, counter.count::longValue ) );
+
+            Histogram histogram = Objects.requireNonNull( counter.histogram );
+            addPercentile( name, field, Aggregate.P50, 50, histogram, attributes );
+            addPercentile( name, field, Aggregate.P90, 90, histogram, attributes );
+            addPercentile( name, field, Aggregate.P99, 99, histogram, attributes );
         }
     }
 
+    private void addPercentile( String name, Metric field, Aggregate aggregate, double percentile, Histogram histogram, List<MBeanAttributeInfo> attributes )
+    {
+        String displayName = new AggregatedMetric( field, aggregate ).displayName().getString();
+        attributes.add( addAttribute(
+            name + aggregate.id().toUpperCase( Locale.ROOT ), displayName,
+            () -> histogram.snapshot().percentile( percentile )
+        ) );
+    }
+
     private static class Counter
     {
-        final AtomicLong value = new AtomicLong();
-        final AtomicLong count = new AtomicLong();
+        final LongAdder value = new LongAdder();
+        final LongAdder count = new LongAdder();
+        final @Nullable Histogram histogram;
+
+        Counter( boolean histogram )
+        {
+            this.histogram = histogram ? new Histogram() : null;
+        }
+    }
+
+    private final class Observer implements MetricsObserver
+    {
+        @Override
+        public void observe( Metric.Counter counter )
+        {
+            ComputerMBean.this.observe( counter, 1 );
+        }
+
+        @Override
+        public void observe( Metric.Event event, long value )
+        {
+            ComputerMBean.this.observe( event, value );
+        }
     }
 }
@@ -5,31 +5,50 @@
  */
 package dan200.computercraft.shared.computer.metrics;
 
-import dan200.computercraft.core.metrics.Metric;
 import dan200.computercraft.core.metrics.MetricsObserver;
 import dan200.computercraft.shared.computer.core.ServerComputer;
 
 /**
  * A global version of {@link MetricsObserver}, which monitors multiple computers.
+ * <p>
+ * Rather than being notified of every metric on every computer, global observers provide a {@link MetricsObserver} for
+ * each individual computer. These are cached by the computer, and receive metrics directly, without any global
+ * synchronisation. The global observer may then aggregate these when its results are requested.
  */
 public interface ComputerMetricsObserver
 {
     /**
-     * Increment a computer's counter by 1.
+     * Get the observer for a specific computer.
+     * <p>
+     * This may be called several times for the same computer (for instance, if multiple threads observe a metric at
+     * once), and so should return the same observer each time. The returned observer may be called from multiple
+     * threads at once, and so must be thread-safe. Prefer striped accumulators (such as
+     * {@link java.util.concurrent.atomic.LongAdder}) to locks, as observers are called very frequently.
      *
-     * @param computer The computer which incremented its counter.
-     * @param counter  The counter to observe.
-     * @see MetricsObserver#observe(Metric.Counter)
+     * @param computer The computer to observe.
+     * @return The observer for this computer.
      */
-    void observe( ServerComputer computer, Metric.Counter counter );
+    MetricsObserver forComputer( ServerComputer computer );
 
     /**
-     * Observe a single instance of an event.
+     * Get the observer for metrics which are not tied to a specific computer, such as those reported by the computer
+     * scheduler.
      *
-     * @param computer The computer which incremented its counter.
-     * @param event    The event to observe.
-     * @param value    The value corresponding to this event.
-     * @see MetricsObserver#observe(Metric.Event, long)
+     * @return The observer for server-wide metrics.
      */
-    void observe( ServerComputer computer, Metric.Event event, long value );
+    default MetricsObserver forServer()
+    {
+        return MetricsObserver.NONE;
+    }
+
+    /**
+     * Called when a computer is removed from the world, and so will not report any more metrics.
+     * <p>
+     * This is called on the server thread, after the computer has been unloaded.
+     *
+     * @param computer The computer which was removed.
+     */
+    default void onComputerRemoved( ServerComputer computer )
+    {
+    }
 }
@@ -11,24 +11,36 @@
 import dan200.computercraft.shared.computer.core.ServerContext;
 import dan200.computercraft.shared.computer.metrics.basic.BasicComputerMetricsObserver;
 
-import java.util.ArrayList;
+import javax.annotation.Nullable;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.UUID;
 
 /**
  * The global metrics system.
+ * <p>
+ * Metrics are dispatched to {@link ComputerMetricsObserver}s without any locking. Each computer's observer caches the
+ * {@link MetricsObserver} provided by every registered {@link ComputerMetricsObserver}, only fetching new ones when the
+ * set of observers changes.
  *
  * @see ServerContext#metrics() To obtain an instance of this system.
  */
 public final class GlobalMetrics
 {
-    volatile boolean enabled = false;
-    final Object lock = new Object();
-    final List<ComputerMetricsObserver> trackers = new ArrayList<>();
+    private static final ComputerMetricsObserver[] NO_TRACKERS = new ComputerMetricsObserver[0];
+
+    private final Object lock = new Object();
+
+    /**
+     * The currently registered observers. This array is never modified, instead being replaced whenever observers are
+     * added or removed.
+     */
+    private volatile ComputerMetricsObserver[] trackers = NO_TRACKERS;
 
     private final HashMap<UUID, BasicComputerMetricsObserver> instances = new HashMap<>();
 
+    private final MetricsObserver serverObserver = new ServerObserver();
+
     /**
      * Get a metrics observer for a specific player. This will not be active until
      * {@link BasicComputerMetricsObserver#start()} is called.
@@ -48,6 +60,8 @@ public BasicComputerMetricsObserver getMetricsInstance( UUID uuid )
 
     /**
      * Add a new global metrics observer. This will receive metrics data for all computers.
+     * <p>
+     * If the observer is already registered, all computers will request a new {@link MetricsObserver} from it.
      *
      * @param tracker The observer to add.
      */
@@ -55,9 +69,18 @@ public void addObserver( ComputerMetricsObserver tracker )
     {
         synchronized( lock )
         {
-            if( trackers.contains( tracker ) ) return;
-            trackers.add( tracker );
-            enabled = true;
+            ComputerMetricsObserver[] trackers = this.trackers;
+            if( Arrays.asList( trackers ).contains( tracker ) )
+            {
+                // Publish a new array, forcing computers to refresh their cached observers.
+                this.trackers = trackers.clone();
+            }
+            else
+            {
+                trackers = Arrays.copyOf( trackers, trackers.length + 1 );
+                trackers[trackers.length - 1] = tracker;
+                this.trackers = trackers;
+            }
         }
     }
 
@@ -70,8 +93,14 @@ public void removeObserver( ComputerMetricsObserver tracker )
     {
         synchronized( lock )
         {
-            trackers.remove( tracker );
-            enabled = !trackers.isEmpty();
+            ComputerMetricsObserver[] trackers = this.trackers;
+            int index = Arrays.asList( trackers ).indexOf( tracker );
+            if( index < 0 ) return;
+
+            ComputerMetricsObserver[] newTrackers = new ComputerMetricsObserver[trackers.length - 1];
+            System.arraycopy( trackers, 0, newTrackers, 0, index );
+            System.arraycopy( trackers, index + 1, newTrackers, index, trackers.length - index - 1 );
+            this.trackers = newTrackers.length == 0 ? NO_TRACKERS : newTrackers;
         }
     }
 
@@ -86,36 +115,96 @@ public MetricsObserver createMetricObserver( ServerComputer computer )
         return new DispatchObserver( computer );
     }
 
+    /**
+     * Notify all registered observers that a computer has been removed.
+     *
+     * @param computer The computer which was removed.
+     * @see ComputerMetricsObserver#onComputerRemoved(ServerComputer)
+     */
+    public void computerRemoved( ServerComputer computer )
+    {
+        for( ComputerMetricsObserver tracker : trackers ) tracker.onComputerRemoved( computer );
+    }
+
+    /**
+     * Get the observer for metrics which are not tied to a specific computer. This delegates to
+     * {@link ComputerMetricsObserver#forServer()} on all registered observers.
+     *
+     * @return The server-wide observer.
+     */
+    public MetricsObserver serverObserver()
+    {
+        return serverObserver;
+    }
+
+    private final class ServerObserver implements MetricsObserver
+    {
+        @Override
+        public void observe( Metric.Counter counter )
+        {
+            for( ComputerMetricsObserver tracker : trackers ) tracker.forServer().observe( counter );
+        }
+
+        @Override
+        public void observe( Metric.Event event, long value )
+        {
+            for( ComputerMetricsObserver tracker : trackers ) tracker.forServer().observe( event, value );
+        }
+    }
+
     private final class DispatchObserver implements MetricsObserver
     {
         private final ServerComputer computer;
+        private volatile @Nullable Observers observers;
 
         private DispatchObserver( ServerComputer computer )
         {
             this.computer = computer;
         }
 
+        private MetricsObserver[] getObservers()
+        {
+            ComputerMetricsObserver[] trackers = GlobalMetrics.this.trackers;
+            if( trackers.length == 0 ) return Observers.EMPTY;
+
+            Observers observers = this.observers;
+            if( observers != null && observers.trackers == trackers ) return observers.observers;
+
+            // The set of trackers has changed since we last looked, so fetch new observers. Multiple threads may race
+            // here, but observers should return the same value for each computer, so this is safe.
+            MetricsObserver[] newObservers = new MetricsObserver[trackers.length];
+            for( int i = 0; i < trackers.length; i++ ) newObservers[i] = trackers[i].forComputer( computer );
+            this.observers = new Observers( trackers, newObservers );
+            return newObservers;
+        }
+
         @Override
         public void observe( Metric.Counter counter )
         {
-            if( !enabled ) return;
-            synchronized( lock )
-            {
-                // TODO: The lock here is nasty and aggressive. However, in my benchmarks I've found it has about
-                //  equivalent performance to a CoW list and atomics. Would be good to drill into this, as locks do not
-                //  scale well.
-                for( ComputerMetricsObserver observer : trackers ) observer.observe( computer, counter );
-            }
+            for( MetricsObserver observer : getObservers() ) observer.observe( counter );
         }
 
         @Override
         public void observe( Metric.Event event, long value )
         {
-            if( !enabled ) return;
-            synchronized( lock )
-            {
-                for( ComputerMetricsObserver observer : trackers ) observer.observe( computer, event, value );
-            }
+            for( MetricsObserver observer : getObservers() ) observer.observe( event, value );
+        }
+    }
+
+    /**
+     * The observers for a single computer, and the array of trackers they were fetched from.
+     */
+    private static final class Observers
+    {
+        static final MetricsObserver[] EMPTY = new MetricsObserver[0];
+
+        final ComputerMetricsObserver[] trackers;
+        final MetricsObserver[] observers;
+
+        Observers( ComputerMetricsObserver[] trackers, MetricsObserver[] observers )
+        {
+            this.trackers = trackers;
+            this.observers = observers;
         }
     }
 }
@@ -0,0 +1,405 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.shared.computer.metrics;
+
+import com.google.common.collect.MapMaker;
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.core.apis.http.NetworkUtils;
+import dan200.computercraft.core.metrics.Histogram;
+import dan200.computercraft.core.metrics.Metric;
+import dan200.computercraft.core.metrics.Metrics;
+import dan200.computercraft.core.metrics.MetricsObserver;
+import dan200.computercraft.shared.computer.core.ServerComputer;
+import dan200.computercraft.shared.computer.core.ServerContext;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.*;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectRBTreeMap;
+import net.minecraft.server.MinecraftServer;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exports metrics about all computers over HTTP, in the
+ * <a href="https://openmetrics.io/">OpenMetrics</a> (Prometheus) text format.
+ * <p>
+ * Most metrics are exported as a total across all computers. However, {@link Metrics#COMPUTER_TASKS} and
+ * {@link Metrics#SERVER_TASKS} are exported as per-computer histograms, making it possible to find computers which
+ * are hogging the computer or server thread. These use the same {@link Histogram}s as the rest of our metrics,
+ * exporting a bucket for each power of two nanoseconds. When a computer is removed, its counts are merged into a series
+ * labelled {@code computer_id="removed"}, so totals across all computers never decrease.
+ *
+ * @see ComputerCraft#metricsExporterEnabled
+ */
+public final class OpenMetricsExporter implements ComputerMetricsObserver
+{
+    private static final String PREFIX = "computercraft_";
+    private static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    /**
+     * The smallest and largest exported histogram buckets, as powers of two. These range from about 0.13ms to 17s.
+     *
+     * @see Histogram.Snapshot#countBelow(int)
+     */
+    private static final int MIN_BUCKET_BITS = 17;
+    private static final int MAX_BUCKET_BITS = 34;
+
+    private static @Nullable OpenMetricsExporter instance;
+
+    private final Totals[] totals;
+    private final ServerContext context;
+    private final MetricsObserver serverObserver = new ServerObserver();
+    private final Map<ServerComputer, ComputerObserver> computers = new MapMaker().weakKeys().makeMap();
+
+    /**
+     * The bucket counts of computers which have been removed. This lock also guards removing computers from
+     * {@link #computers}, so an export never sees a removed computer's counts in neither (or both) places.
+     */
+    private final Object removedLock = new Object();
+    private final Histogram removedComputerTasks = new Histogram();
+    private final Histogram removedServerTasks = new Histogram();
+    private @Nullable Channel channel;
+
+    private OpenMetricsExporter( ServerContext context )
+    {
+        this.context = context;
+        Metrics.init();
+
+        totals = new Totals[Metric.metrics().size()];
+        for( int i = 0; i < totals.length; i++ ) totals[i] = new Totals();
+    }
+
+    public static void start( MinecraftServer server )
+    {
+        stop();
+        if( !ComputerCraft.metricsExporterEnabled ) return;
+
+        OpenMetricsExporter exporter = new OpenMetricsExporter( ServerContext.get( server ) );
+        try
+        {
+            exporter.channel = new ServerBootstrap()
+                .group( NetworkUtils.LOOP_GROUP )
+                .channel( NioServerSocketChannel.class )
+                .childHandler( new ChannelInitializer<SocketChannel>()
+                {
+                    @Override
+                    protected void initChannel( SocketChannel ch )
+                    {
+                        ch.pipeline().addLast(
+                            new HttpServerCodec(),
+                            new HttpObjectAggregator( 8192 ),
+                            new Handler( exporter )
+                        );
+                    }
+                } )
+                .bind( ComputerCraft.metricsExporterAddress, ComputerCraft.metricsExporterPort )
+                .syncUninterruptibly().channel();
+        }
+        catch( Exception e )
+        {
+            ComputerCraft.log.error( "Failed to start metrics exporter on {}:{}", ComputerCraft.metricsExporterAddress, ComputerCraft.metricsExporterPort, e );
+            return;
+        }
+
+        ComputerCraft.log.info( "Exporting metrics on http://{}:{}/metrics", ComputerCraft.metricsExporterAddress, ComputerCraft.metricsExporterPort );
+        ServerContext.get( server ).metrics().addObserver( exporter );
+        instance = exporter;
+    }
+
+    public static void stop()
+    {
+        OpenMetricsExporter exporter = instance;
+        if( exporter == null ) return;
+        instance = null;
+
+        exporter.context.metrics().removeObserver( exporter );
+        Channel channel = exporter.channel;
+
+        // Wait for the socket to close, as start() may immediately try to bind to the same port.
+        if( channel != null ) channel.close().syncUninterruptibly();
+    }
+
+    @Override
+    public MetricsObserver forComputer( ServerComputer computer )
+    {
+        ComputerObserver observer = computers.get( computer );
+        if( observer != null ) return observer;
+
+        observer = new ComputerObserver( computer.getID() );
+        ComputerObserver existing = computers.putIfAbsent( computer, observer );
+        return existing != null ? existing : observer;
+    }
+
+    @Override
+    public MetricsObserver forServer()
+    {
+        return serverObserver;
+    }
+
+    @Override
+    public void onComputerRemoved( ServerComputer computer )
+    {
+        synchronized( removedLock )
+        {
+            ComputerObserver observer = computers.remove( computer );
+            if( observer == null ) return;
+
+            removedComputerTasks.add( observer.computerTasks.snapshot() );
+            removedServerTasks.add( observer.serverTasks.snapshot() );
+        }
+    }
+
+    private void observe( Metric metric, long value )
+    {
+        if( metric.id() >= totals.length ) return;
+
+        Totals total = totals[metric.id()];
+        total.count.increment();
+        total.sum.add( value );
+    }
+
+    /**
+     * Write all metrics in the OpenMetrics text format.
+     *
+     * @return The exported metrics.
+     */
+    String export()
+    {
+        // Merge histograms from computers which share the same ID, so we don't export duplicate series.
+        Int2ObjectMap<Histogram> computerTasks = new Int2ObjectRBTreeMap<>();
+        Int2ObjectMap<Histogram> serverTasks = new Int2ObjectRBTreeMap<>();
+        Histogram.Snapshot removedComputerTasks, removedServerTasks;
+        synchronized( removedLock )
+        {
+            for( ComputerObserver computer : new ArrayList<>( computers.values() ) )
+            {
+                computerTasks.computeIfAbsent( computer.id, x -> new Histogram() ).add( computer.computerTasks.snapshot() );
+                serverTasks.computeIfAbsent( computer.id, x -> new Histogram() ).add( computer.serverTasks.snapshot() );
+            }
+
+            removedComputerTasks = this.removedComputerTasks.snapshot();
+            removedServerTasks = this.removedServerTasks.snapshot();
+        }
+
+        StringBuilder out = new StringBuilder();
+        for( Metric metric : new TreeMap<>( Metric.metrics() ).values() )
+        {
+            if( metric == Metrics.COMPUTER_TASKS )
+            {
+                writeHistogram( out, metric, computerTasks, removedComputerTasks );
+            }
+            else if( metric == Metrics.SERVER_TASKS )
+            {
+                writeHistogram( out, metric, serverTasks, removedServerTasks );
+            }
+            else if( metric.id() < totals.length )
+            {
+                Totals total = totals[metric.id()];
+                String name = PREFIX + metric.name();
+                if( metric instanceof Metric.Counter )
+                {
+                    out.append( "# TYPE " ).append( name ).append( " counter\n" );
+                    out.append( name ).append( "_total " ).append( total.count.sum() ).append( '\n' );
+                }
+                else
+                {
+                    name += unitSuffix( metric );
+                    out.append( "# TYPE " ).append( name ).append( " summary\n" );
+                    writeUnit( out, name, metric );
+                    out.append( name ).append( "_count " ).append( total.count.sum() ).append( '\n' );
+                    out.append( name ).append( "_sum " ).append( formatValue( metric, total.sum.sum() ) ).append( '\n' );
+                }
+            }
+        }
+
+        String bootQueue = PREFIX + "boot_queue_depth";
+        out.append( "# TYPE " ).append( bootQueue ).append( " gauge\n" );
+        out.append( bootQueue ).append( ' ' ).append( context.registry().getBootQueueDepth() ).append( '\n' );
+
+        String threads = PREFIX + "computer_threads";
+        out.append( "# TYPE " ).append( threads ).append( " gauge\n" );
+        out.append( threads ).append( ' ' ).append( context.computerContext().computerScheduler().getWorkerLimit() ).append( '\n' );
+
+        out.append( "# EOF\n" );
+        return out.toString();
+    }
+
+    private static void writeHistogram( StringBuilder out, Metric metric, Int2ObjectMap<Histogram> histograms, Histogram.Snapshot removed )
+    {
+        String name = PREFIX + metric.name() + unitSuffix( metric );
+        out.append( "# TYPE " ).append( name ).append( " histogram\n" );
+        writeUnit( out, name, metric );
+
+        for( Int2ObjectMap.Entry<Histogram> entry : histograms.int2ObjectEntrySet() )
+        {
+            writeHistogramSeries( out, name, metric, "computer_id=\"" + entry.getIntKey() + "\"", entry.getValue().snapshot() );
+        }
+
+        // Only export removed computers once there are some, to avoid an empty series on every server.
+        if( removed.count() > 0 ) writeHistogramSeries( out, name, metric, "computer_id=\"removed\"", removed );
+    }
+
+    private static void writeHistogramSeries( StringBuilder out, String name, Metric metric, String labels, Histogram.Snapshot histogram )
+    {
+        for( int bits = MIN_BUCKET_BITS; bits <= MAX_BUCKET_BITS; bits++ )
+        {
+            // Values are integers, so "less than 2^bits" is the same as "at most 2^bits - 1".
+            String bound = formatValue( metric, (1L << bits) - 1 );
+            out.append( name ).append( "_bucket{" ).append( labels ).append( ",le=\"" ).append( bound ).append( "\"} " )
+                .append( histogram.countBelow( bits ) ).append( '\n' );
+        }
+        out.append( name ).append( "_bucket{" ).append( labels ).append( ",le=\"+Inf\"} " ).append( histogram.count() ).append( '\n' );
+
+        out.append( name ).append( "_count{" ).append( labels ).append( "} " ).append( histogram.count() ).append( '\n' );
+        out.append( name ).append( "_sum{" ).append( labels ).append( "} " )
+            .append( formatValue( metric, histogram.sum() ) ).append( '\n' );
+    }
+
+    private static void writeUnit( StringBuilder out, String name, Metric metric )
+    {
+        String unit = unit( metric );
+        if( !unit.isEmpty() ) out.append( "# UNIT " ).append( name ).append( ' ' ).append( unit ).append( '\n' );
+    }
+
+    /**
+     * Get the OpenMetrics unit for this metric. Time-based metrics are converted from nanoseconds to seconds.
+     *
+     * @param metric The metric to get the unit for.
+     * @return The metric's unit, or the empty string if it has none.
+     */
+    private static String unit( Metric metric )
+    {
+        switch( metric.unit() )
+        {
+            case "ms":
+                return "seconds";
+            case "bytes":
+                return "bytes";
+            default:
+                return "";
+        }
+    }
+
+    private static String unitSuffix( Metric metric )
+    {
+        String unit = unit( metric );
+        return unit.isEmpty() ? "" : "_" + unit;
+    }
+
+    private static String formatValue( Metric metric, long value )
+    {
+        return metric.unit().equals( "ms" ) ? Double.toString( value * 1e-9 ) : Long.toString( value );
+    }
+
+    private static final class Totals
+    {
+        final LongAdder count = new LongAdder();
+        final LongAdder sum = new LongAdder();
+    }
+
+    private final class ServerObserver implements MetricsObserver
+    {
+        @Override
+        public void observe( Metric.Counter counter )
+        {
+            OpenMetricsExporter.this.observe( counter, 1 );
+        }
+
+        @Override
+        public void observe( Metric.Event event, long value )
+        {
+            OpenMetricsExporter.this.observe( event, value );
+        }
+    }
+
+    private final class ComputerObserver implements MetricsObserver
+    {
+        final int id;
+        final Histogram computerTasks = new Histogram();
+        final Histogram serverTasks = new Histogram();
+
+        ComputerObserver( int id )
+        {
+            this.id = id;
+        }
+
+        @Override
+        public void observe( Metric.Counter counter )
+        {
+            OpenMetricsExporter.this.observe( counter, 1 );
+        }
+
+        @Override
+        public void observe( Metric.Event event, long value )
+        {
+            OpenMetricsExporter.this.observe( event, value );
+            if( event == Metrics.COMPUTER_TASKS )
+            {
+                computerTasks.observe( value );
+            }
+            else if( event == Metrics.SERVER_TASKS )
+            {
+                serverTasks.observe( value );
+            }
+        }
+    }
+
+    private static final class Handler extends SimpleChannelInboundHandler<FullHttpRequest>
+    {
+        private final OpenMetricsExporter exporter;
+
+        Handler( OpenMetricsExporter exporter )
+        {
+            this.exporter = exporter;
+        }
+
+        @Override
+        protected void channelRead0( ChannelHandlerContext ctx, FullHttpRequest request )
+        {
+            String path = new QueryStringDecoder( request.uri() ).path();
+            if( !path.equals( "/metrics" ) && !path.equals( "/" ) )
+            {
+                respond( ctx, HttpResponseStatus.NOT_FOUND, "text/plain; charset=utf-8", "Not found\n" );
+            }
+            else if( request.method() != HttpMethod.GET )
+            {
+                respond( ctx, HttpResponseStatus.METHOD_NOT_ALLOWED, "text/plain; charset=utf-8", "Method not allowed\n" );
+            }
+            else
+            {
+                respond( ctx, HttpResponseStatus.OK, CONTENT_TYPE, exporter.export() );
+            }
+        }
+
+        @Override
+        public void exceptionCaught( ChannelHandlerContext ctx, Throwable cause )
+        {
+            ComputerCraft.log.error( "Error in metrics exporter", cause );
+            ctx.close();
+        }
+
+        private static void respond( ChannelHandlerContext ctx, HttpResponseStatus status, String contentType, String body )
+        {
+            ByteBuf content = Unpooled.copiedBuffer( body, StandardCharsets.UTF_8 );
+            FullHttpResponse response = new DefaultFullHttpResponse( HttpVersion.HTTP_1_1, status, content );
+            response.headers()
+                .set( HttpHeaderNames.CONTENT_TYPE, contentType )
+                .set( HttpHeaderNames.CONTENT_LENGTH, content.readableBytes() )
+                .set( HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE );
+            ctx.writeAndFlush( response ).addListener( ChannelFutureListener.CLOSE );
+        }
+    }
+}
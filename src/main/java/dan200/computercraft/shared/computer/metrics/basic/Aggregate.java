@@ -17,7 +17,10 @@
     NONE( "none" ),
     COUNT( "count" ),
     AVG( "avg" ),
-    MAX( "max" );
+    MAX( "max" ),
+    P50( "p50" ),
+    P90( "p90" ),
+    P99( "p99" );
 
     private final String id;
 
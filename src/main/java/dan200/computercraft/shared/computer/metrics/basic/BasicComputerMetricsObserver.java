@@ -6,7 +6,7 @@
 package dan200.computercraft.shared.computer.metrics.basic;
 
 import com.google.common.collect.MapMaker;
-import dan200.computercraft.core.metrics.Metric;
+import dan200.computercraft.core.metrics.MetricsObserver;
 import dan200.computercraft.shared.computer.core.ServerComputer;
 import dan200.computercraft.shared.computer.metrics.ComputerMetricsObserver;
 import dan200.computercraft.shared.computer.metrics.GlobalMetrics;
@@ -25,8 +25,8 @@ public class BasicComputerMetricsObserver implements ComputerMetricsObserver
     private final GlobalMetrics owner;
     private boolean tracking = false;
 
-    private final List<ComputerMetrics> timings = new ArrayList<>();
-    private final Map<ServerComputer, ComputerMetrics> timingLookup = new MapMaker().weakKeys().makeMap();
+    private final List<ComputerMetricsAccumulator> timings = new ArrayList<>();
+    private final Map<ServerComputer, ComputerMetricsAccumulator> timingLookup = new MapMaker().weakKeys().makeMap();
 
     public BasicComputerMetricsObserver( GlobalMetrics owner )
     {
@@ -35,11 +35,12 @@ public BasicComputerMetricsObserver( GlobalMetrics owner )
 
     public synchronized void start()
     {
-        if( !tracking ) owner.addObserver( this );
-        tracking = true;
-
         timings.clear();
         timingLookup.clear();
+
+        // If we're already tracking, this forces computers to fetch a new accumulator from us.
+        owner.addObserver( this );
+        tracking = true;
     }
 
     public synchronized boolean stop()
@@ -55,35 +56,25 @@ public synchronized boolean stop()
     public synchronized List<ComputerMetrics> getSnapshot()
     {
         ArrayList<ComputerMetrics> timings = new ArrayList<>( this.timings.size() );
-        for( ComputerMetrics timing : this.timings ) timings.add( new ComputerMetrics( timing ) );
+        for( ComputerMetricsAccumulator timing : this.timings ) timings.add( timing.snapshot() );
         return timings;
     }
 
-    public synchronized List<ComputerMetrics> getTimings()
-    {
-        return new ArrayList<>( timings );
-    }
-
-    private ComputerMetrics getMetrics( ServerComputer computer )
+    @Override
+    public MetricsObserver forComputer( ServerComputer computer )
     {
-        ComputerMetrics existing = timingLookup.get( computer );
+        ComputerMetricsAccumulator existing = timingLookup.get( computer );
         if( existing != null ) return existing;
 
-        ComputerMetrics metrics = new ComputerMetrics( computer );
-        timingLookup.put( computer, metrics );
-        timings.add( metrics );
-        return metrics;
-    }
+        synchronized( this )
+        {
+            existing = timingLookup.get( computer );
+            if( existing != null ) return existing;
 
-    @Override
-    public synchronized void observe( ServerComputer computer, Metric.Counter counter )
-    {
-        getMetrics( computer ).observe( counter );
-    }
-
-    @Override
-    public synchronized void observe( ServerComputer computer, Metric.Event event, long value )
-    {
-        getMetrics( computer ).observe( event, value );
+            ComputerMetricsAccumulator metrics = new ComputerMetricsAccumulator( computer );
+            timingLookup.put( computer, metrics );
+            timings.add( metrics );
+            return metrics;
+        }
     }
 }
@@ -5,42 +5,38 @@
  */
 package dan200.computercraft.shared.computer.metrics.basic;
 
+import dan200.computercraft.core.metrics.Histogram;
 import dan200.computercraft.core.metrics.Metric;
 import dan200.computercraft.shared.computer.core.ServerComputer;
 
 import javax.annotation.Nullable;
 import java.lang.ref.WeakReference;
-import java.util.Arrays;
 
 /**
- * Metrics for an individual computer.
+ * A snapshot of the metrics for an individual computer.
+ *
+ * @see ComputerMetricsAccumulator#snapshot()
  */
 public final class ComputerMetrics
 {
-    private static final int DEFAULT_LEN = 16;
-
     private final WeakReference<ServerComputer> computer;
     private final int computerId;
-    private long[] counts;
-    private long[] totals;
-    private long[] max;
-
-    ComputerMetrics( ServerComputer computer )
-    {
-        this.computer = new WeakReference<>( computer );
-        computerId = computer.getID();
-        counts = new long[DEFAULT_LEN];
-        totals = new long[DEFAULT_LEN];
-        max = new long[DEFAULT_LEN];
-    }
-
-    ComputerMetrics( ComputerMetrics other )
+    private final long[] counts;
+    private final long[] totals;
+    private final long[] max;
+    private final Histogram.Snapshot[] histograms;
+
+    ComputerMetrics(
+        WeakReference<ServerComputer> computer, int computerId,
+        long[] counts, long[] totals, long[] max, Histogram.Snapshot[] histograms
+    )
     {
-        computer = other.computer;
-        computerId = other.computerId;
-        counts = Arrays.copyOf( other.counts, other.counts.length );
-        totals = Arrays.copyOf( other.totals, other.totals.length );
-        max = Arrays.copyOf( other.max, other.max.length );
+        this.computer = computer;
+        this.computerId = computerId;
+        this.counts = counts;
+        this.totals = totals;
+        this.max = max;
+        this.histograms = histograms;
     }
 
     @Nullable
@@ -64,6 +60,15 @@ private long avg( long total, long count )
         return count == 0 ? 0 : total / count;
     }
 
+    private long percentile( Metric metric, double percentile )
+    {
+        Histogram.Snapshot histogram = metric.id() >= histograms.length ? null : histograms[metric.id()];
+        if( histogram == null ) return 0;
+
+        // Histograms over-estimate values, so ensure we never exceed the actual maximum.
+        return Math.min( histogram.percentile( percentile ), get( max, metric ) );
+    }
+
     public long get( Metric metric, Aggregate aggregate )
     {
         if( metric instanceof Metric.Counter ) return get( counts, metric );
@@ -79,6 +84,12 @@ public long get( Metric metric, Aggregate aggregate )
                     return avg( get( totals, metric ), get( counts, metric ) );
                 case MAX:
                     return get( max, metric );
+                case P50:
+                    return percentile( metric, 50 );
+                case P90:
+                    return percentile( metric, 90 );
+                case P99:
+                    return percentile( metric, 99 );
                 default:
                     throw new IllegalArgumentException();
             }
@@ -96,34 +107,13 @@ public String getFormatted( Metric field, Aggregate aggregate )
                 return Metric.formatDefault( value );
             case AVG:
             case MAX:
+            case P50:
+            case P90:
+            case P99:
             case NONE:
                 return field.format( value );
             default:
                 throw new IllegalArgumentException();
         }
     }
-
-    private void ensureCapacity( Metric metric )
-    {
-        if( metric.id() < counts.length ) return;
-
-        int newCapacity = Math.max( metric.id(), counts.length * 2 );
-        counts = Arrays.copyOf( counts, newCapacity );
-        totals = Arrays.copyOf( totals, newCapacity );
-        max = Arrays.copyOf( max, newCapacity );
-    }
-
-    void observe( Metric.Counter counter )
-    {
-        ensureCapacity( counter );
-        counts[counter.id()]++;
-    }
-
-    void observe( Metric.Event event, long value )
-    {
-        ensureCapacity( event );
-        counts[event.id()]++;
-        totals[event.id()] += value;
-        if( value > max[event.id()] ) max[event.id()] = value;
-    }
 }
@@ -0,0 +1,120 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.shared.computer.metrics.basic;
+
+import dan200.computercraft.core.metrics.Histogram;
+import dan200.computercraft.core.metrics.Metric;
+import dan200.computercraft.core.metrics.MetricsObserver;
+import dan200.computercraft.shared.computer.core.ServerComputer;
+
+import javax.annotation.Nullable;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates metrics for an individual computer.
+ * <p>
+ * Metrics may be observed from several threads at once (for instance, the computer thread and the main thread), so
+ * each metric is backed by a striped {@link LongAdder}, rather than requiring a lock. {@link Metric.Event}s are also
+ * recorded in a {@link Histogram}, allowing us to compute percentiles.
+ *
+ * @see #snapshot()
+ */
+final class ComputerMetricsAccumulator implements MetricsObserver
+{
+    private static final int DEFAULT_LEN = 16;
+
+    private final WeakReference<ServerComputer> computer;
+    private final int computerId;
+
+    /**
+     * The accumulators for each metric, indexed by {@link Metric#id()}. This array is never modified once published,
+     * instead being replaced when a new metric is observed.
+     */
+    private volatile Accumulator[] accumulators = new Accumulator[DEFAULT_LEN];
+
+    ComputerMetricsAccumulator( ServerComputer computer )
+    {
+        this.computer = new WeakReference<>( computer );
+        computerId = computer.getID();
+    }
+
+    private Accumulator get( Metric metric )
+    {
+        Accumulator[] accumulators = this.accumulators;
+        Accumulator accumulator = metric.id() < accumulators.length ? accumulators[metric.id()] : null;
+        return accumulator != null ? accumulator : create( metric );
+    }
+
+    private synchronized Accumulator create( Metric metric )
+    {
+        Accumulator[] accumulators = this.accumulators;
+        if( metric.id() < accumulators.length && accumulators[metric.id()] != null ) return accumulators[metric.id()];
+
+        accumulators = Arrays.copyOf( accumulators, Math.max( metric.id() + 1, accumulators.length ) );
+        Accumulator accumulator = accumulators[metric.id()] = new Accumulator( metric instanceof Metric.Event );
+        this.accumulators = accumulators;
+        return accumulator;
+    }
+
+    @Override
+    public void observe( Metric.Counter counter )
+    {
+        get( counter ).count.increment();
+    }
+
+    @Override
+    public void observe( Metric.Event event, long value )
+    {
+        Accumulator accumulator = get( event );
+        accumulator.count.increment();
+        accumulator.total.add( value );
+        accumulator.max.accumulate( value );
+        if( accumulator.histogram != null ) accumulator.histogram.observe( value );
+    }
+
+    /**
+     * Take a snapshot of the current metrics. As this does not block observers, metrics observed while the snapshot is
+     * being taken may or may not be included.
+     *
+     * @return The current metrics.
+     */
+    ComputerMetrics snapshot()
+    {
+        Accumulator[] accumulators = this.accumulators;
+        long[] counts = new long[accumulators.length];
+        long[] totals = new long[accumulators.length];
+        long[] max = new long[accumulators.length];
+        Histogram.Snapshot[] histograms = new Histogram.Snapshot[accumulators.length];
+        for( int i = 0; i < accumulators.length; i++ )
+        {
+            Accumulator accumulator = accumulators[i];
+            if( accumulator == null ) continue;
+
+            counts[i] = accumulator.count.sum();
+            totals[i] = accumulator.total.sum();
+            max[i] = accumulator.max.get();
+            if( accumulator.histogram != null ) histograms[i] = accumulator.histogram.snapshot();
+        }
+
+        return new ComputerMetrics( computer, computerId, counts, totals, max, histograms );
+    }
+
+    private static final class Accumulator
+    {
+        final LongAdder count = new LongAdder();
+        final LongAdder total = new LongAdder();
+        final LongAccumulator max = new LongAccumulator( Math::max, 0 );
+        final @Nullable Histogram histogram;
+
+        Accumulator( boolean histogram )
+        {
+            this.histogram = histogram ? new Histogram() : null;
+        }
+    }
+}
@@ -27,15 +27,25 @@
  * This is somewhat memory inefficient (we build a buffer, only to write it elsewhere), however it means we get a
  * complete and accurate description of a terminal, which avoids a lot of complexities with resizing terminals, dirty
  * states, etc...
+ * <p>
+ * Alternatively, one may create a "delta" state with {@link #ofChanges(Terminal)}, which only contains the rows (and
+ * cursor/palette) which changed since the last delta. This should only be sent to clients which already have an
+ * up-to-date copy of the terminal.
  */
 public class TerminalState
 {
+    /**
+     * Deltas smaller than this are sent uncompressed, as gzip's overhead outweighs any savings.
+     */
+    private static final int COMPRESS_THRESHOLD = 256;
+
     public final boolean colour;
 
     public final int width;
     public final int height;
 
     private final boolean compress;
+    private final boolean delta;
 
     @Nullable
     private final ByteBuf buffer;
@@ -50,6 +60,7 @@ public TerminalState( @Nullable Terminal terminal )
     public TerminalState( @Nullable Terminal terminal, boolean compress )
     {
         this.compress = compress;
+        delta = false;
 
         if( terminal == null )
         {
@@ -68,10 +79,43 @@ public TerminalState( @Nullable Terminal terminal, boolean compress )
         }
     }
 
+    private TerminalState( boolean colour, int width, int height, boolean compress, boolean delta, ByteBuf buffer )
+    {
+        this.colour = colour;
+        this.width = width;
+        this.height = height;
+        this.compress = compress;
+        this.delta = delta;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Create a terminal state containing the changes since the last call to this method, falling back to a full
+     * snapshot if the terminal has been resized.
+     *
+     * @param terminal The terminal to snapshot.
+     * @return The terminal state.
+     * @see Terminal#writeChanges(PacketBuffer)
+     */
+    public static TerminalState ofChanges( Terminal terminal )
+    {
+        ByteBuf buffer = Unpooled.buffer();
+        synchronized( terminal )
+        {
+            PacketBuffer packet = new PacketBuffer( buffer );
+            boolean delta = terminal.writeChanges( packet );
+            if( !delta ) terminal.write( packet );
+
+            boolean compress = !delta || buffer.readableBytes() >= COMPRESS_THRESHOLD;
+            return new TerminalState( terminal.isColour(), terminal.getWidth(), terminal.getHeight(), compress, delta, buffer );
+        }
+    }
+
     public TerminalState( PacketBuffer buf )
     {
         colour = buf.readBoolean();
         compress = buf.readBoolean();
+        delta = buf.readBoolean();
 
         if( buf.readBoolean() )
         {
@@ -92,6 +136,7 @@ public void write( PacketBuffer buf )
     {
         buf.writeBoolean( colour );
         buf.writeBoolean( compress );
+        buf.writeBoolean( delta );
 
         buf.writeBoolean( buffer != null );
         if( buffer != null )
@@ -110,6 +155,17 @@ public boolean hasTerminal()
         return buffer != null;
     }
 
+    /**
+     * Whether this state only contains changes to the terminal, rather than a full snapshot.
+     *
+     * @return Whether this is a delta state.
+     * @see #ofChanges(Terminal)
+     */
+    public boolean isDelta()
+    {
+        return delta;
+    }
+
     public int size()
     {
         return buffer == null ? 0 : buffer.readableBytes();
@@ -119,14 +175,25 @@ public void apply( Terminal terminal )
     {
         if( buffer == null ) throw new NullPointerException( "buffer" );
         terminal.resize( width, height );
-        terminal.read( new PacketBuffer( buffer ) );
+
+        // Use a copy of the buffer, so states shared between several terminals can be applied multiple times.
+        PacketBuffer contents = new PacketBuffer( buffer.duplicate() );
+        if( delta )
+        {
+            terminal.readChanges( contents );
+        }
+        else
+        {
+            terminal.read( contents );
+        }
     }
 
     public Terminal create()
     {
         if( buffer == null ) throw new NullPointerException( "Terminal does not exist" );
+        if( delta ) throw new IllegalStateException( "Cannot create a terminal from a delta" );
         Terminal terminal = new Terminal( width, height, colour );
-        terminal.read( new PacketBuffer( buffer ) );
+        terminal.read( new PacketBuffer( buffer.duplicate() ) );
         return terminal;
     }
 
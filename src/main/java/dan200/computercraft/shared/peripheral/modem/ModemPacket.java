@@ -0,0 +1,59 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.shared.peripheral.modem;
+
+import dan200.computercraft.api.network.IPacketSender;
+import dan200.computercraft.api.network.Packet;
+import dan200.computercraft.core.lua.FrozenValue;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link Packet} sent from a {@link ModemPeripheral}.
+ * <p>
+ * This lazily converts the payload into a {@link FrozenValue} the first time it is received, which is then shared by
+ * every receiving computer. Other mods' receivers still see the original payload through {@link #getPayload()}.
+ */
+final class ModemPacket extends Packet
+{
+    private volatile boolean frozen;
+    private volatile Object frozenPayload;
+
+    ModemPacket( int channel, int replyChannel, @Nullable Object payload, @Nonnull IPacketSender sender )
+    {
+        super( channel, replyChannel, payload, sender );
+    }
+
+    /**
+     * Get the payload of this packet, as a value which may be queued as an event on multiple computers.
+     *
+     * @return The frozen payload.
+     */
+    @Nullable
+    Object getFrozenPayload()
+    {
+        // Freezing is idempotent, so it doesn't matter if two threads race here.
+        if( frozen ) return frozenPayload;
+
+        Object payload = FrozenValue.of( getPayload() );
+        frozenPayload = payload;
+        frozen = true;
+        return payload;
+    }
+
+    /**
+     * Get the payload of a packet, suitable for queuing as an event.
+     *
+     * @param packet The packet to get the payload of.
+     * @return The packet's payload.
+     */
+    @Nullable
+    static Object getPayload( Packet packet )
+    {
+        return packet instanceof ModemPacket ? ((ModemPacket) packet).getFrozenPayload() : packet.getPayload();
+    }
+}
@@ -127,10 +127,13 @@ public void receiveSameDimension( @Nonnull Packet packet, double distance )
 
         synchronized( computers )
         {
+            if( computers.isEmpty() ) return;
+
+            Object payload = ModemPacket.getPayload( packet );
             for( IComputerAccess computer : computers )
             {
                 computer.queueEvent( "modem_message",
-                    computer.getAttachmentName(), packet.getChannel(), packet.getReplyChannel(), packet.getPayload(), distance );
+                    computer.getAttachmentName(), packet.getChannel(), packet.getReplyChannel(), payload, distance );
             }
         }
     }
@@ -142,10 +145,13 @@ public void receiveDifferentDimension( @Nonnull Packet packet )
 
         synchronized( computers )
         {
+            if( computers.isEmpty() ) return;
+
+            Object payload = ModemPacket.getPayload( packet );
             for( IComputerAccess computer : computers )
             {
                 computer.queueEvent( "modem_message",
-                    computer.getAttachmentName(), packet.getChannel(), packet.getReplyChannel(), packet.getPayload() );
+                    computer.getAttachmentName(), packet.getChannel(), packet.getReplyChannel(), payload );
             }
         }
     }
@@ -247,7 +253,7 @@ public final void transmit( int channel, int replyChannel, Object payload ) thro
 
         if( world == null || position == null || network == null ) return;
 
-        Packet packet = new Packet( channel, replyChannel, payload, this );
+        Packet packet = new ModemPacket( channel, replyChannel, payload, this );
         if( isInterdimensional() )
         {
             network.transmitInterdimensional( packet );
@@ -9,6 +9,8 @@
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ModemState
@@ -19,6 +21,8 @@
     private boolean open = false;
     private final IntSet channels = new IntOpenHashSet();
 
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
     public ModemState()
     {
         onChanged = null;
@@ -54,26 +58,42 @@ public boolean isOpen( int channel )
         }
     }
 
+    /**
+     * Get a snapshot of the currently open channels.
+     *
+     * @return The currently open channels.
+     */
+    public int[] getChannels()
+    {
+        synchronized( channels )
+        {
+            return channels.toIntArray();
+        }
+    }
+
     public void open( int channel ) throws LuaException
     {
         synchronized( channels )
         {
-            if( !channels.contains( channel ) )
-            {
-                if( channels.size() >= 128 ) throw new LuaException( "Too many open channels" );
-                channels.add( channel );
-                setOpen( true );
-            }
+            if( channels.contains( channel ) ) return;
+
+            if( channels.size() >= 128 ) throw new LuaException( "Too many open channels" );
+            channels.add( channel );
+            setOpen( true );
         }
+
+        for( Listener listener : listeners ) listener.onChannelChanged( channel );
     }
 
     public void close( int channel )
     {
         synchronized( channels )
         {
-            channels.remove( channel );
+            if( !channels.remove( channel ) ) return;
             if( channels.isEmpty() ) setOpen( false );
         }
+
+        for( Listener listener : listeners ) listener.onChannelChanged( channel );
     }
 
     public void closeAll()
@@ -83,5 +103,40 @@ public void closeAll()
             channels.clear();
             setOpen( false );
         }
+
+        for( Listener listener : listeners ) listener.onChannelsCleared();
+    }
+
+    public void addListener( Listener listener )
+    {
+        listeners.add( listener );
+    }
+
+    public void removeListener( Listener listener )
+    {
+        listeners.remove( listener );
+    }
+
+    /**
+     * Listens for channels being opened or closed. This is used by packet networks to only deliver packets to modems
+     * which are listening on that channel.
+     * <p>
+     * Listeners are called after the channel has changed, without holding any locks. As other threads may also have
+     * changed the modem's channels in the meantime, listeners should check {@link #isOpen(int)} rather than assuming the
+     * channel's state.
+     */
+    public interface Listener
+    {
+        /**
+         * Called when a channel may have been opened or closed.
+         *
+         * @param channel The channel which changed.
+         */
+        void onChannelChanged( int channel );
+
+        /**
+         * Called when all channels have been closed.
+         */
+        void onChannelsCleared();
     }
 }
@@ -7,7 +7,6 @@
 
 import dan200.computercraft.api.peripheral.IPeripheral;
 import dan200.computercraft.shared.common.TileGeneric;
-import dan200.computercraft.shared.peripheral.modem.ModemPeripheral;
 import dan200.computercraft.shared.peripheral.modem.ModemState;
 import dan200.computercraft.shared.util.CapabilityUtil;
 import dan200.computercraft.shared.util.TickScheduler;
@@ -68,7 +67,7 @@ public Object getTarget()
 
     private boolean hasModemDirection = false;
     private Direction modemDirection = Direction.DOWN;
-    private final ModemPeripheral modem;
+    private final WirelessModemPeripheral modem;
     private boolean destroyed = false;
     private LazyOptional<IPeripheral> modemCap;
     private final TickScheduler.Token tickToken = new TickScheduler.Token( this );
@@ -113,7 +112,11 @@ public void blockTick()
         // Invalidate the capability if the direction has changed. I'm not 100% happy with this implementation
         //  - ideally we'd do it within refreshDirection or updateContainingBlockInfo, but this seems the _safest_
         //  place.
-        if( currentDirection != modemDirection ) modemCap = CapabilityUtil.invalidate( modemCap );
+        if( currentDirection != modemDirection )
+        {
+            modemCap = CapabilityUtil.invalidate( modemCap );
+            modem.updateNetworkLocation();
+        }
 
         if( modem.getModemState().pollChanged() ) updateBlockState();
     }
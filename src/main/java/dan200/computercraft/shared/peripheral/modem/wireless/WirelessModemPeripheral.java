@@ -39,26 +39,48 @@ public double getRange()
         else
         {
             World world = getWorld();
-            if( world != null )
-            {
-                Vector3d position = getPosition();
-                double minRange = ComputerCraft.modemRange;
-                double maxRange = ComputerCraft.modemHighAltitudeRange;
-                if( world.isRaining() && world.isThundering() )
-                {
-                    minRange = ComputerCraft.modemRangeDuringStorm;
-                    maxRange = ComputerCraft.modemHighAltitudeRangeDuringStorm;
-                }
-                if( position.y > 96.0 && maxRange > minRange )
-                {
-                    return minRange + (position.y - 96.0) * ((maxRange - minRange) / ((world.getMaxBuildHeight() - 1) - 96.0));
-                }
-                return minRange;
-            }
-            return 0.0;
+            return world == null ? 0.0 : getRange( world, world.isRaining() && world.isThundering() );
         }
     }
 
+    /**
+     * Get the largest range this modem may have at its current position, whatever the weather. This is used to
+     * determine where this modem lives within the {@link WirelessNetwork}'s spatial index.
+     *
+     * @return This modem's maximum range.
+     */
+    double getMaxRange()
+    {
+        World world = getWorld();
+        return world == null ? 0.0 : Math.max( getRange( world, false ), getRange( world, true ) );
+    }
+
+    private double getRange( World world, boolean storm )
+    {
+        Vector3d position = getPosition();
+        double minRange = ComputerCraft.modemRange;
+        double maxRange = ComputerCraft.modemHighAltitudeRange;
+        if( storm )
+        {
+            minRange = ComputerCraft.modemRangeDuringStorm;
+            maxRange = ComputerCraft.modemHighAltitudeRangeDuringStorm;
+        }
+        if( position.y > 96.0 && maxRange > minRange )
+        {
+            return minRange + (position.y - 96.0) * ((maxRange - minRange) / ((world.getMaxBuildHeight() - 1) - 96.0));
+        }
+        return minRange;
+    }
+
+    /**
+     * Notify the wireless network that this modem may have moved. This should be called by modems which are not fixed
+     * in place (such as those on turtles and pocket computers) whenever their position changes.
+     */
+    public final void updateNetworkLocation()
+    {
+        if( !advanced ) WirelessNetwork.getUniversal().updateReceiver( this );
+    }
+
     @Override
     protected IPacketNetwork getNetwork()
     {
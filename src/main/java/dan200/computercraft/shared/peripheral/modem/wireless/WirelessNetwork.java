@@ -5,19 +5,49 @@
  */
 package dan200.computercraft.shared.peripheral.modem.wireless;
 
+import com.google.common.annotations.VisibleForTesting;
 import dan200.computercraft.api.network.IPacketNetwork;
 import dan200.computercraft.api.network.IPacketReceiver;
 import dan200.computercraft.api.network.IPacketSender;
 import dan200.computercraft.api.network.Packet;
+import dan200.computercraft.shared.peripheral.modem.ModemState;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.util.math.vector.Vector3d;
+import net.minecraft.world.World;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * The network shared by all wireless modems.
+ * <p>
+ * In order to avoid checking every modem on the server when transmitting a packet, our own wireless modems are indexed
+ * by the channels they have open. Each channel then has a per-world spatial index of its (non-ender) modems. This is a
+ * grid of {@link #CELL_SIZE}-block cells, split into several tiers based on the modem's maximum range. When
+ * transmitting, we only visit the cells of each tier which lie within the packet's (or that tier's) range.
+ * <p>
+ * Ender modems are kept in a separate per-channel set. Receivers from other mods (whose channels, position and range we
+ * know nothing about) are checked on every transmission.
+ * <p>
+ * Empty parts of the index are removed as soon as their last modem leaves, so the index does not keep unloaded worlds
+ * alive. We also drop a world's index when it unloads ({@link #onWorldUnload(World)}), in case any of its modems were not
+ * removed.
+ */
 public class WirelessNetwork implements IPacketNetwork
 {
+    private static final int CELL_SIZE = 64;
+    private static final int MIN_TIER = 6; // 1 << MIN_TIER == CELL_SIZE
+    private static final int MAX_TIER = 62;
+
     private static WirelessNetwork universalNetwork = null;
 
     public static WirelessNetwork getUniversal()
@@ -31,34 +61,286 @@ public static void resetNetworks()
         universalNetwork = null;
     }
 
+    /**
+     * Remove a world from the spatial index, once it has been unloaded.
+     *
+     * @param world The world which was unloaded.
+     */
+    public static void onWorldUnload( World world )
+    {
+        WirelessNetwork network = universalNetwork;
+        if( network != null ) network.removeWorld( world );
+    }
+
+    /**
+     * Recompute the position of every receiver within the spatial index, as modem ranges may have changed.
+     */
+    public static void reloadConfig()
+    {
+        WirelessNetwork network = universalNetwork;
+        if( network != null ) network.reindex();
+    }
+
     private final Set<IPacketReceiver> receivers = Collections.newSetFromMap( new ConcurrentHashMap<>() );
+    private final Set<IPacketReceiver> unindexed = Collections.newSetFromMap( new ConcurrentHashMap<>() );
+
+    private final Map<WirelessModemPeripheral, Entry> modems = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<IPacketReceiver>> channels = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<IPacketReceiver>> interdimensional = new ConcurrentHashMap<>();
+    private final Map<World, Map<Integer, ChannelIndex>> worlds = new ConcurrentHashMap<>();
 
     @Override
-    public void addReceiver( @Nonnull IPacketReceiver receiver )
+    public synchronized void addReceiver( @Nonnull IPacketReceiver receiver )
     {
         Objects.requireNonNull( receiver, "device cannot be null" );
-        receivers.add( receiver );
+        if( !receivers.add( receiver ) ) return;
+
+        if( !(receiver instanceof WirelessModemPeripheral) )
+        {
+            unindexed.add( receiver );
+            return;
+        }
+
+        WirelessModemPeripheral modem = (WirelessModemPeripheral) receiver;
+        Entry entry = new Entry( modem, receiver.isInterdimensional() ? null : Location.of( modem ) );
+        modems.put( modem, entry );
+
+        // Register our listener before reading the channels, so we can't miss any changes. As we hold the lock, the
+        // listener won't be run until we've finished here.
+        ModemState state = modem.getModemState();
+        state.addListener( entry );
+        for( int channel : state.getChannels() ) openChannel( entry, channel );
     }
 
     @Override
-    public void removeReceiver( @Nonnull IPacketReceiver receiver )
+    public synchronized void removeReceiver( @Nonnull IPacketReceiver receiver )
     {
         Objects.requireNonNull( receiver, "device cannot be null" );
-        receivers.remove( receiver );
+        if( !receivers.remove( receiver ) ) return;
+
+        unindexed.remove( receiver );
+
+        Entry entry = modems.remove( receiver );
+        if( entry == null ) return;
+
+        entry.modem.getModemState().removeListener( entry );
+        for( int channel : entry.channels.toIntArray() ) closeChannel( entry, channel );
+    }
+
+    /**
+     * Update a modem's position within the spatial index. This should be called whenever a modem's world, position or
+     * range may have changed.
+     *
+     * @param modem The modem which may have moved.
+     * @see WirelessModemPeripheral#updateNetworkLocation()
+     */
+    void updateReceiver( @Nonnull WirelessModemPeripheral modem )
+    {
+        Entry entry = modems.get( modem );
+        if( entry == null || entry.location == null ) return;
+
+        Location location = Location.of( modem );
+        if( location.equals( entry.location ) ) return;
+
+        synchronized( this )
+        {
+            // Check again now we hold the lock, as we may have raced against another update or the modem's removal.
+            if( modems.get( modem ) != entry || location.equals( entry.location ) ) return;
+
+            Location oldLocation = entry.location;
+            entry.location = location;
+            for( int channel : entry.channels.toIntArray() )
+            {
+                unindex( modem, oldLocation, channel );
+                index( modem, location, channel );
+            }
+        }
+    }
+
+    private synchronized void reindex()
+    {
+        for( WirelessModemPeripheral modem : modems.keySet() ) updateReceiver( modem );
+    }
+
+    synchronized void removeWorld( World world )
+    {
+        worlds.remove( world );
+    }
+
+    @VisibleForTesting
+    boolean isIndexed( World world )
+    {
+        return worlds.containsKey( world );
+    }
+
+    /**
+     * Update the index after one of a modem's channels may have been opened or closed.
+     *
+     * @param entry   The modem's entry.
+     * @param channel The channel which changed.
+     */
+    private synchronized void updateChannel( Entry entry, int channel )
+    {
+        if( modems.get( entry.modem ) != entry ) return;
+
+        if( entry.modem.getModemState().isOpen( channel ) )
+        {
+            if( !entry.channels.contains( channel ) ) openChannel( entry, channel );
+        }
+        else
+        {
+            if( entry.channels.contains( channel ) ) closeChannel( entry, channel );
+        }
+    }
+
+    private synchronized void updateChannels( Entry entry )
+    {
+        if( modems.get( entry.modem ) != entry ) return;
+
+        ModemState state = entry.modem.getModemState();
+        for( int channel : entry.channels.toIntArray() )
+        {
+            if( !state.isOpen( channel ) ) closeChannel( entry, channel );
+        }
+    }
+
+    private void openChannel( Entry entry, int channel )
+    {
+        entry.channels.add( channel );
+        addTo( channels, channel, entry.modem );
+        if( entry.location == null )
+        {
+            addTo( interdimensional, channel, entry.modem );
+        }
+        else
+        {
+            index( entry.modem, entry.location, channel );
+        }
+    }
+
+    private void closeChannel( Entry entry, int channel )
+    {
+        entry.channels.remove( channel );
+        removeFrom( channels, channel, entry.modem );
+        if( entry.location == null )
+        {
+            removeFrom( interdimensional, channel, entry.modem );
+        }
+        else
+        {
+            unindex( entry.modem, entry.location, channel );
+        }
+    }
+
+    private void index( WirelessModemPeripheral modem, Location location, int channel )
+    {
+        if( location.world == null ) return;
+
+        Tier tier = worlds.computeIfAbsent( location.world, x -> new ConcurrentHashMap<>() )
+            .computeIfAbsent( channel, x -> new ChannelIndex() )
+            .tiers.computeIfAbsent( location.tier, Tier::new );
+        tier.add( location.cell, modem );
+    }
+
+    private void unindex( WirelessModemPeripheral modem, Location location, int channel )
+    {
+        if( location.world == null ) return;
+
+        Map<Integer, ChannelIndex> world = worlds.get( location.world );
+        ChannelIndex index = world == null ? null : world.get( channel );
+        Tier tier = index == null ? null : index.tiers.get( location.tier );
+        if( tier == null ) return;
+
+        // Remove any parts of the index which are now empty. This is safe as index() and unindex() are only called
+        // while holding the lock.
+        tier.remove( location.cell, modem );
+        if( !tier.cells.isEmpty() ) return;
+        index.tiers.remove( location.tier );
+        if( !index.tiers.isEmpty() ) return;
+        world.remove( channel );
+        if( world.isEmpty() ) worlds.remove( location.world );
+    }
+
+    private static <K> void addTo( Map<K, Set<IPacketReceiver>> map, K key, IPacketReceiver receiver )
+    {
+        map.compute( key, ( k, set ) -> {
+            if( set == null ) set = Collections.newSetFromMap( new ConcurrentHashMap<>() );
+            set.add( receiver );
+            return set;
+        } );
+    }
+
+    private static <K> void removeFrom( Map<K, Set<IPacketReceiver>> map, K key, IPacketReceiver receiver )
+    {
+        map.computeIfPresent( key, ( k, set ) -> {
+            set.remove( receiver );
+            return set.isEmpty() ? null : set;
+        } );
     }
 
     @Override
     public void transmitSameDimension( @Nonnull Packet packet, double range )
     {
         Objects.requireNonNull( packet, "packet cannot be null" );
-        for( IPacketReceiver device : receivers ) tryTransmit( device, packet, range, false );
+        for( IPacketReceiver device : unindexed ) tryTransmit( device, packet, range, false );
+
+        Set<IPacketReceiver> interdimensional = this.interdimensional.get( packet.getChannel() );
+        if( interdimensional != null )
+        {
+            for( IPacketReceiver device : interdimensional ) tryTransmit( device, packet, range, false );
+        }
+
+        IPacketSender sender = packet.getSender();
+        World senderWorld = sender.getWorld();
+        Map<Integer, ChannelIndex> world = senderWorld == null ? null : worlds.get( senderWorld );
+        ChannelIndex index = world == null ? null : world.get( packet.getChannel() );
+        if( index == null ) return;
+
+        Vector3d position = sender.getPosition();
+        for( Tier tier : index.tiers.values() )
+        {
+            // Range is symmetrical, so we need to check every cell within the range of the packet or of any receiver
+            // in this tier.
+            double radius = Math.max( range, tier.range );
+            int minX = toCell( position.x - radius ), maxX = toCell( position.x + radius );
+            int minZ = toCell( position.z - radius ), maxZ = toCell( position.z + radius );
+
+            Long2ObjectMap<Set<IPacketReceiver>> cells = tier.cells;
+            long cellCount = ((long) maxX - minX + 1) * ((long) maxZ - minZ + 1);
+            if( cellCount > cells.size() )
+            {
+                // If this tier is sparsely populated, it's cheaper to visit every occupied cell instead.
+                for( Set<IPacketReceiver> cell : cells.values() )
+                {
+                    for( IPacketReceiver device : cell ) tryTransmit( device, packet, range, false );
+                }
+            }
+            else
+            {
+                for( int x = minX; x <= maxX; x++ )
+                {
+                    for( int z = minZ; z <= maxZ; z++ )
+                    {
+                        Set<IPacketReceiver> cell = cells.get( toKey( x, z ) );
+                        if( cell == null ) continue;
+                        for( IPacketReceiver device : cell ) tryTransmit( device, packet, range, false );
+                    }
+                }
+            }
+        }
     }
 
     @Override
     public void transmitInterdimensional( @Nonnull Packet packet )
     {
         Objects.requireNonNull( packet, "packet cannot be null" );
-        for( IPacketReceiver device : receivers ) tryTransmit( device, packet, 0, true );
+        for( IPacketReceiver device : unindexed ) tryTransmit( device, packet, 0, true );
+
+        Set<IPacketReceiver> listening = channels.get( packet.getChannel() );
+        if( listening != null )
+        {
+            for( IPacketReceiver device : listening ) tryTransmit( device, packet, 0, true );
+        }
     }
 
     private static void tryTransmit( IPacketReceiver receiver, Packet packet, double range, boolean interdimensional )
@@ -87,4 +369,151 @@ public boolean isWireless()
     {
         return true;
     }
+
+    private static int toCell( double coordinate )
+    {
+        return (int) Math.floor( coordinate / CELL_SIZE );
+    }
+
+    private static long toKey( int x, int z )
+    {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    /**
+     * The modems within a single world which have a specific channel open.
+     */
+    private static final class ChannelIndex
+    {
+        final Map<Integer, Tier> tiers = new ConcurrentHashMap<>();
+    }
+
+    private static final class Tier
+    {
+        /**
+         * The maximum range of any receiver within this tier.
+         */
+        final double range;
+
+        /**
+         * The receivers within each cell of this tier. This map is never modified, so it can be read without locking.
+         * Instead, it is replaced with an updated copy (while holding the network's lock) when a cell is added or
+         * removed. Adding a receiver to an existing cell only modifies that cell's set.
+         */
+        volatile Long2ObjectMap<Set<IPacketReceiver>> cells = Long2ObjectMaps.emptyMap();
+
+        Tier( int tier )
+        {
+            range = 1L << tier;
+        }
+
+        void add( long cell, IPacketReceiver receiver )
+        {
+            Set<IPacketReceiver> receivers = cells.get( cell );
+            if( receivers != null )
+            {
+                receivers.add( receiver );
+                return;
+            }
+
+            receivers = Collections.newSetFromMap( new ConcurrentHashMap<>() );
+            receivers.add( receiver );
+
+            Long2ObjectMap<Set<IPacketReceiver>> cells = new Long2ObjectOpenHashMap<>( this.cells );
+            cells.put( cell, receivers );
+            this.cells = cells;
+        }
+
+        void remove( long cell, IPacketReceiver receiver )
+        {
+            Set<IPacketReceiver> receivers = cells.get( cell );
+            if( receivers == null || !receivers.remove( receiver ) || !receivers.isEmpty() ) return;
+
+            Long2ObjectMap<Set<IPacketReceiver>> cells = new Long2ObjectOpenHashMap<>( this.cells );
+            cells.remove( cell );
+            this.cells = cells;
+        }
+    }
+
+    /**
+     * A modem within the index, and the channels it is indexed under.
+     */
+    private final class Entry implements ModemState.Listener
+    {
+        final WirelessModemPeripheral modem;
+
+        /**
+         * The modem's position within the spatial index, or {@code null} if this is an ender modem.
+         */
+        volatile @Nullable Location location;
+
+        final IntSet channels = new IntOpenHashSet();
+
+        Entry( WirelessModemPeripheral modem, @Nullable Location location )
+        {
+            this.modem = modem;
+            this.location = location;
+        }
+
+        @Override
+        public void onChannelChanged( int channel )
+        {
+            updateChannel( this, channel );
+        }
+
+        @Override
+        public void onChannelsCleared()
+        {
+            updateChannels( this );
+        }
+    }
+
+    /**
+     * The position of a modem within the spatial index.
+     */
+    private static final class Location
+    {
+        final @Nullable World world;
+        final long cell;
+        final int tier;
+
+        private Location( @Nullable World world, long cell, int tier )
+        {
+            this.world = world;
+            this.cell = cell;
+            this.tier = tier;
+        }
+
+        static Location of( WirelessModemPeripheral modem )
+        {
+            World world = modem.getWorld();
+            if( world == null ) return new Location( null, 0, 0 );
+
+            Vector3d position = modem.getPosition();
+            double range = modem.getMaxRange();
+            int tier = MIN_TIER;
+            while( tier < MAX_TIER && (1L << tier) < range ) tier++;
+
+            return new Location( world, toKey( toCell( position.x ), toCell( position.z ) ), tier );
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if( this == o ) return true;
+            if( !(o instanceof Location) ) return false;
+
+            Location other = (Location) o;
+            return world == other.world && cell == other.cell && tier == other.tier;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int result = System.identityHashCode( world );
+            result = 31 * result + Long.hashCode( cell );
+            result = 31 * result + tier;
+            return result;
+        }
+    }
 }
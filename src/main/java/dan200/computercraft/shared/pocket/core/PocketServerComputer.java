@@ -16,6 +16,7 @@
 import dan200.computercraft.shared.network.NetworkHandler;
 import dan200.computercraft.shared.network.client.PocketComputerDataMessage;
 import dan200.computercraft.shared.network.client.PocketComputerDeletedClientMessage;
+import dan200.computercraft.shared.network.client.TerminalState;
 import dan200.computercraft.shared.pocket.items.ItemPocketComputer;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.LivingEntity;
@@ -43,6 +44,11 @@ public class PocketServerComputer extends ServerComputer implements IPocketAcces
 
     private final Set<ServerPlayerEntity> tracking = new HashSet<>();
 
+    /**
+     * The player who was last sent the whole terminal, and so only needs to be sent changes to it.
+     */
+    private @Nullable ServerPlayerEntity terminalHolder;
+
     public PocketServerComputer( ServerWorld world, int computerID, String label, ComputerFamily family )
     {
         super( world, computerID, label, family, ComputerCraft.pocketTermWidth, ComputerCraft.pocketTermHeight );
@@ -213,13 +219,21 @@ public void tickServer()
     @Override
     protected void onTerminalChanged()
     {
-        super.onTerminalChanged();
-
-        if( entity instanceof ServerPlayerEntity && entity.isAlive() )
+        ServerPlayerEntity holder = entity instanceof ServerPlayerEntity && entity.isAlive() ? (ServerPlayerEntity) entity : null;
+        if( holder == null || holder != terminalHolder )
         {
-            // Broadcast the terminal to the current player.
-            NetworkHandler.sendToPlayer( (ServerPlayerEntity) entity, new PocketComputerDataMessage( this, true ) );
+            // This player does not have a copy of the terminal yet, so send them all of it. Anyone viewing the menu is
+            // sent the changes as normal.
+            terminalHolder = holder;
+            if( holder != null ) NetworkHandler.sendToPlayer( holder, new PocketComputerDataMessage( this, true ) );
+            super.onTerminalChanged();
+            return;
         }
+
+        // Otherwise, the player holding the computer and anyone viewing its menu are sent the same set of changes.
+        TerminalState changes = TerminalState.ofChanges( getTerminal() );
+        NetworkHandler.sendToPlayer( holder, new PocketComputerDataMessage( this, changes ) );
+        sendTerminalChanges( getViewers(), changes );
     }
 
     @Override
@@ -27,6 +27,7 @@ void setLocation( World world, Vector3d position )
     {
         this.position = position;
         this.world = world;
+        updateNetworkLocation();
     }
 
     @Nonnull
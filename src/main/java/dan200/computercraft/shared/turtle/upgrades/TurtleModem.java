@@ -133,7 +133,10 @@ public void update( @Nonnull ITurtleAccess turtle, @Nonnull TurtleSide side )
             IPeripheral peripheral = turtle.getPeripheral( side );
             if( peripheral instanceof Peripheral )
             {
-                ModemState state = ((Peripheral) peripheral).getModemState();
+                Peripheral modem = (Peripheral) peripheral;
+                modem.updateNetworkLocation();
+
+                ModemState state = modem.getModemState();
                 if( state.pollChanged() )
                 {
                     turtle.getUpgradeNBTData( side ).putBoolean( "active", state.isOpen() );
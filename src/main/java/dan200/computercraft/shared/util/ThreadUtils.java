@@ -8,6 +8,7 @@
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import dan200.computercraft.ComputerCraft;
 
+import javax.annotation.Nullable;
 import java.util.concurrent.ThreadFactory;
 
 /**
@@ -76,4 +77,35 @@ public static ThreadFactory factory( String name )
     {
         return builder( name ).build();
     }
+
+    /**
+     * Create a new {@link ThreadFactory} which constructs virtual threads.
+     * <p>
+     * Each thread will be of the format {@code ComputerCraft-<name>-<number>}. Virtual threads cannot belong to a thread
+     * group, and so are not part of the main {@code ComputerCraft} group.
+     * <p>
+     * Virtual threads are only available on newer versions of Java, and so are looked up reflectively.
+     *
+     * @param name The name for the child threads.
+     * @return The constructed thread factory, or {@code null} if virtual threads are not supported.
+     */
+    @Nullable
+    public static ThreadFactory virtualFactory( String name )
+    {
+        try
+        {
+            Class<?> builderClass = Class.forName( "java.lang.Thread$Builder" );
+            Object builder = Thread.class.getMethod( "ofVirtual" ).invoke( null );
+            builder = builderClass.getMethod( "name", String.class, long.class )
+                .invoke( builder, baseGroup.getName() + "-" + name + "-", 0L );
+            builder = builderClass.getMethod( "uncaughtExceptionHandler", Thread.UncaughtExceptionHandler.class )
+                .invoke( builder, (Thread.UncaughtExceptionHandler) ( t, e ) -> ComputerCraft.log.error( "Exception in thread " + t.getName(), e ) );
+            return (ThreadFactory) builderClass.getMethod( "factory" ).invoke( builder );
+        }
+        catch( ReflectiveOperationException | RuntimeException | LinkageError e )
+        {
+            // Either virtual threads do not exist, or they are a preview feature which has not been enabled.
+            return null;
+        }
+    }
 }
@@ -6,6 +6,7 @@
 package dan200.computercraft.shared.wired;
 
 import com.google.common.collect.ImmutableMap;
+import dan200.computercraft.api.network.IPacketSender;
 import dan200.computercraft.api.network.Packet;
 import dan200.computercraft.api.network.wired.IWiredNetwork;
 import dan200.computercraft.api.network.wired.IWiredNode;
@@ -15,15 +16,29 @@
 
 import javax.annotation.Nonnull;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public final class WiredNetwork implements IWiredNetwork
 {
+    /**
+     * The maximum number of nodes we cache routes for. Beyond this, the cache is cleared, so very large networks with
+     * many senders don't hold on to an unbounded amount of memory.
+     */
+    private static final int MAX_CACHED_ROUTES = 256;
+
     final ReadWriteLock lock = new ReentrantReadWriteLock();
     HashSet<WiredNode> nodes;
     private HashMap<String, IPeripheral> peripherals = new HashMap<>();
 
+    /**
+     * A cache of the shortest paths from a node to every other node in the network. This is populated when
+     * transmitting packets (under the read lock), and cleared whenever the network's structure changes (under the
+     * write lock).
+     */
+    private final Map<WiredNode, RoutingTable> routes = new ConcurrentHashMap<>();
+
     WiredNetwork( WiredNode node )
     {
         nodes = new HashSet<>( 1 );
@@ -51,6 +66,8 @@ public boolean connect( @Nonnull IWiredNode nodeU, @Nonnull IWiredNode nodeV )
             boolean hasV = wiredV.network == this;
             if( !hasU && !hasV ) throw new IllegalArgumentException( "Neither node is in the network." );
 
+            routes.clear();
+
             // We're going to assimilate a node. Copy across all edges and vertices.
             if( !hasU || !hasV )
             {
@@ -69,6 +86,7 @@ public boolean connect( @Nonnull IWiredNode nodeU, @Nonnull IWiredNode nodeV )
                     nodes.addAll( otherNodes );
                     for( WiredNode node : otherNodes ) node.network = this;
                     other.nodes = null;
+                    other.routes.clear();
 
                     // Move all peripherals across,
                     other.peripherals = null;
@@ -122,6 +140,7 @@ public boolean disconnect( @Nonnull IWiredNode nodeU, @Nonnull IWiredNode nodeV
             // If there was no connection to remove then split.
             if( !wiredU.neighbours.remove( wiredV ) ) return false;
             wiredV.neighbours.remove( wiredU );
+            routes.clear();
 
             // Determine if there is still some connection from u to v.
             // Note this is an inlining of reachableNodes which short-circuits
@@ -200,6 +219,8 @@ public boolean remove( @Nonnull IWiredNode node )
             if( nodes.size() <= 1 ) return false;
             if( wired.network != this ) return false;
 
+            routes.clear();
+
             HashSet<WiredNode> neighbours = wired.neighbours;
 
             // Remove this node and move into a separate network.
@@ -320,14 +341,56 @@ public void updatePeripherals( @Nonnull IWiredNode node, @Nonnull Map<String, IP
     }
 
     static void transmitPacket( WiredNode start, Packet packet, double range, boolean interdimensional )
+    {
+        IPacketSender sender = packet.getSender();
+        if( start.element.getWorld() != sender.getWorld() )
+        {
+            // The sender is in a different world to its node. This shouldn't happen in practice, so it's not worth
+            // caching.
+            for( TransmitPoint point : findPaths( start, Double.POSITIVE_INFINITY, true ) )
+            {
+                point.node.tryTransmit( packet, point.distance, point.interdimensional, range, interdimensional );
+            }
+            return;
+        }
+
+        // Routes are computed relative to the start node, so we offset them by the distance from the sender.
+        double startDistance = start.element.getPosition().distanceTo( sender.getPosition() );
+        RoutingTable routes = start.network.getRoutes( start );
+        for( int i = 0; i < routes.nodes.length; i++ )
+        {
+            routes.nodes[i].tryTransmit(
+                packet, startDistance + routes.distances[i], routes.interdimensional[i], range, interdimensional
+            );
+        }
+    }
+
+    /**
+     * Get the shortest path from a node to every other node in the network, computing it if needed.
+     * <p>
+     * This should be called with the read lock held.
+     *
+     * @param start The node to find paths from.
+     * @return The routing table for this node.
+     */
+    private RoutingTable getRoutes( WiredNode start )
+    {
+        RoutingTable table = routes.get( start );
+        if( table != null ) return table;
+
+        table = new RoutingTable( findPaths( start, 0, false ) );
+        if( routes.size() >= MAX_CACHED_ROUTES ) routes.clear();
+        routes.put( start, table );
+        return table;
+    }
+
+    private static Collection<TransmitPoint> findPaths( WiredNode start, double startDistance, boolean startInterdimensional )
     {
         Map<WiredNode, TransmitPoint> points = new HashMap<>();
         TreeSet<TransmitPoint> transmitTo = new TreeSet<>();
 
         {
-            TransmitPoint startEntry = start.element.getWorld() != packet.getSender().getWorld()
-                ? new TransmitPoint( start, Double.POSITIVE_INFINITY, true )
-                : new TransmitPoint( start, start.element.getPosition().distanceTo( packet.getSender().getPosition() ), false );
+            TransmitPoint startEntry = new TransmitPoint( start, startDistance, startInterdimensional );
             points.put( start, startEntry );
             transmitTo.add( startEntry );
         }
@@ -372,10 +435,7 @@ else if( newDistance < neighbourPoint.distance )
             }
         }
 
-        for( TransmitPoint point : points.values() )
-        {
-            point.node.tryTransmit( packet, point.distance, point.interdimensional, range, interdimensional );
-        }
+        return points.values();
     }
 
     private void removeSingleNode( WiredNode wired, WiredNetwork wiredNetwork )
@@ -429,6 +489,33 @@ public int compareTo( @Nonnull TransmitPoint o )
         }
     }
 
+    /**
+     * The shortest distance from a node to every node in the network.
+     */
+    private static final class RoutingTable
+    {
+        final WiredNode[] nodes;
+        final double[] distances;
+        final boolean[] interdimensional;
+
+        RoutingTable( Collection<TransmitPoint> points )
+        {
+            int size = points.size();
+            nodes = new WiredNode[size];
+            distances = new double[size];
+            interdimensional = new boolean[size];
+
+            int i = 0;
+            for( TransmitPoint point : points )
+            {
+                nodes[i] = point.node;
+                distances[i] = point.distance;
+                interdimensional[i] = point.interdimensional;
+                i++;
+            }
+        }
+    }
+
     private static WiredNode checkNode( IWiredNode node )
     {
         if( node instanceof WiredNode )
@@ -12,6 +12,12 @@
 import dan200.computercraft.api.network.wired.IWiredNode;
 import dan200.computercraft.api.network.wired.IWiredSender;
 import dan200.computercraft.api.peripheral.IPeripheral;
+import dan200.computercraft.shared.peripheral.modem.ModemPeripheral;
+import dan200.computercraft.shared.peripheral.modem.ModemState;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
 
 import javax.annotation.Nonnull;
 import java.util.*;
@@ -19,8 +25,17 @@
 
 public final class WiredNode implements IWiredNode
 {
+    /**
+     * Receivers from other mods, whose channels we know nothing about. These are sent every packet.
+     */
     private Set<IPacketReceiver> receivers;
 
+    /**
+     * Our own modems, indexed by the channels they have open.
+     */
+    private Map<ModemPeripheral, ChannelListener> modems;
+    private Int2ObjectMap<Set<IPacketReceiver>> channels;
+
     final IWiredElement element;
     Map<String, IPeripheral> peripherals = Collections.emptyMap();
 
@@ -36,36 +51,117 @@ public WiredNode( IWiredElement element )
     @Override
     public synchronized void addReceiver( @Nonnull IPacketReceiver receiver )
     {
-        if( receivers == null ) receivers = new HashSet<>();
-        receivers.add( receiver );
+        if( !(receiver instanceof ModemPeripheral) )
+        {
+            if( receivers == null ) receivers = new HashSet<>();
+            receivers.add( receiver );
+            return;
+        }
+
+        ModemPeripheral modem = (ModemPeripheral) receiver;
+        if( modems == null ) modems = new HashMap<>();
+        if( modems.containsKey( modem ) ) return;
+
+        ChannelListener listener = new ChannelListener( modem );
+        modems.put( modem, listener );
+
+        // Register our listener before reading the channels, so we can't miss any changes. As we hold the lock, the
+        // listener won't be run until we've finished here.
+        ModemState state = modem.getModemState();
+        state.addListener( listener );
+        for( int channel : state.getChannels() ) openChannel( listener, channel );
     }
 
     @Override
     public synchronized void removeReceiver( @Nonnull IPacketReceiver receiver )
     {
         if( receivers != null ) receivers.remove( receiver );
+
+        ChannelListener listener = modems == null ? null : modems.remove( receiver );
+        if( listener == null ) return;
+
+        listener.modem.getModemState().removeListener( listener );
+        for( int channel : listener.channels.toIntArray() ) closeChannel( listener, channel );
+    }
+
+    private synchronized void updateChannel( ChannelListener listener, int channel )
+    {
+        if( modems == null || modems.get( listener.modem ) != listener ) return;
+
+        if( listener.modem.getModemState().isOpen( channel ) )
+        {
+            if( !listener.channels.contains( channel ) ) openChannel( listener, channel );
+        }
+        else
+        {
+            if( listener.channels.contains( channel ) ) closeChannel( listener, channel );
+        }
+    }
+
+    private synchronized void updateChannels( ChannelListener listener )
+    {
+        if( modems == null || modems.get( listener.modem ) != listener ) return;
+
+        ModemState state = listener.modem.getModemState();
+        for( int channel : listener.channels.toIntArray() )
+        {
+            if( !state.isOpen( channel ) ) closeChannel( listener, channel );
+        }
+    }
+
+    private void openChannel( ChannelListener listener, int channel )
+    {
+        listener.channels.add( channel );
+
+        if( channels == null ) channels = new Int2ObjectOpenHashMap<>();
+        Set<IPacketReceiver> listening = channels.get( channel );
+        if( listening == null ) channels.put( channel, listening = new HashSet<>( 1 ) );
+        listening.add( listener.modem );
+    }
+
+    private void closeChannel( ChannelListener listener, int channel )
+    {
+        listener.channels.remove( channel );
+
+        Set<IPacketReceiver> listening = channels.get( channel );
+        if( listening != null && listening.remove( listener.modem ) && listening.isEmpty() ) channels.remove( channel );
     }
 
     synchronized void tryTransmit( Packet packet, double packetDistance, boolean packetInterdimensional, double range, boolean interdimensional )
     {
-        if( receivers == null ) return;
+        if( receivers != null )
+        {
+            for( IPacketReceiver receiver : receivers )
+            {
+                tryTransmit( receiver, packet, packetDistance, packetInterdimensional, range, interdimensional );
+            }
+        }
 
-        for( IPacketReceiver receiver : receivers )
+        Set<IPacketReceiver> listening = channels == null ? null : channels.get( packet.getChannel() );
+        if( listening != null )
         {
-            if( !packetInterdimensional )
+            for( IPacketReceiver receiver : listening )
             {
-                double receiveRange = Math.max( range, receiver.getRange() ); // Ensure range is symmetrical
-                if( interdimensional || receiver.isInterdimensional() || packetDistance < receiveRange )
-                {
-                    receiver.receiveSameDimension( packet, packetDistance + element.getPosition().distanceTo( receiver.getPosition() ) );
-                }
+                tryTransmit( receiver, packet, packetDistance, packetInterdimensional, range, interdimensional );
             }
-            else
+        }
+    }
+
+    private void tryTransmit( IPacketReceiver receiver, Packet packet, double packetDistance, boolean packetInterdimensional, double range, boolean interdimensional )
+    {
+        if( !packetInterdimensional )
+        {
+            double receiveRange = Math.max( range, receiver.getRange() ); // Ensure range is symmetrical
+            if( interdimensional || receiver.isInterdimensional() || packetDistance < receiveRange )
             {
-                if( interdimensional || receiver.isInterdimensional() )
-                {
-                    receiver.receiveDifferentDimension( packet );
-                }
+                receiver.receiveSameDimension( packet, packetDistance + element.getPosition().distanceTo( receiver.getPosition() ) );
+            }
+        }
+        else
+        {
+            if( interdimensional || receiver.isInterdimensional() )
+            {
+                receiver.receiveDifferentDimension( packet );
             }
         }
     }
@@ -149,4 +245,30 @@ private void acquireReadLock()
             lock.unlock();
         }
     }
+
+    /**
+     * Tracks the channels a modem on this node has open.
+     */
+    private final class ChannelListener implements ModemState.Listener
+    {
+        final ModemPeripheral modem;
+        final IntSet channels = new IntOpenHashSet();
+
+        ChannelListener( ModemPeripheral modem )
+        {
+            this.modem = modem;
+        }
+
+        @Override
+        public void onChannelChanged( int channel )
+        {
+            updateChannel( this, channel );
+        }
+
+        @Override
+        public void onChannelsCleared()
+        {
+            updateChannels( this );
+        }
+    }
 }
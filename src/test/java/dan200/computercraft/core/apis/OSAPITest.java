@@ -0,0 +1,191 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.apis;
+
+import dan200.computercraft.api.lua.LuaException;
+import dan200.computercraft.test.core.apis.BasicApiEnvironment;
+import dan200.computercraft.test.core.computer.BasicEnvironment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class OSAPITest
+{
+    private final TimeEnvironment environment = new TimeEnvironment();
+    private final List<Integer> alarms = new ArrayList<>();
+    private final OSAPI api = new OSAPI( new BasicApiEnvironment( environment )
+    {
+        @Override
+        public void queueEvent( String event, Object... args )
+        {
+            if( event.equals( "alarm" ) ) alarms.add( (Integer) args[0] );
+        }
+    } );
+
+    @BeforeEach
+    public void before()
+    {
+        environment.time = 6.0;
+        api.startup();
+    }
+
+    @Test
+    public void testFiringOrder() throws LuaException
+    {
+        int late = api.setAlarm( 9.0 );
+        int early = api.setAlarm( 7.0 );
+        int middle = api.setAlarm( 8.0 );
+        int alsoMiddle = api.setAlarm( 8.0 );
+
+        // Alarms are checked against the time as of the previous update.
+        advance( 10.0 );
+        advance( 10.5 );
+        assertEquals( Arrays.asList( early, middle, alsoMiddle, late ), alarms, "Alarms fire in time, then creation, order" );
+    }
+
+    @Test
+    public void testFiresWhenDue() throws LuaException
+    {
+        int alarm = api.setAlarm( 7.0 );
+
+        advance( 6.5 );
+        advance( 6.9 );
+        assertEquals( Arrays.asList(), alarms );
+
+        advance( 7.0 );
+        advance( 7.1 );
+        assertEquals( Arrays.asList( alarm ), alarms );
+
+        // Alarms only fire once.
+        advance( 8.0 );
+        advance( 9.0 );
+        assertEquals( Arrays.asList( alarm ), alarms );
+    }
+
+    @Test
+    public void testPastAlarmsFireTomorrow() throws LuaException
+    {
+        int past = api.setAlarm( 5.0 );
+        int now = api.setAlarm( 6.0 );
+
+        advance( 23.9 );
+        advance( 23.95 );
+        assertEquals( Arrays.asList(), alarms, "Alarms for earlier times wait until the next day" );
+
+        environment.day = 1;
+        advance( 5.0 );
+        advance( 7.0 );
+        advance( 7.5 );
+        assertEquals( Arrays.asList( past, now ), alarms );
+    }
+
+    @Test
+    public void testTimeMustAdvance() throws LuaException
+    {
+        int alarm = api.setAlarm( 7.0 );
+
+        // Updates where the time has not advanced do not fire alarms.
+        advance( 8.0 );
+        advance( 8.0 );
+        assertEquals( Arrays.asList(), alarms );
+
+        advance( 8.5 );
+        assertEquals( Arrays.asList( alarm ), alarms );
+    }
+
+    @Test
+    public void testOutOfRange()
+    {
+        assertThrows( LuaException.class, () -> api.setAlarm( -0.5 ) );
+        assertThrows( LuaException.class, () -> api.setAlarm( 24.0 ) );
+        assertThrows( LuaException.class, () -> api.setAlarm( Double.NaN ) );
+        assertEquals( 0, api.queuedAlarms() );
+    }
+
+    @Test
+    public void testCancel() throws LuaException
+    {
+        int cancelled = api.setAlarm( 7.0 );
+        int fired = api.setAlarm( 7.0 );
+        api.cancelAlarm( cancelled );
+
+        advance( 7.5 );
+        advance( 8.0 );
+        assertEquals( Arrays.asList( fired ), alarms );
+        assertEquals( 0, api.queuedAlarms() );
+
+        // Cancelling an alarm which has already fired, or an unknown one, does nothing.
+        api.cancelAlarm( fired );
+        api.cancelAlarm( 1234 );
+        assertEquals( 0, api.queuedAlarms() );
+    }
+
+    @Test
+    public void testCompaction() throws LuaException
+    {
+        int[] ids = new int[100];
+        for( int i = 0; i < ids.length; i++ ) ids[i] = api.setAlarm( 7.0 + i / 100.0 );
+
+        // Cancelled alarms stay in the queue until they make up more than half of it.
+        for( int i = 0; i < 50; i++ ) api.cancelAlarm( ids[i] );
+        assertEquals( 100, api.queuedAlarms() );
+
+        api.cancelAlarm( ids[50] );
+        assertEquals( 49, api.queuedAlarms(), "Cancelled alarms are removed once they are the majority" );
+
+        // And the remaining alarms fire in order.
+        advance( 10.0 );
+        advance( 10.5 );
+
+        List<Integer> expected = new ArrayList<>();
+        for( int i = 51; i < ids.length; i++ ) expected.add( ids[i] );
+        assertEquals( expected, alarms );
+        assertEquals( 0, api.queuedAlarms() );
+    }
+
+    @Test
+    public void testShutdownClears() throws LuaException
+    {
+        api.setAlarm( 7.0 );
+        api.shutdown();
+        assertEquals( 0, api.queuedAlarms() );
+
+        api.startup();
+        advance( 8.0 );
+        advance( 9.0 );
+        assertEquals( Arrays.asList(), alarms );
+    }
+
+    private void advance( double time )
+    {
+        environment.time = time;
+        api.update();
+    }
+
+    private static final class TimeEnvironment extends BasicEnvironment
+    {
+        int day;
+        double time;
+
+        @Override
+        public int getDay()
+        {
+            return day;
+        }
+
+        @Override
+        public double getTimeOfDay()
+        {
+            return time;
+        }
+    }
+}
@@ -11,9 +11,11 @@
 
 import java.io.BufferedReader;
 import java.io.CharArrayReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class EncodedReadableHandleTest
 {
@@ -60,10 +62,144 @@ public void testReadLongPartialSmaller() throws LuaException
         assertEquals( 1000, wrapper.<String>callOf( "read", 11000 ).length() );
     }
 
+    @Test
+    public void testUtf8ReadLine() throws LuaException
+    {
+        ObjectWrapper wrapper = fromUtf8( "a\r\nb\rc\n\nd" );
+        assertEquals( "a", toText( wrapper.callOf( "readLine" ) ) );
+        assertEquals( "b\n", toText( wrapper.callOf( "readLine", true ) ) );
+        assertEquals( "c", toText( wrapper.callOf( "readLine" ) ) );
+        assertEquals( "", toText( wrapper.callOf( "readLine" ) ) );
+        assertEquals( "d", toText( wrapper.callOf( "readLine" ) ) );
+        assertNull( wrapper.call( "readLine" ) );
+    }
+
+    @Test
+    public void testUtf8ReadAll() throws LuaException
+    {
+        assertEquals( "a\nb\nc\n", toText( fromUtf8( "a\r\nb\rc\n\n" ).callOf( "readAll" ) ) );
+        assertEquals( "", toText( fromUtf8( "" ).callOf( "readAll" ) ) );
+    }
+
+    @Test
+    public void testUtf8ReadLong() throws LuaException
+    {
+        char[] input = new char[20000];
+        Arrays.fill( input, '\u00e9' );
+
+        // BufferedReader may return fewer characters than requested, but we should always read as many as possible.
+        ObjectWrapper wrapper = fromUtf8( new String( input ) );
+        assertEquals( 9000, toText( wrapper.callOf( "read", 9000 ) ).length() );
+        assertEquals( 11000, toText( wrapper.callOf( "read", 12000 ) ).length() );
+        assertNull( wrapper.call( "read", 1 ) );
+    }
+
+    /**
+     * Check the UTF-8 handle behaves the same as one using a {@link BufferedReader}, for a range of inputs and ways of
+     * reading them.
+     *
+     * @throws LuaException If reading fails.
+     */
+    @Test
+    public void testUtf8MatchesReader() throws LuaException
+    {
+        char[] longLine = new char[20000];
+        for( int i = 0; i < longLine.length; i++ ) longLine[i] = i % 1000 == 999 ? '\n' : "abc\u00e9\u20ac".charAt( i % 5 );
+
+        byte[][] inputs = new byte[][] {
+            new byte[0],
+            bytes( "a" ), bytes( "a\n" ), bytes( "a\r\nb\rc\n\nd\r" ),
+            bytes( "h\u00e9llo\nw\u00f6rld\r\n" ), bytes( "\ud83d\ude00x\r\n\ud83d\ude00" ),
+            bytes( new String( longLine ) ), bytes( new String( longLine ).replace( '\u00e9', 'e' ).replace( '\u20ac', 'f' ) ),
+            new byte[] { 'a', (byte) 0xe2, '\n', (byte) 0xff, (byte) 0xe2, (byte) 0x82 },
+        };
+
+        for( byte[] input : inputs )
+        {
+            assertSameResults( input, "readLine" );
+            assertSameResults( input, "readLine", true );
+            assertSameResults( input, "readAll" );
+            for( int count : new int[] { 1, 2, 3, 7 } ) assertSameResults( input, "read", count );
+        }
+    }
+
+    private static void assertSameResults( byte[] input, String method, Object... args ) throws LuaException
+    {
+        ObjectWrapper expected = new ObjectWrapper( new EncodedReadableHandle( EncodedReadableHandle.openUtf8( new ArrayByteChannel( input ) ) ) );
+        ObjectWrapper actual = fromUtf8( input );
+
+        // Interleave other reads, to check we agree on where they start and finish.
+        String[] methods = new String[] { method, "read", method, "readLine", method, "readAll", method };
+        for( int i = 0; i < methods.length; i++ )
+        {
+            Object[] expectedResult = methods[i].equals( method ) ? expected.call( method, args ) : expected.call( methods[i] );
+            Object[] actualResult = methods[i].equals( method ) ? actual.call( method, args ) : actual.call( methods[i] );
+
+            String message = "Call #" + i + " to " + methods[i] + " on " + input.length + " bytes";
+            if( expectedResult == null )
+            {
+                assertNull( actualResult, message );
+            }
+            else
+            {
+                assertNotNull( actualResult, message );
+                assertArrayEquals( toLuaBytes( expectedResult[0] ), toLuaBytes( actualResult[0] ), message );
+            }
+        }
+    }
+
     private static ObjectWrapper fromLength( int length )
     {
         char[] input = new char[length];
         Arrays.fill( input, 'A' );
         return new ObjectWrapper( new EncodedReadableHandle( new BufferedReader( new CharArrayReader( input ) ) ) );
     }
+
+    private static ObjectWrapper fromUtf8( String contents )
+    {
+        return fromUtf8( bytes( contents ) );
+    }
+
+    private static ObjectWrapper fromUtf8( byte[] contents )
+    {
+        return new ObjectWrapper( EncodedReadableHandle.ofUtf8( new ArrayByteChannel( contents ) ) );
+    }
+
+    private static byte[] bytes( String contents )
+    {
+        return contents.getBytes( StandardCharsets.UTF_8 );
+    }
+
+    private static String toText( Object value )
+    {
+        return new String( toLuaBytes( value ), StandardCharsets.ISO_8859_1 );
+    }
+
+    /**
+     * Convert a value to the bytes of the Lua string it would become.
+     *
+     * @param value The value to convert.
+     * @return The string's bytes.
+     */
+    private static byte[] toLuaBytes( Object value )
+    {
+        if( value instanceof byte[] ) return (byte[]) value;
+
+        if( value instanceof ByteBuffer )
+        {
+            ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get( bytes );
+            return bytes;
+        }
+
+        String string = (String) value;
+        byte[] bytes = new byte[string.length()];
+        for( int i = 0; i < bytes.length; i++ )
+        {
+            char c = string.charAt( i );
+            bytes[i] = c < 256 ? (byte) c : (byte) '?';
+        }
+        return bytes;
+    }
 }
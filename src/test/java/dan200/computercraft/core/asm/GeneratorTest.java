@@ -21,7 +21,7 @@
 import static dan200.computercraft.test.core.ContramapMatcher.contramap;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class GeneratorTest
 {
@@ -127,6 +127,38 @@ public void testUnsafe()
         assertThat( methods, contains( named( "withUnsafe" ) ) );
     }
 
+    @Test
+    public void testPrimitiveResults() throws LuaException
+    {
+        List<NamedMethod<LuaMethod>> methods = LuaMethod.GENERATOR.getMethods( PrimitiveResults.class );
+        PrimitiveResults instance = new PrimitiveResults();
+
+        assertThat( apply( methods, instance, "getInt" ), one( is( 3 ) ) );
+        assertThat( apply( methods, instance, "getLong" ), one( is( 4L ) ) );
+        assertThat( apply( methods, instance, "getFloat" ), one( is( 0.5 ) ) );
+        assertThat( apply( methods, instance, "getDouble" ), one( is( 1.5 ) ) );
+        assertThat( apply( methods, instance, "getBoolean" ), one( is( true ) ) );
+
+        assertTrue( apply( methods, instance, "getInt" ).isNumber() );
+        assertEquals( 1.5, apply( methods, instance, "getDouble" ).getNumber() );
+        assertFalse( apply( methods, instance, "getBoolean" ).isNumber() );
+        assertTrue( apply( methods, instance, "getBoolean" ).isBoolean() );
+        assertTrue( apply( methods, instance, "getBoolean" ).getBoolean() );
+
+        // Longs are stored exactly, even if they cannot be represented as a double.
+        assertThat( apply( methods, instance, "getBigLong" ), one( is( (1L << 53) + 1 ) ) );
+    }
+
+    @Test
+    public void testSharedResultsNotModified()
+    {
+        Object[] result = MethodResult.of( true ).getResult();
+        assertNotNull( result );
+        result[0] = false;
+
+        assertThat( MethodResult.of( true ), one( is( true ) ) );
+    }
+
     public static class Basic
     {
         @LuaFunction
@@ -222,6 +254,45 @@ public final String optEnum( Optional<ComputerSide> side )
         }
     }
 
+    public static class PrimitiveResults
+    {
+        @LuaFunction
+        public final int getInt()
+        {
+            return 3;
+        }
+
+        @LuaFunction
+        public final long getLong()
+        {
+            return 4;
+        }
+
+        @LuaFunction
+        public final long getBigLong()
+        {
+            return (1L << 53) + 1;
+        }
+
+        @LuaFunction
+        public final float getFloat()
+        {
+            return 0.5f;
+        }
+
+        @LuaFunction
+        public final double getDouble()
+        {
+            return 1.5;
+        }
+
+        @LuaFunction
+        public final boolean getBoolean()
+        {
+            return true;
+        }
+    }
+
     public static class MainThread
     {
         @LuaFunction( mainThread = true )
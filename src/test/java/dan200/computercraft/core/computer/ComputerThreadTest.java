@@ -7,6 +7,7 @@
 
 import dan200.computercraft.ComputerCraft;
 import dan200.computercraft.core.lua.MachineResult;
+import dan200.computercraft.core.metrics.MetricsObserver;
 import dan200.computercraft.support.ConcurrentHelpers;
 import dan200.computercraft.test.core.computer.KotlinComputerManager;
 import org.junit.jupiter.api.AfterEach;
@@ -16,7 +17,10 @@
 import org.junit.jupiter.api.parallel.Execution;
 import org.junit.jupiter.api.parallel.ExecutionMode;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.closeTo;
@@ -109,4 +113,54 @@ public void testPauseIfSomeOtherMachine() throws Exception
 
         manager.startAndWait( computer );
     }
+
+    @Test
+    public void testShardedRunsAllComputers() throws Exception
+    {
+        try( KotlinComputerManager manager = new KotlinComputerManager( new ComputerThread( 4, true ) ) )
+        {
+            AtomicInteger finished = new AtomicInteger();
+            List<Computer> computers = new ArrayList<>();
+            for( int i = 0; i < 32; i++ )
+            {
+                Computer computer = manager.create();
+                manager.enqueue( computer, timeout -> {
+                    Thread.sleep( 20 );
+                    finished.incrementAndGet();
+                    computer.shutdown();
+                    return MachineResult.OK;
+                } );
+                computers.add( computer );
+            }
+
+            for( Computer computer : computers )
+            {
+                computer.turnOn();
+                computer.tick();
+            }
+
+            while( manager.context().computerScheduler().hasPendingWork() || computers.stream().anyMatch( Computer::isOn ) )
+            {
+                manager.sleep( 100, TimeUnit.MILLISECONDS );
+            }
+
+            assertEquals( computers.size(), finished.get(), "All computers should have run" );
+        }
+    }
+
+    @Test
+    public void testAdaptiveAddsWorkers() throws Exception
+    {
+        ComputerThread scheduler = new ComputerThread( 1, 4, false, MetricsObserver.NONE );
+        try( KotlinComputerManager manager = new KotlinComputerManager( scheduler ) )
+        {
+            assertEquals( 1, scheduler.getWorkerLimit() );
+
+            // Keep the queue full, so computers are left waiting for longer than our target latency.
+            for( int i = 0; i < 4; i++ ) manager.createLoopingComputer();
+
+            boolean grew = ConcurrentHelpers.waitUntil( () -> scheduler.getWorkerLimit() > 1, 5, TimeUnit.SECONDS );
+            assertTrue( grew, "Should have added a worker" );
+        }
+    }
 }
@@ -0,0 +1,68 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.computer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventQueueTest
+{
+    @Test
+    public void testDistinctEvents()
+    {
+        EventQueue queue = new EventQueue( 16 );
+        assertEquals( EventQueue.Result.QUEUED, queue.offer( "redstone", null ) );
+        assertEquals( EventQueue.Result.QUEUED, queue.offer( "key", new Object[] { 1 } ) );
+        assertEquals( EventQueue.Result.COALESCED, queue.offer( "redstone", null ) );
+
+        assertEquals( EventQueue.Result.QUEUED, queue.offer( "monitor_resize", new Object[] { "left" } ) );
+        assertEquals( EventQueue.Result.QUEUED, queue.offer( "monitor_resize", new Object[] { "right" } ) );
+        assertEquals( EventQueue.Result.COALESCED, queue.offer( "monitor_resize", new Object[] { "left" } ) );
+
+        assertNames( queue, "redstone", "key", "monitor_resize", "monitor_resize" );
+
+        // Once the event has been delivered, we queue it again.
+        assertEquals( EventQueue.Result.QUEUED, queue.offer( "redstone", null ) );
+    }
+
+    @Test
+    public void testLatestEvents()
+    {
+        EventQueue queue = new EventQueue( 16 );
+        queue.offer( "mouse_drag", new Object[] { 1, 1, 1 } );
+        assertEquals( EventQueue.Result.COALESCED, queue.offer( "mouse_drag", new Object[] { 1, 2, 2 } ) );
+        queue.offer( "mouse_up", new Object[] { 1, 2, 2 } );
+        assertEquals( EventQueue.Result.QUEUED, queue.offer( "mouse_drag", new Object[] { 1, 3, 3 } ) );
+
+        EventQueue.Event event = queue.poll();
+        assertEquals( "mouse_drag", event.name );
+        assertArrayEquals( new Object[] { 1, 2, 2 }, event.args );
+        assertEquals( "mouse_up", queue.poll().name );
+        assertArrayEquals( new Object[] { 1, 3, 3 }, queue.poll().args );
+        assertTrue( queue.isEmpty() );
+    }
+
+    @Test
+    public void testLimit()
+    {
+        EventQueue queue = new EventQueue( 2 );
+        assertEquals( EventQueue.Result.QUEUED, queue.offer( "redstone", null ) );
+        assertEquals( EventQueue.Result.QUEUED, queue.offer( "mouse_drag", new Object[] { 1, 1, 1 } ) );
+        assertEquals( EventQueue.Result.DROPPED, queue.offer( "modem_message", null ) );
+
+        // Coalesced events are still accepted when the queue is full.
+        assertEquals( EventQueue.Result.COALESCED, queue.offer( "redstone", null ) );
+        assertEquals( EventQueue.Result.COALESCED, queue.offer( "mouse_drag", new Object[] { 1, 2, 2 } ) );
+        assertEquals( 2, queue.size() );
+    }
+
+    private static void assertNames( EventQueue queue, String... names )
+    {
+        for( String name : names ) assertEquals( name, queue.poll().name );
+        assertTrue( queue.isEmpty() );
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.computer;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TimerQueueTest
+{
+    private final TimerQueue timers = new TimerQueue();
+
+    @Test
+    public void testFiringOrder()
+    {
+        int late = timers.start( 3 );
+        int early = timers.start( 1 );
+        int middle = timers.start( 2 );
+        int alsoMiddle = timers.start( 2 );
+
+        assertEquals( IntArrayList.wrap( new int[] { early } ), tick() );
+        assertEquals( IntArrayList.wrap( new int[] { middle, alsoMiddle } ), tick(), "Timers due on the same tick fire in creation order" );
+        assertEquals( IntArrayList.wrap( new int[] { late } ), tick() );
+        assertEquals( new IntArrayList(), tick() );
+        assertEquals( 0, timers.queueSize() );
+    }
+
+    @Test
+    public void testTimersStartedLater()
+    {
+        tick();
+        tick();
+        int timer = timers.start( 2 );
+
+        assertEquals( new IntArrayList(), tick() );
+        assertEquals( IntArrayList.wrap( new int[] { timer } ), tick(), "Timer fires relative to the current tick" );
+    }
+
+    @Test
+    public void testZeroAndNegative()
+    {
+        int zero = timers.start( 0 );
+        int negative = timers.start( -5 );
+        int one = timers.start( 1 );
+
+        assertEquals( IntArrayList.wrap( new int[] { zero, negative, one } ), tick(), "Timers wait at least one tick" );
+    }
+
+    @Test
+    public void testVeryLong()
+    {
+        tick();
+        int timer = timers.start( Long.MAX_VALUE );
+        assertEquals( new IntArrayList(), tick(), "Long timers do not overflow" );
+
+        timers.cancel( timer );
+        assertEquals( 0, timers.queueSize() );
+    }
+
+    @Test
+    public void testCancel()
+    {
+        int cancelled = timers.start( 1 );
+        int fired = timers.start( 1 );
+        timers.cancel( cancelled );
+
+        assertEquals( IntArrayList.wrap( new int[] { fired } ), tick() );
+
+        // Cancelling a timer which has already fired, or an unknown one, does nothing.
+        timers.cancel( fired );
+        timers.cancel( 1234 );
+        int timer = timers.start( 1 );
+        assertEquals( IntArrayList.wrap( new int[] { timer } ), tick() );
+    }
+
+    @Test
+    public void testCompaction()
+    {
+        int[] ids = new int[100];
+        for( int i = 0; i < ids.length; i++ ) ids[i] = timers.start( 1000 + i );
+
+        // Cancelled timers stay in the queue until they make up more than half of it.
+        for( int i = 0; i < 50; i++ ) timers.cancel( ids[i] );
+        assertEquals( 100, timers.queueSize() );
+
+        timers.cancel( ids[50] );
+        assertEquals( 49, timers.queueSize(), "Cancelled timers are removed once they are the majority" );
+
+        // And the remaining timers fire in order.
+        IntList fired = new IntArrayList();
+        for( int i = 0; i < 1100; i++ ) fired.addAll( tick() );
+
+        IntList expected = new IntArrayList();
+        for( int i = 51; i < ids.length; i++ ) expected.add( ids[i] );
+        assertEquals( expected, fired );
+        assertEquals( 0, timers.queueSize() );
+    }
+
+    @Test
+    public void testCancelledTimersDueAreSkipped()
+    {
+        int[] ids = new int[10];
+        for( int i = 0; i < ids.length; i++ ) ids[i] = timers.start( 1 );
+        for( int i = 0; i < 5; i++ ) timers.cancel( ids[i] );
+        assertEquals( 10, timers.queueSize() );
+
+        IntList expected = new IntArrayList();
+        for( int i = 5; i < ids.length; i++ ) expected.add( ids[i] );
+        assertEquals( expected, tick() );
+        assertEquals( 0, timers.queueSize() );
+
+        // The count of cancelled timers is reset correctly, so compaction still happens when expected.
+        int first = timers.start( 10 );
+        int second = timers.start( 10 );
+        timers.start( 10 );
+        timers.cancel( first );
+        assertEquals( 3, timers.queueSize() );
+        timers.cancel( second );
+        assertEquals( 1, timers.queueSize() );
+    }
+
+    @Test
+    public void testClear()
+    {
+        timers.start( 1 );
+        timers.start( 2 );
+        timers.clear();
+
+        assertEquals( 0, timers.queueSize() );
+        assertEquals( new IntArrayList(), tick() );
+    }
+
+    private IntList tick()
+    {
+        IntList fired = new IntArrayList();
+        timers.tick( fired::add );
+        return fired;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.filesystem;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.support.TestFiles;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileMountTest
+{
+    private static final File ROOT = TestFiles.get( "file-mount" ).toFile();
+    private static final File MOUNT = new File( ROOT, "mount" );
+    private static final File USAGE = new File( ROOT, "mount.usage" );
+    private static final long CAPACITY = 1000000;
+
+    @BeforeEach
+    public void setup() throws IOException
+    {
+        // Don't delete the directory while a mount from a previous test is still measuring it.
+        FileMount.awaitMeasurements();
+        if( ROOT.exists() ) MoreFiles.deleteRecursively( ROOT.toPath(), RecursiveDeleteOption.ALLOW_INSECURE );
+        ROOT.mkdirs();
+    }
+
+    @Test
+    public void testUsageIsSaved() throws IOException
+    {
+        FileMount mount = new FileMount( MOUNT, CAPACITY );
+        mount.makeDirectory( "dir" );
+        try( WritableByteChannel channel = mount.openForWrite( "dir/file.txt" ) )
+        {
+            channel.write( ByteBuffer.wrap( new byte[1000] ) );
+        }
+
+        long remaining = mount.getRemainingSpace();
+        assertFalse( USAGE.exists(), "Usage file is not written immediately" );
+
+        mount.saveUsage();
+        assertTrue( USAGE.exists(), "Usage file has been saved" );
+        assertEquals( remaining, new FileMount( MOUNT, CAPACITY ).getRemainingSpace() );
+
+        // Changing the mount removes the usage file until it is saved again.
+        mount.delete( "dir/file.txt" );
+        assertFalse( USAGE.exists(), "Usage file is removed after changing the mount" );
+    }
+
+    @Test
+    public void testUsageIsMeasured() throws IOException
+    {
+        FileMount mount = new FileMount( MOUNT, CAPACITY );
+        mount.makeDirectory( "a" );
+        mount.makeDirectory( "b" );
+        mount.openForWrite( "a/file.txt" ).close();
+        long remaining = mount.getRemainingSpace();
+
+        // Without a usage file, we rescan the directory.
+        assertFalse( USAGE.exists() );
+        FileMount reloaded = new FileMount( MOUNT, CAPACITY );
+        reloaded.measure();
+        assertEquals( remaining, reloaded.getRemainingSpace() );
+    }
+
+    @Test
+    public void testStaleUsageIsCorrected() throws IOException
+    {
+        FileMount mount = new FileMount( MOUNT, CAPACITY );
+        mount.makeDirectory( "dir" );
+        mount.openForWrite( "dir/file.txt" ).close();
+        long remaining = mount.getRemainingSpace();
+        mount.saveUsage();
+
+        // Grow a file within a subdirectory outside the game. This does not change the mount's modification time.
+        Files.write( new File( MOUNT, "dir/file.txt" ).toPath(), new byte[1500] );
+
+        FileMount reloaded = new FileMount( MOUNT, CAPACITY );
+        reloaded.measure();
+        assertEquals( remaining - 1000, reloaded.getRemainingSpace() );
+        assertEquals( remaining - 1000, new FileMount( MOUNT, CAPACITY ).getRemainingSpace(), "Corrected usage is saved" );
+    }
+
+    @Test
+    public void testWritesAreBuffered() throws IOException
+    {
+        FileMount mount = new FileMount( MOUNT, CAPACITY );
+        File file = new File( MOUNT, "file.txt" );
+        try( WritableByteChannel channel = mount.openForWrite( "file.txt" ) )
+        {
+            long remaining = mount.getRemainingSpace();
+            channel.write( ByteBuffer.wrap( new byte[1000] ) );
+
+            // Space is allocated immediately, but nothing is written until the file is flushed.
+            assertEquals( remaining - 500, mount.getRemainingSpace() );
+            assertEquals( 0, file.length() );
+
+            ((Flushable) channel).flush();
+            assertEquals( 1000, file.length() );
+
+            channel.write( ByteBuffer.wrap( new byte[100] ) );
+            channel.write( ByteBuffer.wrap( new byte[10000] ) );
+            assertEquals( 11100, file.length() );
+
+            channel.write( ByteBuffer.wrap( new byte[100] ) );
+        }
+
+        assertEquals( 11200, file.length() );
+    }
+
+    @Test
+    public void testBufferedWritesOutOfSpace() throws IOException
+    {
+        FileMount mount = new FileMount( MOUNT, 2000 );
+        try( WritableByteChannel channel = mount.openForWrite( "file.txt" ) )
+        {
+            channel.write( ByteBuffer.wrap( new byte[1000] ) );
+            assertThrows( IOException.class, () -> channel.write( ByteBuffer.wrap( new byte[2000] ) ) );
+        }
+    }
+
+    @Test
+    public void testSeekWithBufferedWrites() throws IOException
+    {
+        FileMount mount = new FileMount( MOUNT, CAPACITY );
+        try( SeekableByteChannel channel = (SeekableByteChannel) mount.openForWrite( "file.txt" ) )
+        {
+            channel.write( ByteBuffer.wrap( "abc".getBytes( StandardCharsets.UTF_8 ) ) );
+            assertEquals( 3, channel.position() );
+            assertEquals( 3, channel.size() );
+
+            channel.position( 1 );
+            channel.write( ByteBuffer.wrap( "X".getBytes( StandardCharsets.UTF_8 ) ) );
+            assertEquals( 2, channel.position() );
+        }
+
+        assertEquals( "aXc", new String( Files.readAllBytes( new File( MOUNT, "file.txt" ).toPath() ), StandardCharsets.UTF_8 ) );
+    }
+
+    @Test
+    public void testCoalescedFlushes() throws IOException
+    {
+        FileMount mount = new FileMount( MOUNT, CAPACITY );
+        File file = new File( MOUNT, "file.txt" );
+
+        ComputerCraft.coalesceFileFlushes = true;
+        try( WritableByteChannel channel = mount.openForWrite( "file.txt" ) )
+        {
+            channel.write( ByteBuffer.wrap( new byte[100] ) );
+            ((Flushable) channel).flush();
+
+            FileMount.writePendingFlushes();
+            assertEquals( 100, file.length() );
+
+            // Closing a file writes it immediately, even if a flush is pending.
+            channel.write( ByteBuffer.wrap( new byte[100] ) );
+            ((Flushable) channel).flush();
+        }
+        finally
+        {
+            ComputerCraft.coalesceFileFlushes = false;
+        }
+
+        assertEquals( 200, file.length() );
+    }
+
+    @Test
+    @EnabledOnOs( OS.LINUX )
+    public void testCoalescedFlushErrors() throws IOException
+    {
+        // Writes to /dev/full always fail, which lets us check errors in deferred flushes are not lost.
+        FileMount mount = new FileMount( MOUNT, CAPACITY );
+        mount.makeDirectory( "" );
+        Files.createSymbolicLink( new File( MOUNT, "full" ).toPath(), new File( "/dev/full" ).toPath() );
+
+        ComputerCraft.coalesceFileFlushes = true;
+        try( WritableByteChannel channel = mount.openForWrite( "full" ) )
+        {
+            channel.write( ByteBuffer.wrap( new byte[100] ) );
+            ((Flushable) channel).flush();
+            FileMount.writePendingFlushes();
+
+            assertThrows( IOException.class, () -> channel.write( ByteBuffer.wrap( new byte[100] ) ), "Error is thrown from the next write" );
+        }
+        catch( IOException e )
+        {
+            // Closing will try to write the buffer again, which also fails.
+        }
+        finally
+        {
+            ComputerCraft.coalesceFileFlushes = false;
+        }
+    }
+}
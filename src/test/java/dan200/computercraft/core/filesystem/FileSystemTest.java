@@ -5,21 +5,37 @@
  */
 package dan200.computercraft.core.filesystem;
 
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
 import dan200.computercraft.api.filesystem.IWritableMount;
 import dan200.computercraft.api.lua.LuaException;
 import dan200.computercraft.core.apis.ObjectWrapper;
 import dan200.computercraft.core.apis.handles.EncodedWritableHandle;
 import dan200.computercraft.support.TestFiles;
+import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class FileSystemTest
 {
@@ -79,4 +95,249 @@ public void testUnmountCloses() throws FileSystemException
         LuaException err = assertThrows( LuaException.class, () -> wrapper.call( "write", "Tiny line" ) );
         assertEquals( "attempt to use a closed file", err.getMessage() );
     }
+
+    @Test
+    public void testFindTracksChanges() throws FileSystemException, IOException
+    {
+        File root = TestFiles.get( "filesystem-find" ).toFile();
+        if( root.exists() ) MoreFiles.deleteRecursively( root.toPath(), RecursiveDeleteOption.ALLOW_INSECURE );
+        new File( root, "hdd/a/b" ).mkdirs();
+        new File( root, "disk/b" ).mkdirs();
+        Files.touch( new File( root, "hdd/a/b/c.lua" ) );
+
+        FileSystem fs = new FileSystem( "hdd", new FileMount( new File( root, "hdd" ), CAPACITY ) );
+        fs.mountWritable( "disk", "disk", new FileMount( new File( root, "disk" ), CAPACITY ) );
+
+        assertArrayEquals( new String[] { "a/b/c.lua" }, fs.find( "*/*/*.lua" ) );
+        assertArrayEquals( new String[] { "a", "disk" }, fs.find( "*" ) );
+        assertArrayEquals( new String[] { "disk/b" }, fs.find( "disk/*" ) );
+
+        fs.makeDir( "a/d" );
+        fs.openForWrite( "a/d/e.lua", false, Function.identity() ).close();
+        fs.openForWrite( "a/f/g.txt", false, Function.identity() ).close();
+        assertArrayEquals( new String[] { "a/b/c.lua", "a/d/e.lua" }, fs.find( "a/*/*.lua" ) );
+        assertArrayEquals( new String[] { "a/b", "a/d", "a/f" }, fs.find( "a/*" ) );
+
+        fs.delete( "a/b" );
+        assertArrayEquals( new String[] { "a/d/e.lua" }, fs.find( "*/*/*.lua" ) );
+        assertArrayEquals( new String[] { "a/d/e.lua" }, fs.find( "*/*/e*" ) );
+        assertArrayEquals( new String[0], fs.find( "a/f/*.lua" ) );
+    }
+
+    @Test
+    public void testFindSeesOtherChanges() throws FileSystemException, IOException
+    {
+        File root = TestFiles.get( "filesystem-find-shared" ).toFile();
+        if( root.exists() ) MoreFiles.deleteRecursively( root.toPath(), RecursiveDeleteOption.ALLOW_INSECURE );
+        File dir = new File( root, "a" );
+        dir.mkdirs();
+        Files.touch( new File( dir, "b.lua" ) );
+
+        // Make the directory old enough that its listing is cached.
+        long old = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis( 1 );
+        assertTrue( dir.setLastModified( old ) );
+
+        // Two computers with the same ID get separate mounts for the same directory.
+        FileSystem first = new FileSystem( "hdd", new FileMount( root, CAPACITY ) );
+        FileSystem second = new FileSystem( "hdd", new FileMount( root, CAPACITY ) );
+        assertArrayEquals( new String[] { "a/b.lua" }, first.find( "a/*.lua" ) );
+        assertArrayEquals( new String[] { "a/b.lua" }, second.find( "a/*.lua" ) );
+
+        second.openForWrite( "a/c.lua", false, Function.identity() ).close();
+        assertArrayEquals( new String[] { "a/b.lua", "a/c.lua" }, first.find( "a/*.lua" ), "Sees other mounts' changes" );
+
+        assertTrue( dir.setLastModified( old ) );
+        assertArrayEquals( new String[] { "a/b.lua", "a/c.lua" }, first.find( "a/*.lua" ) );
+        assertTrue( new File( dir, "b.lua" ).delete() );
+        assertArrayEquals( new String[] { "a/c.lua" }, first.find( "a/*.lua" ), "Sees changes made outside the game" );
+    }
+
+    @Test
+    public void testCopyBetweenMounts() throws FileSystemException, IOException
+    {
+        File root = TestFiles.get( "filesystem-copy" ).toFile();
+        if( root.exists() ) MoreFiles.deleteRecursively( root.toPath(), RecursiveDeleteOption.ALLOW_INSECURE );
+
+        byte[] contents = new byte[10000];
+        new Random( 0 ).nextBytes( contents );
+        new File( root, "hdd/dir" ).mkdirs();
+        Files.write( contents, new File( root, "hdd/dir/file.bin" ) );
+
+        FileSystem fs = new FileSystem( "hdd", new FileMount( new File( root, "hdd" ), CAPACITY ) );
+        fs.mountWritable( "disk", "disk", new FileMount( new File( root, "disk" ), CAPACITY ) );
+        fs.mountWritable( "small", "small", new FileMount( new File( root, "small" ), 5000 ) );
+
+        fs.copy( "dir", "disk/dir" );
+        assertArrayEquals( contents, Files.toByteArray( new File( root, "disk/dir/file.bin" ) ) );
+        assertEquals( CAPACITY - 10000 - 500, fs.getFreeSpace( "disk" ) );
+
+        FileSystemException err = assertThrows( FileSystemException.class, () -> fs.copy( "dir/file.bin", "small/file.bin" ) );
+        assertEquals( "Out of space", err.getMessage() );
+    }
+
+    /**
+     * Run readers and writers on several threads at once, checking that readers always see a consistent file system,
+     * and that unmounting a disk always closes its files.
+     *
+     * @throws Exception If the file system could not be set up, or the threads were interrupted.
+     */
+    @Test
+    public void testConcurrentReadersAndWriters() throws Exception
+    {
+        File root = TestFiles.get( "filesystem-concurrent" ).toFile();
+        if( root.exists() ) MoreFiles.deleteRecursively( root.toPath(), RecursiveDeleteOption.ALLOW_INSECURE );
+        new File( root, "hdd/stable" ).mkdirs();
+        new File( root, "disk" ).mkdirs();
+        Files.write( new byte[10], new File( root, "disk/file.bin" ) );
+        for( int i = 0; i < 5; i++ ) Files.write( new byte[100 * i], new File( root, "hdd/stable/" + i + ".bin" ) );
+
+        FileSystem fs = new FileSystem( "hdd", new FileMount( new File( root, "hdd" ), CAPACITY ) );
+        IWritableMount disk = new FileMount( new File( root, "disk" ), CAPACITY );
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos( 1 );
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        Queue<FileSystemWrapper<?>> diskFiles = new ConcurrentLinkedQueue<>();
+        AtomicInteger diskOpened = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+
+        for( int i = 0; i < 4; i++ )
+        {
+            threads.add( worker( errors, () -> {
+                while( System.nanoTime() < deadline )
+                {
+                    for( int j = 0; j < 5; j++ )
+                    {
+                        String path = "stable/" + j + ".bin";
+                        assertTrue( fs.exists( path ) );
+                        assertEquals( 100 * j, fs.getSize( path ) );
+                        try( FileSystemWrapper<ReadableByteChannel> file = fs.openForRead( path, Function.identity() ) )
+                        {
+                            assertEquals( 100 * j, ByteStreams.exhaust( Channels.newInputStream( file.get() ) ) );
+                        }
+                    }
+
+                    assertArrayEquals( new String[] { "0.bin", "1.bin", "2.bin", "3.bin", "4.bin" }, fs.list( "stable" ) );
+                    assertEquals( 5, fs.find( "stable/*.bin" ).length );
+
+                    // The disk may be unmounted at any point, so just hold on to any files we manage to open. Files which
+                    // have been closed by an unmount can be forgotten about, so we stay under the open file limit.
+                    diskFiles.removeIf( x -> !x.isOpen() );
+                    if( diskFiles.size() >= 32 ) continue;
+                    try
+                    {
+                        diskFiles.add( fs.openForRead( "disk/file.bin", Function.identity() ) );
+                        diskOpened.incrementAndGet();
+                    }
+                    catch( FileSystemException ignored )
+                    {
+                    }
+                }
+                return null;
+            } ) );
+        }
+
+        for( int i = 0; i < 2; i++ )
+        {
+            String dir = "writer" + i;
+            threads.add( worker( errors, () -> {
+                byte[] contents = new byte[1000];
+                for( int j = 0; System.nanoTime() < deadline; j++ )
+                {
+                    String path = dir + "/" + j + ".bin", copy = dir + "/" + j + ".copy";
+                    try( FileSystemWrapper<WritableByteChannel> file = fs.openForWrite( path, false, Function.identity() ) )
+                    {
+                        file.get().write( ByteBuffer.wrap( contents ) );
+                    }
+
+                    fs.copy( path, copy );
+                    assertEquals( contents.length, fs.getSize( copy ) );
+                    fs.delete( path );
+                    fs.delete( copy );
+                }
+                return null;
+            } ) );
+        }
+
+        threads.add( worker( errors, () -> {
+            while( System.nanoTime() < deadline )
+            {
+                fs.mountWritable( "disk", "disk", disk );
+                Thread.yield();
+                fs.unmount( "disk" );
+            }
+            return null;
+        } ) );
+
+        for( Thread thread : threads ) thread.start();
+        for( Thread thread : threads ) thread.join();
+
+        for( Throwable error : errors ) throw new AssertionError( "Error in worker thread", error );
+
+        assertTrue( diskOpened.get() > 0, "Should have opened some files on the disk" );
+        for( FileSystemWrapper<?> file : diskFiles ) assertFalse( file.isOpen(), "Files on unmounted disk should be closed" );
+
+        assertArrayEquals( new String[0], fs.list( "writer0" ) );
+        assertArrayEquals( new String[0], fs.list( "writer1" ) );
+    }
+
+    private static Thread worker( Queue<Throwable> errors, Callable<?> task )
+    {
+        return new Thread( () -> {
+            try
+            {
+                task.call();
+            }
+            catch( Throwable e )
+            {
+                errors.add( e );
+            }
+        } );
+    }
+
+    /**
+     * Compare copying files through a buffer against {@link FileMount#transfer(ReadableByteChannel, WritableByteChannel)}.
+     */
+    @Test
+    @Disabled( "Benchmark, mostly for comparing copy strategies" )
+    public void benchmarkCopy() throws IOException
+    {
+        File root = TestFiles.get( "filesystem-copy-bench" ).toFile();
+        if( root.exists() ) MoreFiles.deleteRecursively( root.toPath(), RecursiveDeleteOption.ALLOW_INSECURE );
+        root.mkdirs();
+
+        byte[] contents = new byte[1 << 20];
+        new Random( 0 ).nextBytes( contents );
+        Files.write( contents, new File( root, "source.bin" ) );
+
+        FileMount source = new FileMount( root, Long.MAX_VALUE / 2 );
+        long copyTime = Long.MAX_VALUE, transferTime = Long.MAX_VALUE;
+        for( int run = 0; run < 20; run++ )
+        {
+            // Copy the file to 50 "floppies", much like deploying a program.
+            FileMount[] disks = new FileMount[50];
+            for( int i = 0; i < disks.length; i++ ) disks[i] = new FileMount( new File( root, "disk_" + run + "_" + i ), CAPACITY * 4 );
+
+            long start = System.nanoTime();
+            for( FileMount disk : disks )
+            {
+                try( ReadableByteChannel from = source.openForRead( "source.bin" ); WritableByteChannel to = disk.openForWrite( "copy.bin" ) )
+                {
+                    ByteStreams.copy( from, to );
+                }
+            }
+            copyTime = Math.min( copyTime, System.nanoTime() - start );
+
+            start = System.nanoTime();
+            for( FileMount disk : disks )
+            {
+                try( ReadableByteChannel from = source.openForRead( "source.bin" ); WritableByteChannel to = disk.openForWrite( "transfer.bin" ) )
+                {
+                    FileMount.transfer( from, to );
+                }
+            }
+            transferTime = Math.min( transferTime, System.nanoTime() - start );
+        }
+
+        System.out.printf( "Copying through a buffer took %.2fms, transferring took %.2fms%n", copyTime * 1e-6, transferTime * 1e-6 );
+    }
 }
@@ -0,0 +1,162 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.filesystem;
+
+import com.google.common.io.Files;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import dan200.computercraft.api.filesystem.IMount;
+import dan200.computercraft.support.TestFiles;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import static dan200.computercraft.core.filesystem.MappedFileChannel.REGION_SIZE;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedFileChannelTest
+{
+    private static final File ROOT = TestFiles.get( "filesystem-mapped" ).toFile();
+
+    private final byte[] contents = new byte[REGION_SIZE * 5 / 2];
+    private final File file = new File( ROOT, "file.bin" );
+
+    @BeforeEach
+    public void setup() throws IOException
+    {
+        // Don't delete the directory while a mount from a previous test is still measuring it.
+        FileMount.awaitMeasurements();
+        if( ROOT.exists() ) MoreFiles.deleteRecursively( ROOT.toPath(), RecursiveDeleteOption.ALLOW_INSECURE );
+        ROOT.mkdirs();
+
+        new Random( 0 ).nextBytes( contents );
+        Files.write( contents, file );
+    }
+
+    @Test
+    public void testReadAcrossRegions() throws IOException
+    {
+        MappedRegionCache cache = new MappedRegionCache( REGION_SIZE * 2 );
+        try( MappedFileChannel channel = new MappedFileChannel( FileChannel.open( file.toPath() ), cache ) )
+        {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ByteBuffer buffer;
+            while( (buffer = channel.read( 100_000 )) != null )
+            {
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get( bytes );
+                output.write( bytes );
+            }
+
+            assertArrayEquals( contents, output.toByteArray() );
+            assertTrue( cache.size() <= REGION_SIZE * 2, "Cache should be bounded" );
+        }
+
+        assertEquals( 0, cache.size() );
+    }
+
+    @Test
+    public void testSeekAndRead() throws IOException
+    {
+        try( MappedFileChannel channel = new MappedFileChannel( FileChannel.open( file.toPath() ), new MappedRegionCache( REGION_SIZE ) ) )
+        {
+            channel.position( REGION_SIZE - 2 );
+            ByteBuffer buffer = ByteBuffer.allocate( 4 );
+            assertEquals( 4, channel.read( buffer ) );
+            assertArrayEquals( Arrays.copyOfRange( contents, REGION_SIZE - 2, REGION_SIZE + 2 ), buffer.array() );
+
+            channel.position( contents.length - 1 );
+            buffer = channel.read( 10 );
+            assertNotNull( buffer );
+            assertEquals( 1, buffer.remaining() );
+            assertEquals( contents[contents.length - 1], buffer.get() );
+            assertNull( channel.read( 10 ) );
+        }
+    }
+
+    @Test
+    @DisabledOnOs( OS.WINDOWS ) // Windows does not allow truncating mapped files.
+    public void testTruncated() throws IOException
+    {
+        try( MappedFileChannel channel = new MappedFileChannel( FileChannel.open( file.toPath() ), new MappedRegionCache( REGION_SIZE * 4 ) ) )
+        {
+            channel.position( REGION_SIZE * 2 );
+            assertNotNull( channel.read( 10 ) );
+
+            try( FileChannel writer = FileChannel.open( file.toPath(), StandardOpenOption.WRITE ) )
+            {
+                writer.truncate( REGION_SIZE / 2 );
+            }
+
+            assertNull( channel.read( 10 ) );
+
+            channel.position( 0 );
+            ByteBuffer buffer = channel.read( REGION_SIZE );
+            assertNotNull( buffer );
+            assertEquals( REGION_SIZE / 2, buffer.remaining() );
+        }
+    }
+
+    @Test
+    public void testOnlyMapsLargeFiles() throws FileSystemException, IOException
+    {
+        Files.write( new byte[10], new File( ROOT, "small.bin" ) );
+        FileSystem fs = new FileSystem( "rom", (IMount) new FileMount( ROOT, 0 ) );
+
+        try( FileSystemWrapper<ReadableByteChannel> large = fs.openForBinaryRead( "file.bin" );
+             FileSystemWrapper<ReadableByteChannel> small = fs.openForBinaryRead( "small.bin" ) )
+        {
+            assertTrue( large.get() instanceof MappedFileChannel );
+            assertFalse( small.get() instanceof MappedFileChannel );
+        }
+
+        fs.close();
+    }
+
+    @Test
+    public void testOnlyMapsReadOnlyFiles() throws FileSystemException, IOException
+    {
+        FileSystem fs = new FileSystem( "hdd", new FileMount( ROOT, Long.MAX_VALUE / 2 ) );
+        try( FileSystemWrapper<ReadableByteChannel> large = fs.openForBinaryRead( "file.bin" ) )
+        {
+            assertFalse( large.get() instanceof MappedFileChannel, "Files on writable mounts may be truncated, so are never mapped" );
+        }
+
+        fs.close();
+    }
+
+    @Test
+    public void testSharedCache() throws FileSystemException, IOException
+    {
+        FileSystem first = new FileSystem( "rom", (IMount) new FileMount( ROOT, 0 ) );
+        FileSystem second = new FileSystem( "rom", (IMount) new FileMount( ROOT, 0 ) );
+
+        long size = MappedRegionCache.SHARED.size();
+        try( FileSystemWrapper<ReadableByteChannel> firstFile = first.openForBinaryRead( "file.bin" );
+             FileSystemWrapper<ReadableByteChannel> secondFile = second.openForBinaryRead( "file.bin" ) )
+        {
+            firstFile.get().read( ByteBuffer.allocate( 10 ) );
+            secondFile.get().read( ByteBuffer.allocate( 10 ) );
+            assertEquals( size + REGION_SIZE * 2, MappedRegionCache.SHARED.size(), "File systems share one cache" );
+        }
+
+        assertEquals( size, MappedRegionCache.SHARED.size(), "Regions are removed when files are closed" );
+
+        first.close();
+        second.close();
+    }
+}
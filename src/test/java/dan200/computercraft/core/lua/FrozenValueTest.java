@@ -0,0 +1,139 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.lua;
+
+import dan200.computercraft.api.lua.ILuaFunction;
+import dan200.computercraft.api.lua.MethodResult;
+import dan200.computercraft.core.computer.ComputerThread;
+import dan200.computercraft.core.computer.TimeoutState;
+import dan200.computercraft.core.metrics.MetricsObserver;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.squiddev.cobalt.LuaTable;
+import org.squiddev.cobalt.LuaValue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.squiddev.cobalt.ValueFactory.valueOf;
+
+public class FrozenValueTest
+{
+    @Test
+    public void testPrimitives()
+    {
+        assertEquals( "Hello", thaw( "Hello" ).toString() );
+        assertEquals( 2.5, thaw( 2.5 ).toDouble() );
+        assertTrue( thaw( true ).toBoolean() );
+        assertTrue( thaw( null ).isNil() );
+    }
+
+    @Test
+    public void testTablesAreCopied()
+    {
+        Map<Object, Object> inner = new HashMap<>();
+        inner.put( 1.0, "a" );
+        inner.put( 2.0, "b" );
+
+        Map<Object, Object> outer = new HashMap<>();
+        outer.put( "inner", inner );
+        outer.put( "x", 3.0 );
+
+        FrozenValue frozen = (FrozenValue) FrozenValue.of( outer );
+        LuaTable first = (LuaTable) frozen.toValue();
+        LuaTable second = (LuaTable) frozen.toValue();
+        assertNotSame( first, second );
+        assertNotSame( first.rawget( valueOf( "inner" ) ), second.rawget( valueOf( "inner" ) ) );
+
+        // Modifying our original value has no effect on the frozen copy.
+        inner.put( 3.0, "c" );
+
+        LuaTable innerTable = (LuaTable) first.rawget( valueOf( "inner" ) );
+        assertEquals( "a", innerTable.rawget( 1 ).toString() );
+        assertEquals( "b", innerTable.rawget( 2 ).toString() );
+        assertTrue( innerTable.rawget( 3 ).isNil() );
+        assertEquals( 3.0, first.rawget( valueOf( "x" ) ).toDouble() );
+    }
+
+    @Test
+    public void testRecursiveTables()
+    {
+        Map<Object, Object> table = new HashMap<>();
+        table.put( "self", table );
+
+        LuaTable value = (LuaTable) ((FrozenValue) FrozenValue.of( table )).toValue();
+        assertSame( value, value.rawget( valueOf( "self" ) ) );
+    }
+
+    @Test
+    public void testUnsupported()
+    {
+        ILuaFunction function = args -> MethodResult.of();
+        Map<Object, Object> table = new HashMap<>();
+        table.put( "f", function );
+
+        assertSame( function, FrozenValue.of( function ) );
+        assertSame( table, FrozenValue.of( table ) );
+    }
+
+    /**
+     * Compare the cost of converting a payload for every receiver (as {@link CobaltLuaMachine} does for normal events)
+     * against freezing it once and sharing it.
+     */
+    @Test
+    @Disabled( "Benchmark, mostly for comparing fan-out sizes" )
+    public void benchmarkFanOut()
+    {
+        Map<Object, Object> payload = new HashMap<>();
+        for( int i = 1; i <= 256; i++ )
+        {
+            Map<Object, Object> entry = new HashMap<>();
+            entry.put( "id", (double) i );
+            entry.put( "name", "entry number " + i );
+            entry.put( "enabled", i % 2 == 0 );
+            payload.put( (double) i, entry );
+        }
+
+        CobaltLuaMachine machine = new CobaltLuaMachine( new MachineEnvironment(
+            task -> {
+                throw new IllegalStateException( "Cannot run main thread tasks" );
+            },
+            MetricsObserver.NONE, new TimeoutState( new ComputerThread( 1 ) ), "test"
+        ) );
+        Object[] event = new Object[] { "modem_message", "top", 1.0, 1.0, payload, 10.0 };
+
+        for( int receivers : new int[] { 1, 10, 100, 1000 } )
+        {
+            // Warm up, then take the best of several runs.
+            long copyTime = Long.MAX_VALUE, frozenTime = Long.MAX_VALUE;
+            for( int run = 0; run < 20; run++ )
+            {
+                long start = System.nanoTime();
+                for( int i = 0; i < receivers; i++ ) machine.toValues( event );
+                copyTime = Math.min( copyTime, System.nanoTime() - start );
+
+                start = System.nanoTime();
+                Object[] frozenEvent = event.clone();
+                frozenEvent[4] = FrozenValue.of( payload );
+                for( int i = 0; i < receivers; i++ ) machine.toValues( frozenEvent );
+                frozenTime = Math.min( frozenTime, System.nanoTime() - start );
+            }
+
+            System.out.printf(
+                "%4d receivers: converting each time took %.2fms, freezing once took %.2fms%n",
+                receivers, copyTime * 1e-6, frozenTime * 1e-6
+            );
+        }
+
+        machine.close();
+    }
+
+    private static LuaValue thaw( Object value )
+    {
+        return ((FrozenValue) FrozenValue.of( value )).toValue();
+    }
+}
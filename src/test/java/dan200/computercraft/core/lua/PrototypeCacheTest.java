@@ -0,0 +1,95 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.lua;
+
+import dan200.computercraft.test.core.filesystem.MemoryMount;
+import org.junit.jupiter.api.Test;
+import org.squiddev.cobalt.LuaString;
+import org.squiddev.cobalt.LuaTable;
+import org.squiddev.cobalt.function.LuaClosure;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrototypeCacheTest
+{
+    private final PrototypeCache cache = new PrototypeCache();
+
+    @Test
+    public void testUntrustedNotShared() throws Exception
+    {
+        cache.trust( bytes( "return 1" ) );
+
+        // Picking the name of a ROM file is not enough to be cached.
+        LuaClosure first = load( "return 2", "@rom/x.lua", new LuaTable() );
+        LuaClosure second = load( "return 2", "@rom/x.lua", new LuaTable() );
+        assertNotSame( first.getPrototype(), second.getPrototype() );
+    }
+
+    @Test
+    public void testTrustedShared() throws Exception
+    {
+        cache.trust( bytes( "return 1" ) );
+
+        LuaTable firstEnv = new LuaTable(), secondEnv = new LuaTable();
+        LuaClosure first = load( "return 1", "@bios.lua", firstEnv );
+        LuaClosure second = load( "return 1", "@bios.lua", secondEnv );
+
+        assertSame( first.getPrototype(), second.getPrototype(), "Machines share a prototype" );
+        assertNotSame( first, second );
+        assertSame( firstEnv, first.getfenv(), "Each machine gets its own environment" );
+        assertSame( secondEnv, second.getfenv(), "Each machine gets its own environment" );
+
+        // The chunk name is still part of the key, so error messages are correct.
+        LuaClosure renamed = load( "return 1", "@other.lua", new LuaTable() );
+        assertNotSame( first.getPrototype(), renamed.getPrototype() );
+    }
+
+    @Test
+    public void testTrustMount() throws Exception
+    {
+        MemoryMount mount = new MemoryMount();
+        mount.makeDirectory( "apis" );
+        mount.addFile( "apis/windows.lua", "local x = 1\r\nreturn x\r\n" );
+        try( WritableByteChannel channel = mount.openForWrite( "apis/unicode.lua" ) )
+        {
+            channel.write( ByteBuffer.wrap( "return \"\u00e9\u2603\"\n".getBytes( StandardCharsets.UTF_8 ) ) );
+        }
+        mount.addFile( "notes.txt", "return 3" );
+        cache.trustMount( mount );
+
+        // Files are trusted as they are read by loadfile, with normalised line endings and no trailing newline.
+        assertShared( "local x = 1\nreturn x" );
+        assertShared( "local x = 1\r\nreturn x\r\n" );
+        assertShared( "return \"\u00e9?\"" );
+
+        // Only Lua files are trusted.
+        LuaClosure first = load( "return 3", "@notes.txt", new LuaTable() );
+        LuaClosure second = load( "return 3", "@notes.txt", new LuaTable() );
+        assertNotSame( first.getPrototype(), second.getPrototype() );
+    }
+
+    private void assertShared( String contents ) throws Exception
+    {
+        LuaClosure first = load( contents, "@file.lua", new LuaTable() );
+        LuaClosure second = load( contents, "@file.lua", new LuaTable() );
+        assertSame( first.getPrototype(), second.getPrototype(), () -> "Expected " + contents + " to be cached" );
+    }
+
+    private LuaClosure load( String contents, String name, LuaTable env ) throws Exception
+    {
+        return cache.load( new ByteArrayInputStream( bytes( contents ) ), LuaString.valueOf( name ), LuaString.valueOf( "bt" ), env );
+    }
+
+    private static byte[] bytes( String contents )
+    {
+        return contents.getBytes( StandardCharsets.ISO_8859_1 );
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HistogramTest
+{
+    @Test
+    public void testBucketsAreContiguous()
+    {
+        long lower = 0;
+        for( int bucket = 0; bucket < Histogram.bucket( Long.MAX_VALUE ); bucket++ )
+        {
+            long upper = Histogram.upperBound( bucket );
+            assertEquals( bucket, Histogram.bucket( lower ), "Lower bound of bucket " + bucket );
+            assertEquals( bucket, Histogram.bucket( upper ), "Upper bound of bucket " + bucket );
+            assertThat( "Bucket " + bucket + " is too wide", upper - lower, lessThanOrEqualTo( lower / Histogram.SUB_BUCKETS ) );
+            lower = upper + 1;
+        }
+    }
+
+    @Test
+    public void testOutOfRange()
+    {
+        assertEquals( 0, Histogram.bucket( -1 ) );
+        assertEquals( Histogram.bucket( 1L << Histogram.MAX_BITS ), Histogram.bucket( Long.MAX_VALUE ) );
+    }
+
+    @Test
+    public void testPercentiles()
+    {
+        Histogram histogram = new Histogram();
+        for( int i = 1; i <= 1000; i++ ) histogram.observe( i * 1000L );
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals( 1000, snapshot.count() );
+        assertThat( snapshot.percentile( 50 ), allOf( greaterThanOrEqualTo( 500_000L ), lessThanOrEqualTo( 500_000L * 9 / 8 ) ) );
+        assertThat( snapshot.percentile( 99 ), allOf( greaterThanOrEqualTo( 990_000L ), lessThanOrEqualTo( 990_000L * 9 / 8 ) ) );
+        assertThat( snapshot.percentile( 100 ), greaterThanOrEqualTo( 1_000_000L ) );
+    }
+
+    @Test
+    public void testCountBelow()
+    {
+        Histogram histogram = new Histogram();
+        for( long i = 0; i < 5000; i++ ) histogram.observe( i );
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        for( int bits = 0; bits < 13; bits++ ) assertEquals( 1L << bits, snapshot.countBelow( bits ), "Values below 2^" + bits );
+        assertEquals( 5000, snapshot.countBelow( 13 ) );
+        assertEquals( 5000, snapshot.countBelow( Histogram.MAX_BITS - 1 ) );
+        assertEquals( 4999L * 5000 / 2, snapshot.sum() );
+    }
+
+    @Test
+    public void testAdd()
+    {
+        Histogram first = new Histogram();
+        first.observe( 10 );
+        first.observe( 1000 );
+        Histogram second = new Histogram();
+        second.observe( 100_000 );
+
+        Histogram merged = new Histogram();
+        merged.add( first.snapshot() );
+        merged.add( second.snapshot() );
+
+        Histogram.Snapshot snapshot = merged.snapshot();
+        assertEquals( 3, snapshot.count() );
+        assertEquals( 101_010, snapshot.sum() );
+        assertEquals( 1, snapshot.countBelow( 4 ) );
+        assertEquals( 2, snapshot.countBelow( 10 ) );
+        assertEquals( 3, snapshot.countBelow( 20 ) );
+        assertEquals( snapshot.percentile( 100 ), second.snapshot().percentile( 100 ) );
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        assertEquals( 0, new Histogram().snapshot().percentile( 50 ) );
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.shared;
+
+import dan200.computercraft.api.lua.LuaFunction;
+import dan200.computercraft.api.peripheral.IPeripheral;
+import dan200.computercraft.core.asm.MethodWarmup;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that {@link MethodWarmup} knows about every class with {@link LuaFunction}s.
+ */
+public class WarmupClassesTest
+{
+    private static final byte[] ANNOTATION = ("L" + LuaFunction.class.getName().replace( '.', '/' ) + ";").getBytes( StandardCharsets.UTF_8 );
+
+    @BeforeAll
+    public static void before()
+    {
+        WarmupClasses.register();
+    }
+
+    @Test
+    public void testAllMethodsRegistered() throws IOException, URISyntaxException
+    {
+        Set<Class<?>> registered = new HashSet<>();
+        registered.addAll( MethodWarmup.getLuaClasses() );
+        registered.addAll( MethodWarmup.getPeripheralClasses() );
+
+        List<String> missing = new ArrayList<>();
+        for( Class<?> klass : findAnnotatedClasses() )
+        {
+            for( Method method : klass.getDeclaredMethods() )
+            {
+                // Static methods are only used by generic sources, which are always generated.
+                if( !method.isAnnotationPresent( LuaFunction.class ) || Modifier.isStatic( method.getModifiers() ) ) continue;
+
+                // Methods are cached by their declaring class, so registering any subclass is sufficient.
+                if( registered.stream().noneMatch( klass::isAssignableFrom ) )
+                {
+                    missing.add( klass.getName() + "." + method.getName() );
+                }
+            }
+        }
+
+        assertEquals( Collections.emptyList(), missing, "Classes should be registered in MethodWarmup or WarmupClasses" );
+    }
+
+    @Test
+    public void testPeripheralsSeparate()
+    {
+        for( Class<?> klass : MethodWarmup.getPeripheralClasses() )
+        {
+            assertTrue( IPeripheral.class.isAssignableFrom( klass ), () -> klass.getName() + " is a peripheral" );
+        }
+
+        for( Class<?> klass : MethodWarmup.getLuaClasses() )
+        {
+            assertFalse( IPeripheral.class.isAssignableFrom( klass ), () -> klass.getName() + " is not a peripheral" );
+        }
+    }
+
+    /**
+     * Find all of the mod's classes which may use {@link LuaFunction}. We look for the annotation in the class files
+     * before loading them, to avoid loading every class in the mod.
+     *
+     * @return All classes which mention {@link LuaFunction}.
+     * @throws IOException        If the class files could not be read.
+     * @throws URISyntaxException If the class file directory could not be found.
+     */
+    private static List<Class<?>> findAnnotatedClasses() throws IOException, URISyntaxException
+    {
+        Path root = Paths.get( MethodWarmup.class.getProtectionDomain().getCodeSource().getLocation().toURI() );
+        assertTrue( Files.isDirectory( root ), "Expected classes in a directory, got " + root );
+
+        List<Path> files;
+        try( Stream<Path> walk = Files.walk( root ) )
+        {
+            files = walk.filter( x -> x.toString().endsWith( ".class" ) ).collect( Collectors.toList() );
+        }
+
+        List<Class<?>> classes = new ArrayList<>();
+        for( Path file : files )
+        {
+            if( !contains( Files.readAllBytes( file ), ANNOTATION ) ) continue;
+
+            String name = root.relativize( file ).toString().replace( file.getFileSystem().getSeparator(), "." );
+            try
+            {
+                classes.add( Class.forName( name.substring( 0, name.length() - ".class".length() ), false, WarmupClassesTest.class.getClassLoader() ) );
+            }
+            catch( ClassNotFoundException e )
+            {
+                fail( "Cannot load " + name, e );
+            }
+        }
+
+        assertFalse( classes.isEmpty(), "Found no classes with @LuaFunction" );
+        return classes;
+    }
+
+    private static boolean contains( byte[] haystack, byte[] needle )
+    {
+        outer:
+        for( int i = 0; i <= haystack.length - needle.length; i++ )
+        {
+            for( int j = 0; j < needle.length; j++ )
+            {
+                if( haystack[i + j] != needle[j] ) continue outer;
+            }
+            return true;
+        }
+        return false;
+    }
+}
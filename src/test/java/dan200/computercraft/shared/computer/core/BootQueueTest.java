@@ -0,0 +1,234 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.shared.computer.core;
+
+import dan200.computercraft.ComputerCraft;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BootQueueTest
+{
+    private final List<FakeComputer> started = new ArrayList<>();
+    private final BootQueue<FakeComputer> queue = new BootQueue<>( new BootQueue.Computers<FakeComputer>()
+    {
+        @Override
+        public boolean isOn( FakeComputer computer )
+        {
+            return computer.on;
+        }
+
+        @Override
+        public double distanceToPlayer( FakeComputer computer )
+        {
+            return computer.distance;
+        }
+
+        @Override
+        public void turnOn( FakeComputer computer, long waited )
+        {
+            assertTrue( waited >= 0, "Wait time is positive" );
+            started.add( computer );
+        }
+    } );
+
+    private int maxConcurrentBoots;
+
+    @BeforeEach
+    public void before()
+    {
+        maxConcurrentBoots = ComputerCraft.maxConcurrentBoots;
+        ComputerCraft.maxConcurrentBoots = 2;
+    }
+
+    @AfterEach
+    public void after()
+    {
+        ComputerCraft.maxConcurrentBoots = maxConcurrentBoots;
+    }
+
+    @Test
+    public void testAdmissionLimit()
+    {
+        FakeComputer[] computers = new FakeComputer[5];
+        for( int i = 0; i < computers.length; i++ ) queue.add( computers[i] = new FakeComputer( 0 ) );
+        assertEquals( 5, queue.size() );
+
+        queue.update();
+        assertEquals( Arrays.asList( computers[0], computers[1] ), started, "Only starts up to the limit" );
+        assertEquals( 3, queue.size() );
+        assertEquals( 2, queue.booting() );
+
+        queue.update();
+        assertEquals( 2, started.size(), "Waits for computers to finish booting" );
+
+        computers[0].on = true;
+        queue.update();
+        assertEquals( Arrays.asList( computers[0], computers[1], computers[2] ), started, "Starts another once one has booted" );
+        assertEquals( 2, queue.size() );
+    }
+
+    @Test
+    public void testUnlimited()
+    {
+        ComputerCraft.maxConcurrentBoots = 0;
+        for( int i = 0; i < 5; i++ ) queue.add( new FakeComputer( 0 ) );
+
+        queue.update();
+        assertEquals( 5, started.size() );
+        assertEquals( 0, queue.size() );
+    }
+
+    @Test
+    public void testNearestFirst()
+    {
+        ComputerCraft.maxConcurrentBoots = 1;
+        FakeComputer far = new FakeComputer( 30 );
+        FakeComputer noPlayers = new FakeComputer( Double.POSITIVE_INFINITY );
+        FakeComputer near = new FakeComputer( 10 );
+        FakeComputer middle = new FakeComputer( 20 );
+        FakeComputer alsoMiddle = new FakeComputer( 20 );
+        for( FakeComputer computer : Arrays.asList( far, noPlayers, middle, near, alsoMiddle ) ) queue.add( computer );
+
+        for( int i = 0; i < 5; i++ )
+        {
+            queue.update();
+            started.get( started.size() - 1 ).on = true;
+        }
+
+        assertEquals( Arrays.asList( near, middle, alsoMiddle, far, noPlayers ), started, "Nearest first, then in queue order" );
+    }
+
+    @Test
+    public void testCancel()
+    {
+        FakeComputer cancelled = new FakeComputer( 0 );
+        FakeComputer other = new FakeComputer( 0 );
+        queue.add( cancelled );
+        queue.add( other );
+        assertTrue( queue.contains( cancelled ) );
+
+        queue.cancel( cancelled );
+        assertFalse( queue.contains( cancelled ) );
+        assertEquals( 1, queue.size() );
+
+        queue.update();
+        assertEquals( Arrays.asList( other ), started );
+    }
+
+    @Test
+    public void testAlreadyOn()
+    {
+        ComputerCraft.maxConcurrentBoots = 1;
+        FakeComputer on = new FakeComputer( 0 );
+        on.on = true;
+        FakeComputer off = new FakeComputer( 10 );
+        queue.add( on );
+        queue.add( off );
+
+        queue.update();
+        queue.update();
+        assertEquals( Arrays.asList( on, off ), started, "Computers which are already on do not use a slot" );
+    }
+
+    @Test
+    public void testRemoveFreesSlot()
+    {
+        ComputerCraft.maxConcurrentBoots = 1;
+        FakeComputer first = new FakeComputer( 0 );
+        FakeComputer second = new FakeComputer( 0 );
+        queue.add( first );
+        queue.add( second );
+
+        queue.update();
+        queue.remove( first );
+        queue.update();
+        assertEquals( Arrays.asList( first, second ), started );
+        assertFalse( queue.isIdle() );
+
+        queue.remove( second );
+        assertTrue( queue.isIdle() );
+    }
+
+    @Test
+    public void testTimeout()
+    {
+        ComputerCraft.maxConcurrentBoots = 1;
+        FakeComputer stuck = new FakeComputer( 0 );
+        FakeComputer next = new FakeComputer( 0 );
+        queue.add( stuck );
+        queue.add( next );
+
+        queue.update();
+        for( int i = 0; i < BootQueue.BOOT_TIMEOUT; i++ ) queue.update();
+        assertEquals( Arrays.asList( stuck ), started, "Waits while the computer may still be booting" );
+
+        queue.update();
+        assertEquals( Arrays.asList( stuck, next ), started, "Gives up once the computer has timed out" );
+        assertEquals( 1, queue.booting() );
+    }
+
+    @Test
+    public void testConcurrentCancel() throws InterruptedException
+    {
+        // Computers may be turned on or off (and so cancelled) from the computer thread while the server is ticking.
+        ComputerCraft.maxConcurrentBoots = 1;
+        AtomicBoolean done = new AtomicBoolean();
+        List<Throwable> errors = new ArrayList<>();
+        Thread thread = new Thread( () -> {
+            try
+            {
+                while( !done.get() )
+                {
+                    FakeComputer computer = new FakeComputer( Double.POSITIVE_INFINITY );
+                    queue.add( computer );
+                    queue.cancel( computer );
+                }
+            }
+            catch( Throwable e )
+            {
+                errors.add( e );
+            }
+        } );
+        thread.start();
+
+        try
+        {
+            for( int i = 0; i < 10000; i++ )
+            {
+                queue.add( new FakeComputer( i ) );
+                queue.update();
+                started.get( started.size() - 1 ).on = true;
+            }
+        }
+        finally
+        {
+            done.set( true );
+            thread.join();
+        }
+
+        assertEquals( Arrays.asList(), errors );
+        assertEquals( 0, queue.size() );
+    }
+
+    private static final class FakeComputer
+    {
+        final double distance;
+        volatile boolean on;
+
+        FakeComputer( double distance )
+        {
+            this.distance = distance;
+        }
+    }
+}
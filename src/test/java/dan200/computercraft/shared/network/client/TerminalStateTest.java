@@ -10,6 +10,7 @@
 import io.netty.buffer.Unpooled;
 import net.minecraft.network.PacketBuffer;
 import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
 
 import java.util.Random;
 
@@ -44,6 +45,68 @@ public void testUncompressed()
         assertEquals( 0, buffer.readableBytes() );
     }
 
+    @Test
+    public void testDelta()
+    {
+        Terminal terminal = randomTerminal();
+        Terminal copy = read( write( new TerminalState( terminal, false ) ) );
+        TerminalState.ofChanges( terminal );
+
+        terminal.setCursorPos( 3, 2 );
+        terminal.write( "Hello" );
+        terminal.getPalette().setColour( 0, 0.5, 0.5, 0.5 );
+        terminal.setPaletteChanged();
+
+        TerminalState delta = TerminalState.ofChanges( terminal );
+        assertTrue( delta.isDelta() );
+
+        TerminalState state = new TerminalState( write( delta ) );
+        assertTrue( state.isDelta() );
+        state.apply( copy );
+
+        checkEqual( terminal, copy );
+        assertEquals( 3, copy.getCursorX() );
+        assertEquals( 2, copy.getCursorY() );
+        assertArrayEquals( terminal.getPalette().getColour( 0 ), copy.getPalette().getColour( 0 ), 1 / 255.0 );
+    }
+
+    @Test
+    public void testDeltaOnlyContainsChanges()
+    {
+        Terminal terminal = randomTerminal();
+        TerminalState.ofChanges( terminal );
+
+        TerminalState unchanged = TerminalState.ofChanges( terminal );
+        assertTrue( unchanged.isDelta() );
+
+        terminal.setCursorPos( 0, 1 );
+        terminal.write( "A" );
+        TerminalState changed = TerminalState.ofChanges( terminal );
+        assertTrue( changed.isDelta() );
+        assertTrue( changed.size() < new TerminalState( terminal ).size(), "Delta should be smaller than a snapshot" );
+    }
+
+    @Test
+    public void testDeltaAfterResize()
+    {
+        Terminal terminal = randomTerminal();
+        TerminalState.ofChanges( terminal );
+
+        terminal.resize( 12, 6 );
+        TerminalState state = TerminalState.ofChanges( terminal );
+        assertFalse( state.isDelta(), "Resizing should send a full snapshot" );
+
+        checkEqual( terminal, read( write( state ) ) );
+        assertTrue( TerminalState.ofChanges( terminal ).isDelta() );
+    }
+
+    private static PacketBuffer write( TerminalState state )
+    {
+        PacketBuffer buffer = new PacketBuffer( Unpooled.directBuffer() );
+        state.write( buffer );
+        return buffer;
+    }
+
     private static Terminal randomTerminal()
     {
         Random random = new Random();
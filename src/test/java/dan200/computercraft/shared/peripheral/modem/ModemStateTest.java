@@ -0,0 +1,71 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.shared.peripheral.modem;
+
+import dan200.computercraft.api.lua.LuaException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModemStateTest
+{
+    private final ModemState state = new ModemState();
+    private final List<String> changes = new ArrayList<>();
+    private final ModemState.Listener listener = new ModemState.Listener()
+    {
+        @Override
+        public void onChannelChanged( int channel )
+        {
+            changes.add( (state.isOpen( channel ) ? "open " : "close ") + channel );
+        }
+
+        @Override
+        public void onChannelsCleared()
+        {
+            assertEquals( 0, state.getChannels().length, "Channels are closed before listeners are called" );
+            changes.add( "clear" );
+        }
+    };
+
+    @Test
+    public void testListeners() throws LuaException
+    {
+        state.addListener( listener );
+
+        state.open( 1 );
+        state.open( 1 );
+        state.open( 2 );
+        state.close( 1 );
+        state.close( 1 );
+        state.close( 3 );
+        assertEquals( Arrays.asList( "open 1", "open 2", "close 1" ), changes, "Only notified when channels change" );
+        assertArrayEquals( new int[] { 2 }, state.getChannels() );
+        assertTrue( state.isOpen() );
+
+        state.closeAll();
+        assertEquals( Arrays.asList( "open 1", "open 2", "close 1", "clear" ), changes );
+        assertFalse( state.isOpen() );
+
+        state.removeListener( listener );
+        state.open( 4 );
+        assertEquals( 4, changes.size(), "Removed listeners are not notified" );
+    }
+
+    @Test
+    public void testTooManyChannels() throws LuaException
+    {
+        for( int i = 0; i < 128; i++ ) state.open( i );
+
+        state.addListener( listener );
+        assertThrows( LuaException.class, () -> state.open( 128 ) );
+        assertFalse( state.isOpen( 128 ) );
+        assertEquals( Arrays.asList(), changes, "Not notified when a channel could not be opened" );
+    }
+}
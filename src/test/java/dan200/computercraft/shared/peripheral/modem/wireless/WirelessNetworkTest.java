@@ -0,0 +1,330 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2022. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.shared.peripheral.modem.wireless;
+
+import dan200.computercraft.api.lua.LuaException;
+import dan200.computercraft.api.network.Packet;
+import dan200.computercraft.api.peripheral.IPeripheral;
+import dan200.computercraft.shared.peripheral.modem.ModemState;
+import net.minecraft.util.math.vector.Vector3d;
+import net.minecraft.world.World;
+import net.minecraft.world.server.ServerWorld;
+import org.junit.jupiter.api.Test;
+import sun.misc.Unsafe;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WirelessNetworkTest
+{
+    private static final int CHANNEL = 1;
+
+    private final WirelessNetwork network = new WirelessNetwork();
+    private final World world = createWorld();
+    private final World otherWorld = createWorld();
+
+    @Test
+    public void testRangeAcrossCells() throws LuaException
+    {
+        TestModem sender = modem( world, 0, 0, 64 );
+        TestModem nearOtherCell = listen( modem( world, -50, 0, 64 ) );
+        TestModem nearSameCell = listen( modem( world, 40, 40, 64 ) );
+        TestModem farSameCell = listen( modem( world, 60, 30, 64 ) );
+        TestModem farOtherCell = listen( modem( world, 100, 0, 64 ) );
+        TestModem farAway = listen( modem( world, 10000, -10000, 64 ) );
+        List<TestModem> crowd = crowd( 64 );
+
+        transmit( sender, CHANNEL );
+
+        assertEquals( 1, nearOtherCell.received.size(), "Modem in a neighbouring cell receives the packet" );
+        assertEquals( 1, nearSameCell.received.size(), "Modem in the same cell receives the packet" );
+        assertEquals( 0, farSameCell.received.size(), "Modem in the same cell but out of range does not receive the packet" );
+        assertEquals( 0, farOtherCell.received.size(), "Modem out of range does not receive the packet" );
+        assertEquals( 0, farAway.received.size(), "Modem out of range does not receive the packet" );
+        for( TestModem modem : crowd ) assertEquals( 0, modem.received.size(), "Modem out of range does not receive the packet" );
+    }
+
+    @Test
+    public void testRangePerTier() throws LuaException
+    {
+        // Range is symmetrical: a packet is received if it is in range of the sender or the receiver.
+        TestModem lowSender = modem( world, 0, 0, 64 );
+        TestModem highReceiver = listen( modem( world, 200, 0, 300 ) );
+        TestModem lowReceiver = listen( modem( world, 0, 200, 64 ) );
+        TestModem veryHighReceiver = listen( modem( world, -5000, 0, 6000 ) );
+        crowd( 64 );
+        crowd( 300 );
+
+        transmit( lowSender, CHANNEL );
+        assertEquals( 1, highReceiver.received.size(), "Long-range modem receives packet from short-range modem" );
+        assertEquals( 0, lowReceiver.received.size(), "Short-range modem is out of range of short-range modem" );
+        assertEquals( 1, veryHighReceiver.received.size(), "Long-range modem receives packet from short-range modem" );
+
+        TestModem highSender = modem( world, 0, 0, 300 );
+        transmit( highSender, CHANNEL );
+        assertEquals( 1, lowReceiver.received.size(), "Short-range modem receives packet from long-range modem" );
+        assertEquals( 2, highReceiver.received.size(), "Long-range modem receives packet from long-range modem" );
+    }
+
+    @Test
+    public void testMovingModem() throws LuaException
+    {
+        TestModem sender = modem( world, 0, 0, 64 );
+        TestModem moving = listen( modem( world, 1000, 0, 64 ) );
+
+        transmit( sender, CHANNEL );
+        assertEquals( 0, moving.received.size(), "Modem is out of range" );
+
+        // Move within range, across several cells.
+        moving.position = new Vector3d( 10, 64, 10 );
+        network.updateReceiver( moving );
+        transmit( sender, CHANNEL );
+        assertEquals( 1, moving.received.size(), "Modem has moved into range" );
+
+        // And move into another world.
+        moving.world = otherWorld;
+        network.updateReceiver( moving );
+        transmit( sender, CHANNEL );
+        assertEquals( 1, moving.received.size(), "Modem has moved into another world" );
+        assertFalse( network.isIndexed( world ), "Old world is no longer indexed" );
+
+        // Growing the modem's range also moves it into a new tier.
+        moving.world = world;
+        moving.position = new Vector3d( 200, 64, 0 );
+        network.updateReceiver( moving );
+        transmit( sender, CHANNEL );
+        assertEquals( 1, moving.received.size(), "Modem is out of range" );
+
+        moving.range = 300;
+        network.updateReceiver( moving );
+        transmit( sender, CHANNEL );
+        assertEquals( 2, moving.received.size(), "Modem's range has grown" );
+    }
+
+    @Test
+    public void testEnderModems() throws LuaException
+    {
+        TestModem sender = modem( world, 0, 0, 64 );
+        TestModem ender = listen( ender( otherWorld ) );
+        TestModem otherDimension = listen( modem( otherWorld, 0, 0, 64 ) );
+        TestModem farAway = listen( modem( world, 10000, 0, 64 ) );
+
+        transmit( sender, CHANNEL );
+        assertEquals( 1, ender.received.size(), "Ender modem in another world receives the packet" );
+        assertEquals( 0, otherDimension.received.size(), "Wireless modem in another world does not receive the packet" );
+
+        TestModem enderSender = ender( world );
+        transmit( enderSender, CHANNEL );
+        assertEquals( 2, ender.received.size(), "Ender modem receives packet from ender modem" );
+        assertEquals( 1, otherDimension.received.size(), "Wireless modem in another world receives packet from ender modem" );
+        assertEquals( 1, farAway.received.size(), "Wireless modem out of range receives packet from ender modem" );
+    }
+
+    @Test
+    public void testOnlyOpenChannelsReceive() throws LuaException
+    {
+        TestModem sender = modem( world, 0, 0, 64 );
+        TestModem receiver = modem( world, 10, 10, 64 );
+        TestModem ender = ender( otherWorld );
+        network.addReceiver( receiver );
+        network.addReceiver( ender );
+
+        transmit( sender, 1 );
+        assertEquals( 0, receiver.received.size(), "No channels are open" );
+        assertEquals( 0, ender.received.size(), "No channels are open" );
+
+        receiver.getModemState().open( 1 );
+        receiver.getModemState().open( 2 );
+        ender.getModemState().open( 2 );
+        transmit( sender, 1 );
+        transmit( sender, 3 );
+        assertEquals( 1, receiver.received.size(), "Only receives packets on channel 1" );
+        assertEquals( 0, ender.received.size(), "Ender modem only has channel 2 open" );
+
+        receiver.getModemState().close( 1 );
+        transmit( sender, 1 );
+        transmit( sender, 2 );
+        assertEquals( 2, receiver.received.size(), "Only receives packets on channel 2" );
+        assertEquals( 1, ender.received.size(), "Ender modem receives packets on channel 2" );
+
+        receiver.getModemState().closeAll();
+        ender.getModemState().closeAll();
+        transmit( sender, 2 );
+        assertEquals( 2, receiver.received.size(), "All channels are closed" );
+        assertEquals( 1, ender.received.size(), "All channels are closed" );
+        assertFalse( network.isIndexed( world ), "World is empty once all channels are closed" );
+
+        receiver.getModemState().open( 2 );
+        transmit( sender, 2 );
+        assertEquals( 3, receiver.received.size(), "Channel has been reopened" );
+    }
+
+    @Test
+    public void testChannelsAfterRemoval() throws LuaException
+    {
+        TestModem sender = modem( world, 0, 0, 64 );
+        TestModem receiver = listen( modem( world, 10, 10, 64 ) );
+
+        network.removeReceiver( receiver );
+        assertFalse( network.isIndexed( world ), "Removing the last modem removes the world" );
+
+        // Opening channels once removed should not add the modem back to the index.
+        receiver.getModemState().open( 2 );
+        transmit( sender, CHANNEL );
+        transmit( sender, 2 );
+        assertEquals( 0, receiver.received.size(), "Modem has been removed" );
+        assertFalse( network.isIndexed( world ), "Modem has been removed" );
+
+        // But the modem's current channels are picked up when it is added again.
+        network.addReceiver( receiver );
+        transmit( sender, CHANNEL );
+        transmit( sender, 2 );
+        assertEquals( 2, receiver.received.size(), "Modem has been added again" );
+    }
+
+    @Test
+    public void testWorldUnload() throws LuaException
+    {
+        TestModem sender = modem( world, 0, 0, 64 );
+        listen( modem( world, 10, 10, 64 ) );
+        assertTrue( network.isIndexed( world ) );
+
+        network.removeWorld( world );
+        assertFalse( network.isIndexed( world ) );
+        transmit( sender, CHANNEL );
+    }
+
+    private TestModem listen( TestModem modem ) throws LuaException
+    {
+        modem.getModemState().open( CHANNEL );
+        network.addReceiver( modem );
+        return modem;
+    }
+
+    /**
+     * Add many modems far away from the origin. This ensures a tier has more occupied cells than are within range of
+     * the sender, and so we only visit the cells within range (rather than every occupied one).
+     *
+     * @param range The range of each modem.
+     * @return The added modems.
+     * @throws LuaException If the modem's channel could not be opened.
+     */
+    private List<TestModem> crowd( double range ) throws LuaException
+    {
+        List<TestModem> modems = new ArrayList<>();
+        for( int i = 0; i < 400; i++ ) modems.add( listen( modem( world, 100_000 + i * 64, 100_000, range ) ) );
+        return modems;
+    }
+
+    private void transmit( TestModem sender, int channel )
+    {
+        Packet packet = new Packet( channel, channel, null, sender );
+        if( sender.isInterdimensional() )
+        {
+            network.transmitInterdimensional( packet );
+        }
+        else
+        {
+            network.transmitSameDimension( packet, sender.getRange() );
+        }
+    }
+
+    private static TestModem modem( World world, double x, double z, double range )
+    {
+        return new TestModem( world, new Vector3d( x, 64, z ), range, false );
+    }
+
+    private static TestModem ender( World world )
+    {
+        return new TestModem( world, new Vector3d( 0, 64, 0 ), 0, true );
+    }
+
+    /**
+     * Create a world to use in tests. Worlds need a running server to construct, and we only use them as keys, so
+     * allocate one without running its constructor.
+     *
+     * @return The new world.
+     */
+    private static World createWorld()
+    {
+        try
+        {
+            Field field = Unsafe.class.getDeclaredField( "theUnsafe" );
+            field.setAccessible( true );
+            return (World) ((Unsafe) field.get( null )).allocateInstance( ServerWorld.class );
+        }
+        catch( ReflectiveOperationException e )
+        {
+            throw new IllegalStateException( "Cannot create world", e );
+        }
+    }
+
+    private static final class TestModem extends WirelessModemPeripheral
+    {
+        World world;
+        Vector3d position;
+        double range;
+        final List<Packet> received = new ArrayList<>();
+
+        TestModem( World world, Vector3d position, double range, boolean advanced )
+        {
+            super( new ModemState(), advanced );
+            this.world = world;
+            this.position = position;
+            this.range = range;
+        }
+
+        @Nonnull
+        @Override
+        public World getWorld()
+        {
+            return world;
+        }
+
+        @Nonnull
+        @Override
+        public Vector3d getPosition()
+        {
+            return position;
+        }
+
+        @Override
+        public double getRange()
+        {
+            return isInterdimensional() ? Integer.MAX_VALUE : range;
+        }
+
+        @Override
+        double getMaxRange()
+        {
+            return range;
+        }
+
+        @Override
+        public void receiveSameDimension( @Nonnull Packet packet, double distance )
+        {
+            // Record every packet, rather than filtering by channel, so we check which packets the network delivers.
+            received.add( packet );
+        }
+
+        @Override
+        public void receiveDifferentDimension( @Nonnull Packet packet )
+        {
+            received.add( packet );
+        }
+
+        @Override
+        public boolean equals( @Nullable IPeripheral other )
+        {
+            return this == other;
+        }
+    }
+}
@@ -8,11 +8,18 @@
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import dan200.computercraft.api.ComputerCraftAPI;
+import dan200.computercraft.api.lua.LuaException;
+import dan200.computercraft.api.network.IPacketNetwork;
+import dan200.computercraft.api.network.IPacketReceiver;
+import dan200.computercraft.api.network.Packet;
 import dan200.computercraft.api.network.wired.IWiredElement;
 import dan200.computercraft.api.network.wired.IWiredNetwork;
 import dan200.computercraft.api.network.wired.IWiredNetworkChange;
 import dan200.computercraft.api.network.wired.IWiredNode;
+import dan200.computercraft.api.network.wired.IWiredSender;
 import dan200.computercraft.api.peripheral.IPeripheral;
+import dan200.computercraft.shared.peripheral.modem.ModemPeripheral;
+import dan200.computercraft.shared.peripheral.modem.ModemState;
 import dan200.computercraft.shared.util.DirectionUtil;
 import net.minecraft.util.Direction;
 import net.minecraft.util.math.BlockPos;
@@ -241,6 +248,134 @@ public void testRemoveSplit()
         assertEquals( Sets.newHashSet(), cE.allPeripherals().keySet(), "C's peripheral set should be empty" );
     }
 
+    @Test
+    public void testTransmitUsesShortestPath()
+    {
+        NetworkElement
+            aE = new NetworkElement( null, new Vector3d( 0, 0, 0 ), "a" ),
+            bE = new NetworkElement( null, new Vector3d( 10, 0, 0 ), "b" ),
+            cE = new NetworkElement( null, new Vector3d( 10, 10, 0 ), "c" );
+
+        IWiredNode
+            aN = aE.getNode(),
+            bN = bE.getNode(),
+            cN = cE.getNode();
+
+        aN.getNetwork().connect( aN, bN );
+        aN.getNetwork().connect( bN, cN );
+
+        NetworkReceiver receiver = new NetworkReceiver( cE );
+        cN.addReceiver( receiver );
+
+        Packet packet = new Packet( 1, 1, null, new NetworkSender( aE ) );
+        aN.transmitSameDimension( packet, 100 );
+        assertEquals( 20, receiver.distance, 1e-6, "Packet should travel through B" );
+
+        // Sending again should use the cached route.
+        aN.transmitSameDimension( packet, 100 );
+        assertEquals( 20, receiver.distance, 1e-6, "Packet should travel through B" );
+
+        // Adding a shorter connection should invalidate the cached route.
+        aN.getNetwork().connect( aN, cN );
+        aN.transmitSameDimension( packet, 100 );
+        assertEquals( Math.sqrt( 200 ), receiver.distance, 1e-6, "Packet should travel directly to C" );
+
+        aN.getNetwork().disconnect( aN, cN );
+        aN.transmitSameDimension( packet, 100 );
+        assertEquals( 20, receiver.distance, 1e-6, "Packet should travel through B" );
+    }
+
+    @Test
+    public void testTransmitToOpenChannels() throws LuaException
+    {
+        NetworkElement
+            aE = new NetworkElement( null, new Vector3d( 0, 0, 0 ), "a" ),
+            bE = new NetworkElement( null, new Vector3d( 10, 0, 0 ), "b" );
+
+        IWiredNode
+            aN = aE.getNode(),
+            bN = bE.getNode();
+
+        aN.getNetwork().connect( aN, bN );
+
+        ChannelModem first = new ChannelModem( bE ), second = new ChannelModem( bE );
+        first.getModemState().open( 1 );
+        bN.addReceiver( first );
+        bN.addReceiver( second );
+
+        // Receivers from other mods should receive every packet.
+        NetworkReceiver other = new NetworkReceiver( bE );
+        bN.addReceiver( other );
+
+        transmit( aE, 1 );
+        assertEquals( 1, first.received, "Modem with channel open before it was added receives the packet" );
+        assertEquals( 0, second.received, "Modem without channel open does not receive the packet" );
+        assertEquals( 10, other.distance, 1e-6, "Other receivers receive the packet" );
+
+        second.getModemState().open( 1 );
+        transmit( aE, 1 );
+        assertEquals( 2, first.received );
+        assertEquals( 1, second.received, "Modem receives the packet once the channel is open" );
+
+        first.getModemState().close( 1 );
+        transmit( aE, 1 );
+        assertEquals( 2, first.received, "Modem does not receive the packet once the channel is closed" );
+        assertEquals( 2, second.received );
+
+        second.getModemState().open( 2 );
+        second.getModemState().closeAll();
+        transmit( aE, 1 );
+        transmit( aE, 2 );
+        assertEquals( 2, second.received, "Modem does not receive packets once all channels are closed" );
+
+        other.distance = -1;
+        transmit( aE, 3 );
+        assertEquals( 10, other.distance, 1e-6, "Other receivers receive packets on any channel" );
+    }
+
+    @Test
+    public void testChannelsAfterRemoval() throws LuaException
+    {
+        NetworkElement
+            aE = new NetworkElement( null, new Vector3d( 0, 0, 0 ), "a" ),
+            bE = new NetworkElement( null, new Vector3d( 10, 0, 0 ), "b" );
+
+        IWiredNode
+            aN = aE.getNode(),
+            bN = bE.getNode();
+
+        aN.getNetwork().connect( aN, bN );
+
+        ChannelModem modem = new ChannelModem( bE );
+        bN.addReceiver( modem );
+        modem.getModemState().open( 1 );
+        bN.removeReceiver( modem );
+
+        // Opening channels once removed should not add the modem back to the index.
+        modem.getModemState().open( 2 );
+        transmit( aE, 1 );
+        transmit( aE, 2 );
+        assertEquals( 0, modem.received, "Modem has been removed" );
+
+        // But the modem's current channels are picked up when it is added again.
+        bN.addReceiver( modem );
+        bN.addReceiver( modem );
+        transmit( aE, 1 );
+        transmit( aE, 2 );
+        assertEquals( 2, modem.received, "Modem is added again, and only receives each packet once" );
+
+        // And moving the modem to another node removes it from the old one.
+        bN.removeReceiver( modem );
+        aN.addReceiver( modem );
+        transmit( aE, 1 );
+        assertEquals( 3, modem.received, "Modem receives the packet on its new node" );
+    }
+
+    private static void transmit( NetworkElement sender, int channel )
+    {
+        sender.getNode().transmitSameDimension( new Packet( channel, channel, null, new NetworkSender( sender ) ), 100 );
+    }
+
     private static final int BRUTE_SIZE = 16;
     private static final int TOGGLE_CONNECTION_TIMES = 5;
     private static final int TOGGLE_NODE_TIMES = 5;
@@ -385,6 +520,149 @@ public Map<String, IPeripheral> allPeripherals()
         }
     }
 
+    private static final class NetworkSender implements IWiredSender
+    {
+        private final NetworkElement element;
+
+        private NetworkSender( NetworkElement element )
+        {
+            this.element = element;
+        }
+
+        @Nonnull
+        @Override
+        public IWiredNode getNode()
+        {
+            return element.getNode();
+        }
+
+        @Nonnull
+        @Override
+        public World getWorld()
+        {
+            return element.getWorld();
+        }
+
+        @Nonnull
+        @Override
+        public Vector3d getPosition()
+        {
+            return element.getPosition();
+        }
+
+        @Nonnull
+        @Override
+        public String getSenderID()
+        {
+            return element.getSenderID();
+        }
+    }
+
+    private static final class NetworkReceiver implements IPacketReceiver
+    {
+        private final NetworkElement element;
+        double distance = -1;
+
+        private NetworkReceiver( NetworkElement element )
+        {
+            this.element = element;
+        }
+
+        @Nonnull
+        @Override
+        public World getWorld()
+        {
+            return element.getWorld();
+        }
+
+        @Nonnull
+        @Override
+        public Vector3d getPosition()
+        {
+            return element.getPosition();
+        }
+
+        @Override
+        public double getRange()
+        {
+            return 0;
+        }
+
+        @Override
+        public boolean isInterdimensional()
+        {
+            return false;
+        }
+
+        @Override
+        public void receiveSameDimension( @Nonnull Packet packet, double distance )
+        {
+            this.distance = distance;
+        }
+
+        @Override
+        public void receiveDifferentDimension( @Nonnull Packet packet )
+        {
+        }
+    }
+
+    private static final class ChannelModem extends ModemPeripheral
+    {
+        private final NetworkElement element;
+        int received;
+
+        private ChannelModem( NetworkElement element )
+        {
+            super( new ModemState() );
+            this.element = element;
+        }
+
+        @Override
+        protected IPacketNetwork getNetwork()
+        {
+            return element.getNode();
+        }
+
+        @Nonnull
+        @Override
+        public World getWorld()
+        {
+            return element.getWorld();
+        }
+
+        @Nonnull
+        @Override
+        public Vector3d getPosition()
+        {
+            return element.getPosition();
+        }
+
+        @Override
+        public double getRange()
+        {
+            return 0;
+        }
+
+        @Override
+        public boolean isInterdimensional()
+        {
+            return false;
+        }
+
+        @Override
+        public void receiveSameDimension( @Nonnull Packet packet, double distance )
+        {
+            // Record every packet, rather than filtering by channel, so we check which packets the network delivers.
+            received++;
+        }
+
+        @Override
+        public boolean equals( @Nullable IPeripheral other )
+        {
+            return this == other;
+        }
+    }
+
     private static class NetworkPeripheral implements IPeripheral
     {
         @Nonnull
@@ -121,10 +121,20 @@ public boolean isDirectory( @Nonnull String path )
     @Override
     public void list( @Nonnull String path, @Nonnull List<String> files )
     {
-        for( String file : this.files.keySet() )
-        {
-            if( file.startsWith( path ) ) files.add( file.substring( path.length() + 1 ) );
-        }
+        String prefix = path.isEmpty() ? "" : path + "/";
+        Set<String> children = new HashSet<>();
+        for( String file : this.files.keySet() ) addChild( children, prefix, file );
+        for( String directory : directories ) addChild( children, prefix, directory );
+        files.addAll( children );
+    }
+
+    private static void addChild( Set<String> children, String prefix, String path )
+    {
+        if( path.isEmpty() || !path.startsWith( prefix ) ) return;
+
+        String child = path.substring( prefix.length() );
+        int slash = child.indexOf( '/' );
+        children.add( slash < 0 ? child : child.substring( 0, slash ) );
     }
 
     @Override
@@ -24,10 +24,10 @@
 /**
  * Creates "fake" computers, which just run user-defined tasks rather than Lua code.
  */
-class KotlinComputerManager : AutoCloseable {
+class KotlinComputerManager @JvmOverloads constructor(scheduler: ComputerThread = ComputerThread(1)) : AutoCloseable {
 
     private val machines: MutableMap<Computer, Queue<FakeComputerTask>> = HashMap()
-    private val context = ComputerContext(BasicEnvironment(), ComputerThread(1), FakeMainThreadScheduler()) { DummyLuaMachine(it) }
+    private val context = ComputerContext(BasicEnvironment(), scheduler, FakeMainThreadScheduler()) { DummyLuaMachine(it) }
     private val errorLock: Lock = ReentrantLock()
     private val hasError = errorLock.newCondition()
 